@@ -0,0 +1,169 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+
+/**
+ * Class used to decode and encode a single charset many times over directly
+ * into caller-supplied arrays, without creating any garbage.
+ * <p/>
+ * {@link DecodingUtils#UTF8_CHARSET} and {@link DecodingUtils#ASCII_CHARSET}
+ * are handled exactly like
+ * {@link DecodingUtils#decode(byte[], int, int, Charset, char[], int)} and
+ * {@link EncodingUtils#encode(char[], int, int, Charset, byte[], int)} handle
+ * them. Any other charset uses a {@link CharsetDecoder} and
+ * {@link CharsetEncoder} owned by this context (created the first time they
+ * are needed) instead of taking them from the shared pools, and the
+ * {@link ByteBuffer} and {@link CharBuffer} wrappers around the last arrays
+ * used are kept, so repeatedly decoding from and into the same recycled
+ * arrays allocates nothing.
+ * <p/>
+ * <strong>NOTE</strong>: A context holds state between calls and is not
+ * thread-safe; use one per thread (e.g. one per parser).
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class CodecContext {
+	protected Charset charset;
+	protected boolean utf8;
+	protected boolean ascii;
+
+	protected CharsetDecoder decoder;
+	protected CharsetEncoder encoder;
+
+	private byte[] byteArray;
+	private ByteBuffer byteWrapper;
+	private char[] charArray;
+	private CharBuffer charWrapper;
+
+	public CodecContext() {
+		this(DecodingUtils.UTF8_CHARSET);
+	}
+
+	public CodecContext(Charset charset) throws IllegalArgumentException {
+		if (charset == null)
+			throw new IllegalArgumentException("charset cannot be null");
+
+		this.charset = charset;
+		this.utf8 = DecodingUtils.UTF8_CHARSET.equals(charset);
+		this.ascii = DecodingUtils.ASCII_CHARSET.equals(charset);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Used to decode <code>length</code> bytes from <code>source</code>
+	 * directly into <code>dest</code>.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code> or <code>dest</code> is
+	 *             <code>null</code>, if any of the indices or lengths are
+	 *             invalid or if <code>dest</code> does not have room for all of
+	 *             the decoded chars.
+	 *
+	 * @see DecodingUtils#decode(byte[], int, int, Charset, char[], int)
+	 */
+	public int decode(byte[] source, int index, int length, char[] dest,
+			int destIndex) throws IllegalArgumentException {
+		DecodingUtils.checkBounds(source, index, length, dest, destIndex);
+
+		// Decode the common charsets directly if they are sure to fit.
+		if (dest.length - destIndex >= length) {
+			if (utf8)
+				return DecodingUtils.decodeUTF8(source, index, length, dest,
+						destIndex);
+			else if (ascii)
+				return DecodingUtils.decodeASCII(source, index, length, dest,
+						destIndex);
+		}
+
+		if (decoder == null)
+			decoder = DecodingUtils.newDecoder(charset);
+
+		return DecodingUtils.decode(decoder,
+				wrap(source, index, length),
+				wrap(dest, destIndex, dest.length - destIndex));
+	}
+
+	/**
+	 * Used to encode <code>length</code> chars from <code>source</code>
+	 * directly into <code>dest</code>.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code> or <code>dest</code> is
+	 *             <code>null</code>, if any of the indices or lengths are
+	 *             invalid or if <code>dest</code> does not have room for all of
+	 *             the encoded bytes.
+	 *
+	 * @see EncodingUtils#encode(char[], int, int, Charset, byte[], int)
+	 */
+	public int encode(char[] source, int index, int length, byte[] dest,
+			int destIndex) throws IllegalArgumentException {
+		if (utf8 || ascii)
+			return EncodingUtils.encode(source, index, length, charset, dest,
+					destIndex);
+
+		EncodingUtils.checkBounds(source, index, length, dest, destIndex);
+
+		if (encoder == null)
+			encoder = EncodingUtils.newEncoder(charset);
+
+		return EncodingUtils.encode(encoder, wrap(source, index, length),
+				wrap(dest, destIndex, dest.length - destIndex));
+	}
+
+	/**
+	 * Used to get the wrapper around the given array, re-using the last one
+	 * created if it wraps the same array, set to the given range.
+	 */
+	private ByteBuffer wrap(byte[] array, int index, int length) {
+		if (array != byteArray) {
+			byteArray = array;
+			byteWrapper = ByteBuffer.wrap(array);
+		}
+
+		byteWrapper.clear();
+		byteWrapper.position(index);
+		byteWrapper.limit(index + length);
+
+		return byteWrapper;
+	}
+
+	private CharBuffer wrap(char[] array, int index, int length) {
+		if (array != charArray) {
+			charArray = array;
+			charWrapper = CharBuffer.wrap(array);
+		}
+
+		charWrapper.clear();
+		charWrapper.position(index);
+		charWrapper.limit(index + length);
+
+		return charWrapper;
+	}
+}
\ No newline at end of file
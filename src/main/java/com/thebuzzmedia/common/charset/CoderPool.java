@@ -0,0 +1,126 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free, striped pool of idle {@link CharsetDecoder}s or
+ * {@link CharsetEncoder}s (which are stateful and can't be shared) for a single
+ * charset.
+ * <p/>
+ * The pool is a fixed array of slots; taking a coder atomically empties a
+ * slot and handing one back atomically fills an empty one. Each thread starts
+ * probing at a slot picked from its ID, so threads running on different cores
+ * mostly touch different slots and never wait on each other. When every slot
+ * probed is empty a new coder is created by the caller, and when every slot
+ * probed is full the coder handed back is simply dropped, so the pool never
+ * holds more than {@link #STRIPE_COUNT} idle coders.
+ * <p/>
+ * Unlike a <code>ThreadLocal</code> cache, idle coders are not tied to the
+ * thread that used them last, so any number of short-lived (e.g. virtual)
+ * threads can share the pool without each keeping coders of its own alive.
+ *
+ * @param <T>
+ *            The type of coder pooled.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class CoderPool<T> {
+	public static final String STRIPE_COUNT_PROPERTY_NAME = "tbm.common.charset.stripeCount";
+
+	/**
+	 * Number of slots in each pool; a power of 2, by default the smallest one
+	 * &gt;= twice the number of available processors.
+	 */
+	public static final int STRIPE_COUNT = powerOfTwo(Integer.getInteger(
+			STRIPE_COUNT_PROPERTY_NAME,
+			Runtime.getRuntime().availableProcessors() * 2));
+
+	/**
+	 * Number of slots probed by a single {@link #poll()} or
+	 * {@link #offer(Object)} before giving up.
+	 */
+	protected static final int PROBE_COUNT = 4;
+
+	private static final int MASK = STRIPE_COUNT - 1;
+
+	private AtomicReferenceArray<T> slots = new AtomicReferenceArray<T>(
+			STRIPE_COUNT);
+
+	/**
+	 * Used to take an idle coder from the pool.
+	 *
+	 * @return an idle coder or <code>null</code> if none was found.
+	 */
+	public T poll() {
+		int start = probe();
+
+		for (int i = 0; i < PROBE_COUNT; i++) {
+			int slot = (start + i) & MASK;
+
+			// Cheap read first; only empty the slot if there is something in it.
+			if (slots.get(slot) != null) {
+				T coder = slots.getAndSet(slot, null);
+
+				if (coder != null)
+					return coder;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Used to hand a coder back to the pool once the caller is done with it;
+	 * the coder is dropped if there is no room for it.
+	 */
+	public void offer(T coder) {
+		if (coder == null)
+			return;
+
+		int start = probe();
+
+		for (int i = 0; i < PROBE_COUNT; i++) {
+			int slot = (start + i) & MASK;
+
+			if (slots.get(slot) == null
+					&& slots.compareAndSet(slot, null, coder))
+				return;
+		}
+	}
+
+	/**
+	 * Used to pick the slot the current thread starts probing at; thread IDs
+	 * are sequential, so they are spread out with a multiplicative hash.
+	 */
+	protected static int probe() {
+		int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & MASK;
+	}
+
+	private static int powerOfTwo(int value) {
+		int result = 1;
+
+		while (result < value && result < (1 << 16))
+			result <<= 1;
+
+		return result;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Class used to incrementally decode a stream of bytes that arrives in chunks
+ * of any size, like the buffers read from an <code>InputStream</code>.
+ * <p/>
+ * A multi-byte sequence split across two chunks is held back at the end of
+ * the first {@link #feed(byte[], int, int, char[], int)} and completed by the
+ * next one, so the chars decoded are exactly the same as if the whole stream
+ * had been decoded at once; {@link #finish(char[], int)} is called at the end
+ * of the stream to decode anything still held back (replacing a truncated
+ * sequence) and make the session ready for a new stream.
+ * <p/>
+ * At most a few bytes are ever held back, so a session decodes a stream of any
+ * length in constant memory. {@link DecodingUtils#UTF8_CHARSET} and
+ * {@link DecodingUtils#ASCII_CHARSET} are decoded with the same fast paths as
+ * {@link DecodingUtils}; any other charset uses a {@link CharsetDecoder} owned
+ * by the session.
+ * <p/>
+ * <strong>NOTE</strong>: A session is not thread-safe; use one per stream.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class DecoderSession {
+	protected Charset charset;
+	protected boolean utf8;
+	protected boolean ascii;
+	protected CharsetDecoder decoder;
+
+	/**
+	 * Bytes held back from the end of the last chunk fed to the session.
+	 */
+	protected byte[] pending = new byte[8];
+	protected int pendingLength;
+
+	public DecoderSession() {
+		this(DecodingUtils.UTF8_CHARSET);
+	}
+
+	public DecoderSession(Charset charset) throws IllegalArgumentException {
+		if (charset == null)
+			throw new IllegalArgumentException("charset cannot be null");
+
+		this.charset = charset;
+		this.utf8 = DecodingUtils.UTF8_CHARSET.equals(charset);
+		this.ascii = DecodingUtils.ASCII_CHARSET.equals(charset);
+
+		if (!utf8 && !ascii)
+			decoder = DecodingUtils.newDecoder(charset);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return the number of bytes currently held back, waiting for the rest of
+	 *         their sequence.
+	 */
+	public int getPendingLength() {
+		return pendingLength;
+	}
+
+	/**
+	 * Used to get the most chars that feeding <code>length</code> more bytes
+	 * to this session (or finishing it, with a <code>length</code> of
+	 * <code>0</code>) can write; the room <code>dest</code> needs.
+	 */
+	public int getMaxChars(int length) {
+		if (decoder == null)
+			return pendingLength + length;
+
+		return (int) Math.ceil((double) (pendingLength + length)
+				* decoder.maxCharsPerByte());
+	}
+
+	/**
+	 * Used to decode the next <code>length</code> bytes of the stream into
+	 * <code>dest</code>, holding back a sequence cut off by the end of them.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code> or <code>dest</code> is
+	 *             <code>null</code>, if any of the indices or lengths are
+	 *             invalid or if <code>dest</code> does not have room for
+	 *             {@link #getMaxChars(int)} chars.
+	 */
+	public int feed(byte[] source, int index, int length, char[] dest,
+			int destIndex) throws IllegalArgumentException {
+		DecodingUtils.checkBounds(source, index, length, dest, destIndex);
+		checkRoom(getMaxChars(length), dest, destIndex);
+
+		if (ascii)
+			return DecodingUtils.decodeASCII(source, index, length, dest,
+					destIndex);
+		else if (utf8)
+			return feedUTF8(source, index, length, dest, destIndex);
+		else
+			return feedDecoder(source, index, length, dest, destIndex);
+	}
+
+	/**
+	 * Used to decode anything still held back at the end of the stream into
+	 * <code>dest</code> and reset this session for a new stream.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>dest</code> is <code>null</code>, if
+	 *             <code>destIndex</code> is invalid or if <code>dest</code> does
+	 *             not have room for <code>getMaxChars(0)</code> chars.
+	 */
+	public int finish(char[] dest, int destIndex)
+			throws IllegalArgumentException {
+		DecodingUtils.checkBounds(pending, 0, pendingLength, dest, destIndex);
+		checkRoom(getMaxChars(0), dest, destIndex);
+
+		int written;
+
+		if (decoder == null)
+			written = DecodingUtils.decodeUTF8(pending, 0, pendingLength, dest,
+					destIndex);
+		else {
+			CharBuffer out = CharBuffer.wrap(dest, destIndex, dest.length
+					- destIndex);
+
+			check(decoder.decode(ByteBuffer.wrap(pending, 0, pendingLength),
+					out, true));
+			check(decoder.flush(out));
+
+			written = out.position() - destIndex;
+		}
+
+		reset();
+		return written;
+	}
+
+	/**
+	 * Used to discard anything held back and reset this session for a new
+	 * stream.
+	 */
+	public void reset() {
+		pendingLength = 0;
+
+		if (decoder != null)
+			decoder.reset();
+	}
+
+	protected int feedUTF8(byte[] source, int index, int length, char[] dest,
+			int destIndex) {
+		int d = destIndex;
+		int end = index + length;
+
+		// Complete the sequence held back from the last chunk first.
+		if (pendingLength > 0) {
+			int needed = sequenceLength(pending[0]);
+
+			while (pendingLength < needed && index < end
+					&& (source[index] & 0xC0) == 0x80)
+				pending[pendingLength++] = source[index++];
+
+			// Still cut off; wait for the next chunk.
+			if (pendingLength < needed && index == end)
+				return 0;
+
+			d += DecodingUtils.decodeUTF8(pending, 0, pendingLength, dest, d);
+			pendingLength = 0;
+		}
+
+		// Hold back a sequence cut off by the end of this chunk.
+		int tail = 0;
+
+		for (int i = end - 1; i >= index && i >= end - 3; i--) {
+			// Find the lead byte of the last sequence.
+			if ((source[i] & 0xC0) != 0x80) {
+				if (sequenceLength(source[i]) > end - i)
+					tail = end - i;
+
+				break;
+			}
+		}
+
+		d += DecodingUtils.decodeUTF8(source, index, end - index - tail, dest,
+				d);
+
+		if (tail > 0) {
+			System.arraycopy(source, end - tail, pending, 0, tail);
+			pendingLength = tail;
+		}
+
+		return d - destIndex;
+	}
+
+	protected int feedDecoder(byte[] source, int index, int length,
+			char[] dest, int destIndex) {
+		int end = index + length;
+		CharBuffer out = CharBuffer.wrap(dest, destIndex, dest.length
+				- destIndex);
+
+		/*
+		 * Complete the sequence held back from the last chunk first by adding
+		 * one byte at a time until the decoder has consumed all of it.
+		 */
+		while (pendingLength > 0 && index < end) {
+			ensurePending(pendingLength + 1);
+			pending[pendingLength++] = source[index++];
+
+			ByteBuffer in = ByteBuffer.wrap(pending, 0, pendingLength);
+			check(decoder.decode(in, out, false));
+
+			// Keep whatever the decoder couldn't consume yet.
+			pendingLength = in.remaining();
+			System.arraycopy(pending, in.position(), pending, 0, pendingLength);
+		}
+
+		if (index < end) {
+			ByteBuffer in = ByteBuffer.wrap(source, index, end - index);
+			check(decoder.decode(in, out, false));
+
+			// Hold back whatever the decoder couldn't consume yet.
+			pendingLength = in.remaining();
+			ensurePending(pendingLength);
+			in.get(pending, 0, pendingLength);
+		}
+
+		return out.position() - destIndex;
+	}
+
+	/**
+	 * Used to get the length of the UTF-8 sequence started by the given lead
+	 * byte; <code>1</code> for ASCII or an invalid lead byte.
+	 */
+	protected static int sequenceLength(byte lead) {
+		int b = lead & 0xFF;
+
+		if (b >= 0xC2 && b <= 0xDF)
+			return 2;
+		else if (b >= 0xE0 && b <= 0xEF)
+			return 3;
+		else if (b >= 0xF0 && b <= 0xF4)
+			return 4;
+		else
+			return 1;
+	}
+
+	private void ensurePending(int capacity) {
+		if (capacity > pending.length) {
+			byte[] newArray = new byte[capacity * 2];
+			System.arraycopy(pending, 0, newArray, 0, pendingLength);
+			pending = newArray;
+		}
+	}
+
+	private static void checkRoom(int required, char[] dest, int destIndex)
+			throws IllegalArgumentException {
+		if (required > dest.length - destIndex)
+			throw new IllegalArgumentException("dest only has room for "
+					+ (dest.length - destIndex) + " chars but " + required
+					+ " are needed for all of the decoded chars.");
+	}
+
+	private static void check(CoderResult result)
+			throws IllegalArgumentException {
+		if (result.isOverflow())
+			throw new IllegalArgumentException(
+					"dest does not have room for all of the decoded chars.");
+	}
+}
\ No newline at end of file
@@ -19,10 +19,29 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * {@link CharsetDecoder}s are stateful, so every operation takes one of its own
+ * from a lock-free {@link CoderPool} kept per charset and hands it back when
+ * done; any number of threads can decode at once without waiting on each other.
+ * <p/>
+ * Array-backed data in {@link #UTF8_CHARSET} or {@link #ASCII_CHARSET} skips
+ * the {@link CharsetDecoder} entirely and is decoded straight from the
+ * <code>byte[]</code> into the resulting <code>char[]</code> by
+ * {@link #decodeUTF8(byte[], int, int, char[], int)} or
+ * {@link #decodeASCII(byte[], int, int, char[], int)}. Malformed input is
+ * replaced with {@link #REPLACEMENT_CHAR}, one per maximal invalid
+ * subsequence (as recommended by the Unicode Standard).
+ * <p/>
+ * To decode without creating any garbage, use
+ * {@link #decode(byte[], int, int, Charset, char[], int)} to decode into a
+ * <code>char[]</code> the caller recycles, or a {@link CodecContext} when
+ * decoding many times from the same thread.
+ * 
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 1.1
  */
@@ -35,13 +54,19 @@ public class DecodingUtils {
 	public static final Charset ASCII_CHARSET = Charset.forName("ASCII");
 	public static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
 
-	protected static Map<Charset, CharsetDecoder> decoderMap;
+	/**
+	 * Character written in place of any malformed input by the decoders in
+	 * this class.
+	 */
+	public static final char REPLACEMENT_CHAR = '\uFFFD';
+
+	protected static ConcurrentMap<Charset, CoderPool<CharsetDecoder>> decoderPoolMap;
 
 	static {
-		decoderMap = new HashMap<Charset, CharsetDecoder>();
+		decoderPoolMap = new ConcurrentHashMap<Charset, CoderPool<CharsetDecoder>>();
 
-		decoderMap.put(ASCII_CHARSET, ASCII_CHARSET.newDecoder());
-		decoderMap.put(UTF8_CHARSET, UTF8_CHARSET.newDecoder());
+		decoderPoolMap.put(ASCII_CHARSET, new CoderPool<CharsetDecoder>());
+		decoderPoolMap.put(UTF8_CHARSET, new CoderPool<CharsetDecoder>());
 	}
 
 	public static char[] decode(byte[] array) {
@@ -73,8 +98,17 @@ public class DecodingUtils {
 			throws IllegalArgumentException {
 		char[] result = null;
 
-		if (buffer != null) {
-			// Get the decoder for this charset, creating it if necessary.
+		if (buffer != null && buffer.hasArray()
+				&& (UTF8_CHARSET.equals(charset) || ASCII_CHARSET.equals(charset))) {
+			// Decode the common charsets straight from the backing array.
+			result = decodeArray(buffer.array(),
+					buffer.arrayOffset() + buffer.position(),
+					buffer.remaining(), charset);
+
+			// Consume the buffer like the decoder would have.
+			buffer.position(buffer.limit());
+		} else if (buffer != null) {
+			// Take a decoder for this charset, creating it if necessary.
 			CharsetDecoder decoder = getDecoder(charset);
 
 			/*
@@ -110,55 +144,60 @@ public class DecodingUtils {
 			result = new char[optimalSize];
 			int resultLength = 0;
 
-			// Reset the decoder
-			decoder.reset();
+			try {
+				// Reset the decoder
+				decoder.reset();
 
-			while (buffer.hasRemaining()) {
-				// Reset the decode buffer
-				decodeBuffer.clear();
+				while (buffer.hasRemaining()) {
+					// Reset the decode buffer
+					decodeBuffer.clear();
 
-				/*
-				 * Decode the first buffer.capacity chars, passing 'false' to
-				 * indicate that we aren't sure if we are done with the decode
-				 * operation yet.
-				 */
-				decoder.decode(buffer, decodeBuffer, false);
+					/*
+					 * Decode the first buffer.capacity chars, passing 'false' to
+					 * indicate that we aren't sure if we are done with the decode
+					 * operation yet.
+					 */
+					decoder.decode(buffer, decodeBuffer, false);
 
-				// Prepare buffer to be read from.
-				decodeBuffer.flip();
+					// Prepare buffer to be read from.
+					decodeBuffer.flip();
 
-				int appendLength = decodeBuffer.remaining();
+					int appendLength = decodeBuffer.remaining();
 
-				// Append what we successfully decoded to our tally
-				result = append(decodeBuffer, resultLength, result);
+					// Append what we successfully decoded to our tally
+					result = append(decodeBuffer, resultLength, result);
 
-				// Update our result length
-				resultLength += appendLength;
+					// Update our result length
+					resultLength += appendLength;
 
-				// If there is no more to decode, go through finalization
-				if (!buffer.hasRemaining()) {
-					decodeBuffer.clear();
+					// If there is no more to decode, go through finalization
+					if (!buffer.hasRemaining()) {
+						decodeBuffer.clear();
 
-					/*
-					 * Per the CharsetDecoder Javadocs, decoders must be given
-					 * an opportunity to "finalize" their internal state and
-					 * flush out any pending operations once we know we've hit
-					 * the end of the chars to decode.
-					 */
-					decoder.decode(buffer, decodeBuffer, true);
-					decoder.flush(decodeBuffer);
+						/*
+						 * Per the CharsetDecoder Javadocs, decoders must be given
+						 * an opportunity to "finalize" their internal state and
+						 * flush out any pending operations once we know we've hit
+						 * the end of the chars to decode.
+						 */
+						decoder.decode(buffer, decodeBuffer, true);
+						decoder.flush(decodeBuffer);
 
-					decodeBuffer.flip();
-					appendLength = decodeBuffer.remaining();
+						decodeBuffer.flip();
+						appendLength = decodeBuffer.remaining();
 
-					// If any finalized bytes were written, append them.
-					if (decodeBuffer.hasRemaining()) {
-						result = append(decodeBuffer, resultLength, result);
+						// If any finalized bytes were written, append them.
+						if (decodeBuffer.hasRemaining()) {
+							result = append(decodeBuffer, resultLength, result);
 
-						// Update our result length
-						resultLength += appendLength;
+							// Update our result length
+							resultLength += appendLength;
+						}
 					}
 				}
+			} finally {
+				// Hand the decoder back for the next operation to use.
+				releaseDecoder(charset, decoder);
 			}
 
 			// Last-check to make sure our result is exactly the right size
@@ -172,22 +211,329 @@ public class DecodingUtils {
 		return result;
 	}
 
-	protected static synchronized CharsetDecoder getDecoder(Charset charset)
+	/**
+	 * Used to decode <code>length</code> bytes from <code>source</code>
+	 * directly into <code>dest</code> without allocating a result.
+	 * <p/>
+	 * {@link #UTF8_CHARSET} and {@link #ASCII_CHARSET} never decode to more
+	 * chars than bytes; when <code>dest</code> has room for
+	 * <code>length</code> chars after <code>destIndex</code> they are decoded
+	 * with no allocation at all.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code>, <code>charset</code> or
+	 *             <code>dest</code> is <code>null</code>, if any of the
+	 *             indices or lengths are invalid or if <code>dest</code> does
+	 *             not have room for all of the decoded chars.
+	 */
+	public static int decode(byte[] source, int index, int length,
+			Charset charset, char[] dest, int destIndex)
+			throws IllegalArgumentException {
+		checkBounds(source, index, length, dest, destIndex);
+
+		// Decode the common charsets directly if they are sure to fit.
+		if (dest.length - destIndex >= length) {
+			if (UTF8_CHARSET.equals(charset))
+				return decodeUTF8(source, index, length, dest, destIndex);
+			else if (ASCII_CHARSET.equals(charset))
+				return decodeASCII(source, index, length, dest, destIndex);
+		}
+
+		CharsetDecoder decoder = getDecoder(charset);
+
+		try {
+			return decode(decoder, ByteBuffer.wrap(source, index, length),
+					CharBuffer.wrap(dest, destIndex, dest.length - destIndex));
+		} finally {
+			releaseDecoder(charset, decoder);
+		}
+	}
+
+	protected static void checkBounds(byte[] source, int index, int length,
+			char[] dest, int destIndex) throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (dest == null)
+			throw new IllegalArgumentException("dest cannot be null");
+		if (index < 0 || length < 0 || (index + length) > source.length)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= source.length [" + source.length + "]");
+		if (destIndex < 0 || destIndex > dest.length)
+			throw new IllegalArgumentException("destIndex [" + destIndex
+					+ "] must be >= 0 and <= dest.length [" + dest.length + "]");
+	}
+
+	/**
+	 * Used to decode everything remaining in <code>source</code> into
+	 * <code>dest</code> in a single pass with the given decoder, which is
+	 * reset first.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>dest</code> does not have room for all of the
+	 *             decoded chars.
+	 */
+	protected static int decode(CharsetDecoder decoder, ByteBuffer source,
+			CharBuffer dest) throws IllegalArgumentException {
+		int start = dest.position();
+
+		decoder.reset();
+
+		// Everything is given to the decoder at once, so this is the end.
+		CoderResult result = decoder.decode(source, dest, true);
+
+		if (result.isUnderflow())
+			result = decoder.flush(dest);
+
+		if (result.isOverflow())
+			throw new IllegalArgumentException("dest only has room for "
+					+ (dest.limit() - start)
+					+ " chars, which is not enough for all of the decoded chars; "
+					+ source.remaining() + " bytes could not be decoded.");
+
+		return dest.position() - start;
+	}
+
+	/**
+	 * Used to get a decoder for the given charset that the caller has to itself
+	 * until handing it back with {@link #releaseDecoder(Charset, CharsetDecoder)};
+	 * an idle one is taken from the charset's pool or a new one is created.
+	 */
+	protected static CharsetDecoder getDecoder(Charset charset)
 			throws IllegalArgumentException {
 		if (charset == null)
 			throw new IllegalArgumentException(
 					"charset cannot be null, consider using one of the pre-defined Charset constants from this class for convenience.");
 
-		CharsetDecoder result = decoderMap.get(charset);
+		CharsetDecoder result = getPool(charset).poll();
+		return (result == null ? newDecoder(charset) : result);
+	}
+
+	/**
+	 * Used to create a decoder for the given charset that replaces malformed
+	 * or unmappable input with {@link #REPLACEMENT_CHAR} like the decoders in
+	 * this class do, instead of stopping at it.
+	 */
+	protected static CharsetDecoder newDecoder(Charset charset) {
+		return charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Used to hand a decoder taken with {@link #getDecoder(Charset)} back to
+	 * the pool of the charset it was taken for.
+	 */
+	protected static void releaseDecoder(Charset charset,
+			CharsetDecoder decoder) {
+		getPool(charset).offer(decoder);
+	}
+
+	protected static CoderPool<CharsetDecoder> getPool(Charset charset) {
+		CoderPool<CharsetDecoder> pool = decoderPoolMap.get(charset);
+
+		if (pool == null) {
+			CoderPool<CharsetDecoder> created = new CoderPool<CharsetDecoder>();
+			pool = decoderPoolMap.putIfAbsent(charset, created);
 
-		if (result == null) {
-			result = charset.newDecoder();
-			decoderMap.put(charset, result);
+			// We won the race to register it.
+			if (pool == null)
+				pool = created;
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Used to decode the given bytes in {@link #UTF8_CHARSET} or
+	 * {@link #ASCII_CHARSET} into a new <code>char[]</code> of exactly the
+	 * right size.
+	 */
+	protected static char[] decodeArray(byte[] source, int index, int length,
+			Charset charset) {
+		// Neither charset ever decodes to more chars than bytes.
+		char[] result = new char[length];
+		int resultLength = (ASCII_CHARSET.equals(charset) ? decodeASCII(
+				source, index, length, result, 0) : decodeUTF8(source, index,
+				length, result, 0));
+
+		// Last-check to make sure our result is exactly the right size
+		if (result.length != resultLength) {
+			char[] newArray = new char[resultLength];
+			System.arraycopy(result, 0, newArray, 0, resultLength);
+			result = newArray;
 		}
 
 		return result;
 	}
 
+	/**
+	 * Used to decode <code>length</code> bytes of ASCII from
+	 * <code>source</code> into <code>dest</code>, replacing any byte &gt;
+	 * <code>0x7F</code> with {@link #REPLACEMENT_CHAR}.
+	 * <p/>
+	 * <code>dest</code> must have room for <code>length</code> chars starting
+	 * at <code>destIndex</code>.
+	 *
+	 * @return the number of chars written to <code>dest</code>; always
+	 *         <code>length</code>.
+	 */
+	protected static int decodeASCII(byte[] source, int index, int length,
+			char[] dest, int destIndex) {
+		int i = index;
+		int end = index + length;
+		int d = destIndex;
+
+		while (i < end) {
+			// Copy whole runs of 8 ASCII bytes at a time.
+			i = copyASCII(source, i, end, dest, d);
+			d = destIndex + (i - index);
+
+			if (i < end) {
+				byte b = source[i++];
+				dest[d++] = (b < 0 ? REPLACEMENT_CHAR : (char) b);
+			}
+		}
+
+		return d - destIndex;
+	}
+
+	/**
+	 * Used to decode <code>length</code> bytes of UTF-8 from
+	 * <code>source</code> into <code>dest</code>.
+	 * <p/>
+	 * Runs of ASCII are copied 8 bytes at a time; everything else is decoded a
+	 * sequence at a time with the second byte checked against the range its
+	 * lead byte allows, so overlong forms, surrogates and code points &gt;
+	 * <code>U+10FFFF</code> are all rejected. Each maximal invalid subsequence,
+	 * including one cut short by the end of the data, is replaced with a single
+	 * {@link #REPLACEMENT_CHAR}.
+	 * <p/>
+	 * UTF-8 never decodes to more chars than bytes, so <code>dest</code> must
+	 * have room for <code>length</code> chars starting at
+	 * <code>destIndex</code>.
+	 *
+	 * @return the number of chars written to <code>dest</code>.
+	 */
+	protected static int decodeUTF8(byte[] source, int index, int length,
+			char[] dest, int destIndex) {
+		int i = index;
+		int end = index + length;
+		int d = destIndex;
+
+		while (i < end) {
+			// Copy whole runs of 8 ASCII bytes at a time.
+			int run = copyASCII(source, i, end, dest, d);
+			d += run - i;
+			i = run;
+
+			if (i >= end)
+				break;
+
+			int b1 = source[i];
+
+			// Single ASCII byte left over from a run.
+			if (b1 >= 0) {
+				dest[d++] = (char) b1;
+				i++;
+				continue;
+			}
+
+			b1 &= 0xFF;
+
+			// Continuation bytes, overlong 2-byte leads and leads > U+10FFFF.
+			if (b1 < 0xC2 || b1 > 0xF4) {
+				dest[d++] = REPLACEMENT_CHAR;
+				i++;
+				continue;
+			}
+
+			/*
+			 * The first continuation byte has a narrower range after some lead
+			 * bytes: E0 (overlong), ED (surrogates), F0 (overlong) and F4 (>
+			 * U+10FFFF). The rest are always 0x80-0xBF.
+			 */
+			int min = (b1 == 0xE0 ? 0xA0 : (b1 == 0xF0 ? 0x90 : 0x80));
+			int max = (b1 == 0xED ? 0x9F : (b1 == 0xF4 ? 0x8F : 0xBF));
+			int b2 = (i + 1 < end ? source[i + 1] & 0xFF : -1);
+
+			if (b2 < min || b2 > max) {
+				dest[d++] = REPLACEMENT_CHAR;
+				i++;
+			} else if (b1 < 0xE0) {
+				dest[d++] = (char) (((b1 & 0x1F) << 6) | (b2 & 0x3F));
+				i += 2;
+			} else {
+				int b3 = (i + 2 < end ? source[i + 2] : 0);
+
+				if ((b3 & 0xC0) != 0x80) {
+					dest[d++] = REPLACEMENT_CHAR;
+					i += 2;
+				} else if (b1 < 0xF0) {
+					dest[d++] = (char) (((b1 & 0x0F) << 12)
+							| ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+					i += 3;
+				} else {
+					int b4 = (i + 3 < end ? source[i + 3] : 0);
+
+					if ((b4 & 0xC0) != 0x80) {
+						dest[d++] = REPLACEMENT_CHAR;
+						i += 3;
+					} else {
+						int cp = ((b1 & 0x07) << 18) | ((b2 & 0x3F) << 12)
+								| ((b3 & 0x3F) << 6) | (b4 & 0x3F);
+
+						// Supplementary code point; write the surrogate pair.
+						dest[d++] = (char) (0xD7C0 + (cp >>> 10));
+						dest[d++] = (char) (0xDC00 | (cp & 0x3FF));
+						i += 4;
+					}
+				}
+			}
+		}
+
+		return d - destIndex;
+	}
+
+	/**
+	 * Used to copy the run of ASCII bytes starting at <code>index</code> into
+	 * <code>dest</code>, 8 bytes at a time, stopping at the first group of 8
+	 * that holds a non-ASCII byte or when fewer than 8 bytes are left.
+	 *
+	 * @return the index of the first byte not copied.
+	 */
+	private static int copyASCII(byte[] source, int index, int end,
+			char[] dest, int destIndex) {
+		int limit = end - 8;
+
+		while (index <= limit) {
+			// One sign bit check for all 8 bytes.
+			if ((source[index] | source[index + 1] | source[index + 2]
+					| source[index + 3] | source[index + 4] | source[index + 5]
+					| source[index + 6] | source[index + 7]) < 0)
+				break;
+
+			dest[destIndex] = (char) source[index];
+			dest[destIndex + 1] = (char) source[index + 1];
+			dest[destIndex + 2] = (char) source[index + 2];
+			dest[destIndex + 3] = (char) source[index + 3];
+			dest[destIndex + 4] = (char) source[index + 4];
+			dest[destIndex + 5] = (char) source[index + 5];
+			dest[destIndex + 6] = (char) source[index + 6];
+			dest[destIndex + 7] = (char) source[index + 7];
+
+			index += 8;
+			destIndex += 8;
+		}
+
+		return index;
+	}
+
 	protected static char[] append(CharBuffer source, int index, char[] dest) {
 		// Do nothing if there is nothing to append.
 		if (source == null || source.remaining() == 0)
@@ -0,0 +1,267 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Class used to incrementally encode a stream of chars that arrives in chunks
+ * of any size, like the buffers read from a <code>Reader</code>.
+ * <p/>
+ * A surrogate pair split across two chunks is held back at the end of the
+ * first {@link #feed(char[], int, int, byte[], int)} and completed by the next
+ * one, so the bytes encoded are exactly the same as if the whole stream had
+ * been encoded at once; {@link #finish(byte[], int)} is called at the end of
+ * the stream to encode anything still held back (replacing an unpaired
+ * surrogate) and make the session ready for a new stream.
+ * <p/>
+ * At most a few chars are ever held back, so a session encodes a stream of any
+ * length in constant memory. {@link EncodingUtils#UTF8_CHARSET} and
+ * {@link EncodingUtils#ASCII_CHARSET} are encoded with the same fast paths as
+ * {@link EncodingUtils}; any other charset uses a {@link CharsetEncoder} owned
+ * by the session.
+ * <p/>
+ * <strong>NOTE</strong>: A session is not thread-safe; use one per stream.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class EncoderSession {
+	protected Charset charset;
+	protected boolean utf8;
+	protected boolean ascii;
+	protected CharsetEncoder encoder;
+
+	/**
+	 * Chars held back from the end of the last chunk fed to the session.
+	 */
+	protected char[] pending = new char[4];
+	protected int pendingLength;
+
+	public EncoderSession() {
+		this(EncodingUtils.UTF8_CHARSET);
+	}
+
+	public EncoderSession(Charset charset) throws IllegalArgumentException {
+		if (charset == null)
+			throw new IllegalArgumentException("charset cannot be null");
+
+		this.charset = charset;
+		this.utf8 = EncodingUtils.UTF8_CHARSET.equals(charset);
+		this.ascii = EncodingUtils.ASCII_CHARSET.equals(charset);
+
+		if (!utf8 && !ascii)
+			encoder = EncodingUtils.newEncoder(charset);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return the number of chars currently held back, waiting for the rest of
+	 *         their surrogate pair.
+	 */
+	public int getPendingLength() {
+		return pendingLength;
+	}
+
+	/**
+	 * Used to get the most bytes that feeding <code>length</code> more chars
+	 * to this session (or finishing it, with a <code>length</code> of
+	 * <code>0</code>) can write; the room <code>dest</code> needs.
+	 */
+	public int getMaxBytes(int length) {
+		if (ascii)
+			return pendingLength + length;
+		else if (utf8)
+			return (pendingLength + length) * 3;
+
+		return (int) Math.ceil((double) (pendingLength + length)
+				* encoder.maxBytesPerChar());
+	}
+
+	/**
+	 * Used to encode the next <code>length</code> chars of the stream into
+	 * <code>dest</code>, holding back a high surrogate cut off from its pair
+	 * by the end of them.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code> or <code>dest</code> is
+	 *             <code>null</code>, if any of the indices or lengths are
+	 *             invalid or if <code>dest</code> does not have room for
+	 *             {@link #getMaxBytes(int)} bytes.
+	 */
+	public int feed(char[] source, int index, int length, byte[] dest,
+			int destIndex) throws IllegalArgumentException {
+		EncodingUtils.checkBounds(source, index, length, dest, destIndex);
+		checkRoom(getMaxBytes(length), dest, destIndex);
+
+		if (encoder == null)
+			return feedArray(source, index, length, dest, destIndex);
+		else
+			return feedEncoder(source, index, length, dest, destIndex);
+	}
+
+	/**
+	 * Used to encode anything still held back at the end of the stream into
+	 * <code>dest</code> and reset this session for a new stream.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>dest</code> is <code>null</code>, if
+	 *             <code>destIndex</code> is invalid or if <code>dest</code> does
+	 *             not have room for <code>getMaxBytes(0)</code> bytes.
+	 */
+	public int finish(byte[] dest, int destIndex)
+			throws IllegalArgumentException {
+		EncodingUtils.checkBounds(pending, 0, pendingLength, dest, destIndex);
+		checkRoom(getMaxBytes(0), dest, destIndex);
+
+		int written;
+
+		if (encoder == null)
+			written = encode(pending, 0, pendingLength, dest, destIndex);
+		else {
+			ByteBuffer out = ByteBuffer.wrap(dest, destIndex, dest.length
+					- destIndex);
+
+			check(encoder.encode(CharBuffer.wrap(pending, 0, pendingLength),
+					out, true));
+			check(encoder.flush(out));
+
+			written = out.position() - destIndex;
+		}
+
+		reset();
+		return written;
+	}
+
+	/**
+	 * Used to discard anything held back and reset this session for a new
+	 * stream.
+	 */
+	public void reset() {
+		pendingLength = 0;
+
+		if (encoder != null)
+			encoder.reset();
+	}
+
+	protected int feedArray(char[] source, int index, int length,
+			byte[] dest, int destIndex) {
+		int d = destIndex;
+		int end = index + length;
+
+		// Complete the pair held back from the last chunk first.
+		if (pendingLength > 0) {
+			// Still cut off; wait for the next chunk.
+			if (index == end)
+				return 0;
+
+			if (Character.isLowSurrogate(source[index]))
+				pending[pendingLength++] = source[index++];
+
+			d += encode(pending, 0, pendingLength, dest, d);
+			pendingLength = 0;
+		}
+
+		// Hold back a high surrogate cut off by the end of this chunk.
+		int tail = (index < end && Character.isHighSurrogate(source[end - 1]) ? 1
+				: 0);
+
+		d += encode(source, index, end - index - tail, dest, d);
+
+		if (tail > 0) {
+			pending[0] = source[end - 1];
+			pendingLength = 1;
+		}
+
+		return d - destIndex;
+	}
+
+	protected int feedEncoder(char[] source, int index, int length,
+			byte[] dest, int destIndex) {
+		int end = index + length;
+		ByteBuffer out = ByteBuffer.wrap(dest, destIndex, dest.length
+				- destIndex);
+
+		/*
+		 * Complete the pair held back from the last chunk first by adding one
+		 * char at a time until the encoder has consumed all of it.
+		 */
+		while (pendingLength > 0 && index < end) {
+			ensurePending(pendingLength + 1);
+			pending[pendingLength++] = source[index++];
+
+			CharBuffer in = CharBuffer.wrap(pending, 0, pendingLength);
+			check(encoder.encode(in, out, false));
+
+			// Keep whatever the encoder couldn't consume yet.
+			pendingLength = in.remaining();
+			System.arraycopy(pending, in.position(), pending, 0, pendingLength);
+		}
+
+		if (index < end) {
+			CharBuffer in = CharBuffer.wrap(source, index, end - index);
+			check(encoder.encode(in, out, false));
+
+			// Hold back whatever the encoder couldn't consume yet.
+			pendingLength = in.remaining();
+			ensurePending(pendingLength);
+			in.get(pending, 0, pendingLength);
+		}
+
+		return out.position() - destIndex;
+	}
+
+	private int encode(char[] source, int index, int length, byte[] dest,
+			int destIndex) {
+		return (ascii ? EncodingUtils.encodeASCII(source, index, length, dest,
+				destIndex) : EncodingUtils.encodeUTF8(source, index, length,
+				dest, destIndex));
+	}
+
+	private void ensurePending(int capacity) {
+		if (capacity > pending.length) {
+			char[] newArray = new char[capacity * 2];
+			System.arraycopy(pending, 0, newArray, 0, pendingLength);
+			pending = newArray;
+		}
+	}
+
+	private static void checkRoom(int required, byte[] dest, int destIndex)
+			throws IllegalArgumentException {
+		if (required > dest.length - destIndex)
+			throw new IllegalArgumentException("dest only has room for "
+					+ (dest.length - destIndex) + " bytes but " + required
+					+ " are needed for all of the encoded bytes.");
+	}
+
+	private static void check(CoderResult result)
+			throws IllegalArgumentException {
+		if (result.isOverflow())
+			throw new IllegalArgumentException(
+					"dest does not have room for all of the encoded bytes.");
+	}
+}
\ No newline at end of file
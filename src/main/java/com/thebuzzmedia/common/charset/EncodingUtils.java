@@ -19,10 +19,29 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * {@link CharsetEncoder}s are stateful, so every operation takes one of its own
+ * from a lock-free {@link CoderPool} kept per charset and hands it back when
+ * done; any number of threads can encode at once without waiting on each other.
+ * <p/>
+ * Array-backed data and {@link CharSequence}s in {@link #UTF8_CHARSET} or
+ * {@link #ASCII_CHARSET} skip the {@link CharsetEncoder} entirely; the exact
+ * encoded length is counted up front and the chars are encoded straight into a
+ * <code>byte[]</code> of that size. A valid surrogate pair is encoded as a
+ * single 4-byte sequence (or a single {@link #REPLACEMENT_BYTE} in ASCII) and
+ * any unpaired surrogate or char that has no ASCII mapping is replaced with
+ * {@link #REPLACEMENT_BYTE}, like {@link String#getBytes(Charset)} does.
+ * <p/>
+ * To encode without creating any garbage, use
+ * {@link #encode(char[], int, int, Charset, byte[], int)} to encode into a
+ * <code>byte[]</code> the caller recycles, or a {@link CodecContext} when
+ * encoding many times from the same thread.
+ * 
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 1.1
  */
@@ -35,13 +54,19 @@ public class EncodingUtils {
 	public static final Charset ASCII_CHARSET = Charset.forName("ASCII");
 	public static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
 
-	protected static Map<Charset, CharsetEncoder> encoderMap;
+	/**
+	 * Byte written in place of any char that cannot be encoded by the encoders
+	 * in this class.
+	 */
+	public static final byte REPLACEMENT_BYTE = (byte) '?';
+
+	protected static ConcurrentMap<Charset, CoderPool<CharsetEncoder>> encoderPoolMap;
 
 	static {
-		encoderMap = new HashMap<Charset, CharsetEncoder>();
+		encoderPoolMap = new ConcurrentHashMap<Charset, CoderPool<CharsetEncoder>>();
 
-		encoderMap.put(ASCII_CHARSET, ASCII_CHARSET.newEncoder());
-		encoderMap.put(UTF8_CHARSET, UTF8_CHARSET.newEncoder());
+		encoderPoolMap.put(ASCII_CHARSET, new CoderPool<CharsetEncoder>());
+		encoderPoolMap.put(UTF8_CHARSET, new CoderPool<CharsetEncoder>());
 	}
 
 	public static byte[] encode(char[] array) {
@@ -65,11 +90,24 @@ public class EncodingUtils {
 	}
 
 	public static byte[] encode(CharSequence chars) {
-		return (chars == null ? null : encode(CharBuffer.wrap(chars)));
+		return encode(chars, UTF8_CHARSET);
 	}
 
 	public static byte[] encode(CharSequence chars, Charset charset) {
-		return (chars == null ? null : encode(CharBuffer.wrap(chars), charset));
+		byte[] result = null;
+
+		if (chars != null) {
+			if (UTF8_CHARSET.equals(charset)) {
+				result = new byte[utf8Length(chars)];
+				encodeUTF8(chars, result, 0);
+			} else if (ASCII_CHARSET.equals(charset)) {
+				result = new byte[asciiLength(chars)];
+				encodeASCII(chars, result, 0);
+			} else
+				result = encode(CharBuffer.wrap(chars), charset);
+		}
+
+		return result;
 	}
 
 	public static byte[] encode(CharBuffer source)
@@ -81,8 +119,17 @@ public class EncodingUtils {
 			throws IllegalArgumentException {
 		byte[] result = null;
 
-		if (buffer != null) {
-			// Get the encoder for this charset, creating it if necessary.
+		if (buffer != null && buffer.hasArray()
+				&& (UTF8_CHARSET.equals(charset) || ASCII_CHARSET.equals(charset))) {
+			// Encode the common charsets straight from the backing array.
+			result = encodeArray(buffer.array(),
+					buffer.arrayOffset() + buffer.position(),
+					buffer.remaining(), charset);
+
+			// Consume the buffer like the encoder would have.
+			buffer.position(buffer.limit());
+		} else if (buffer != null) {
+			// Take an encoder for this charset, creating it if necessary.
 			CharsetEncoder encoder = getEncoder(charset);
 			int optimalSize = Math.round(encoder.averageBytesPerChar()
 					* (float) buffer.remaining());
@@ -113,55 +160,60 @@ public class EncodingUtils {
 			result = new byte[optimalSize];
 			int resultLength = 0;
 
-			// Reset the encoder
-			encoder.reset();
+			try {
+				// Reset the encoder
+				encoder.reset();
 
-			while (buffer.hasRemaining()) {
-				// Reset the encode buffer
-				encodeBuffer.clear();
+				while (buffer.hasRemaining()) {
+					// Reset the encode buffer
+					encodeBuffer.clear();
 
-				/*
-				 * Encode the first buffer.capacity chars, passing 'false' to
-				 * indicate that we aren't sure if we are done with the encode
-				 * operation yet.
-				 */
-				encoder.encode(buffer, encodeBuffer, false);
+					/*
+					 * Encode the first buffer.capacity chars, passing 'false' to
+					 * indicate that we aren't sure if we are done with the encode
+					 * operation yet.
+					 */
+					encoder.encode(buffer, encodeBuffer, false);
 
-				// Prepare buffer to be read from.
-				encodeBuffer.flip();
+					// Prepare buffer to be read from.
+					encodeBuffer.flip();
 
-				int appendLength = encodeBuffer.remaining();
+					int appendLength = encodeBuffer.remaining();
 
-				// Append what we successfully encoded to our tally
-				result = append(encodeBuffer, resultLength, result);
+					// Append what we successfully encoded to our tally
+					result = append(encodeBuffer, resultLength, result);
 
-				// Update our result length
-				resultLength += appendLength;
+					// Update our result length
+					resultLength += appendLength;
 
-				// If there is no more to decode, go through finalization
-				if (!buffer.hasRemaining()) {
-					encodeBuffer.clear();
+					// If there is no more to decode, go through finalization
+					if (!buffer.hasRemaining()) {
+						encodeBuffer.clear();
 
-					/*
-					 * Per the CharsetDecoder Javadocs, decoders must be given
-					 * an opportunity to "finalize" their internal state and
-					 * flush out any pending operations once we know we've hit
-					 * the end of the chars to decode.
-					 */
-					encoder.encode(buffer, encodeBuffer, true);
-					encoder.flush(encodeBuffer);
+						/*
+						 * Per the CharsetDecoder Javadocs, decoders must be given
+						 * an opportunity to "finalize" their internal state and
+						 * flush out any pending operations once we know we've hit
+						 * the end of the chars to decode.
+						 */
+						encoder.encode(buffer, encodeBuffer, true);
+						encoder.flush(encodeBuffer);
 
-					encodeBuffer.flip();
-					appendLength = encodeBuffer.remaining();
+						encodeBuffer.flip();
+						appendLength = encodeBuffer.remaining();
 
-					// If any finalized bytes were written, append them.
-					if (encodeBuffer.hasRemaining()) {
-						result = append(encodeBuffer, resultLength, result);
+						// If any finalized bytes were written, append them.
+						if (encodeBuffer.hasRemaining()) {
+							result = append(encodeBuffer, resultLength, result);
 
-						// Update our result length
-						resultLength += appendLength;
+							// Update our result length
+							resultLength += appendLength;
+						}
 					}
 				}
+			} finally {
+				// Hand the encoder back for the next operation to use.
+				releaseEncoder(charset, encoder);
 			}
 
 			// Last-check to make sure our result is exactly the right size
@@ -175,22 +227,436 @@ public class EncodingUtils {
 		return result;
 	}
 
-	protected static synchronized CharsetEncoder getEncoder(Charset charset)
+	/**
+	 * Used to encode <code>length</code> chars from <code>source</code>
+	 * directly into <code>dest</code> without allocating a result.
+	 * <p/>
+	 * {@link #UTF8_CHARSET} and {@link #ASCII_CHARSET} are encoded with no
+	 * allocation at all; unless <code>dest</code> has room for the worst case
+	 * (3 bytes per char in UTF-8) the exact encoded length is counted first to
+	 * make sure it fits.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>source</code>, <code>charset</code> or
+	 *             <code>dest</code> is <code>null</code>, if any of the
+	 *             indices or lengths are invalid or if <code>dest</code> does
+	 *             not have room for all of the encoded bytes.
+	 */
+	public static int encode(char[] source, int index, int length,
+			Charset charset, byte[] dest, int destIndex)
+			throws IllegalArgumentException {
+		checkBounds(source, index, length, dest, destIndex);
+
+		if (UTF8_CHARSET.equals(charset)) {
+			if ((long) length * 3 > dest.length - destIndex)
+				checkRoom(utf8Length(source, index, length), dest, destIndex);
+
+			return encodeUTF8(source, index, length, dest, destIndex);
+		} else if (ASCII_CHARSET.equals(charset)) {
+			if (length > dest.length - destIndex)
+				checkRoom(asciiLength(source, index, length), dest, destIndex);
+
+			return encodeASCII(source, index, length, dest, destIndex);
+		}
+
+		CharsetEncoder encoder = getEncoder(charset);
+
+		try {
+			return encode(encoder, CharBuffer.wrap(source, index, length),
+					ByteBuffer.wrap(dest, destIndex, dest.length - destIndex));
+		} finally {
+			releaseEncoder(charset, encoder);
+		}
+	}
+
+	/**
+	 * Used to encode all the given chars directly into <code>dest</code>
+	 * without allocating a result.
+	 *
+	 * @see #encode(char[], int, int, Charset, byte[], int)
+	 */
+	public static int encode(CharSequence chars, Charset charset, byte[] dest,
+			int destIndex) throws IllegalArgumentException {
+		if (chars == null)
+			throw new IllegalArgumentException("chars cannot be null");
+		if (dest == null)
+			throw new IllegalArgumentException("dest cannot be null");
+		if (destIndex < 0 || destIndex > dest.length)
+			throw new IllegalArgumentException("destIndex [" + destIndex
+					+ "] must be >= 0 and <= dest.length [" + dest.length + "]");
+
+		int length = chars.length();
+
+		if (UTF8_CHARSET.equals(charset)) {
+			if ((long) length * 3 > dest.length - destIndex)
+				checkRoom(utf8Length(chars), dest, destIndex);
+
+			return encodeUTF8(chars, dest, destIndex);
+		} else if (ASCII_CHARSET.equals(charset)) {
+			if (length > dest.length - destIndex)
+				checkRoom(asciiLength(chars), dest, destIndex);
+
+			return encodeASCII(chars, dest, destIndex);
+		}
+
+		CharsetEncoder encoder = getEncoder(charset);
+
+		try {
+			return encode(encoder, CharBuffer.wrap(chars),
+					ByteBuffer.wrap(dest, destIndex, dest.length - destIndex));
+		} finally {
+			releaseEncoder(charset, encoder);
+		}
+	}
+
+	protected static void checkBounds(char[] source, int index, int length,
+			byte[] dest, int destIndex) throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (dest == null)
+			throw new IllegalArgumentException("dest cannot be null");
+		if (index < 0 || length < 0 || (index + length) > source.length)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= source.length [" + source.length + "]");
+		if (destIndex < 0 || destIndex > dest.length)
+			throw new IllegalArgumentException("destIndex [" + destIndex
+					+ "] must be >= 0 and <= dest.length [" + dest.length + "]");
+	}
+
+	protected static void checkRoom(int required, byte[] dest, int destIndex)
+			throws IllegalArgumentException {
+		if (required > dest.length - destIndex)
+			throw new IllegalArgumentException("dest only has room for "
+					+ (dest.length - destIndex) + " bytes but " + required
+					+ " are needed for all of the encoded bytes.");
+	}
+
+	/**
+	 * Used to encode everything remaining in <code>source</code> into
+	 * <code>dest</code> in a single pass with the given encoder, which is
+	 * reset first.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>dest</code> does not have room for all of the
+	 *             encoded bytes.
+	 */
+	protected static int encode(CharsetEncoder encoder, CharBuffer source,
+			ByteBuffer dest) throws IllegalArgumentException {
+		int start = dest.position();
+
+		encoder.reset();
+
+		// Everything is given to the encoder at once, so this is the end.
+		CoderResult result = encoder.encode(source, dest, true);
+
+		if (result.isUnderflow())
+			result = encoder.flush(dest);
+
+		if (result.isOverflow())
+			throw new IllegalArgumentException("dest only has room for "
+					+ (dest.limit() - start)
+					+ " bytes, which is not enough for all of the encoded bytes; "
+					+ source.remaining() + " chars could not be encoded.");
+
+		return dest.position() - start;
+	}
+
+	/**
+	 * Used to get an encoder for the given charset that the caller has to itself
+	 * until handing it back with {@link #releaseEncoder(Charset, CharsetEncoder)};
+	 * an idle one is taken from the charset's pool or a new one is created.
+	 */
+	protected static CharsetEncoder getEncoder(Charset charset)
 			throws IllegalArgumentException {
 		if (charset == null)
 			throw new IllegalArgumentException(
 					"charset cannot be null, consider using one of the pre-defined Charset constants from this class for convenience.");
 
-		CharsetEncoder result = encoderMap.get(charset);
+		CharsetEncoder result = getPool(charset).poll();
+		return (result == null ? newEncoder(charset) : result);
+	}
+
+	/**
+	 * Used to create an encoder for the given charset that replaces malformed
+	 * or unmappable input with {@link #REPLACEMENT_BYTE} like the encoders in
+	 * this class do, instead of stopping at it.
+	 */
+	protected static CharsetEncoder newEncoder(Charset charset) {
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		// Not every charset can represent our replacement.
+		if (encoder.isLegalReplacement(new byte[] { REPLACEMENT_BYTE }))
+			encoder.replaceWith(new byte[] { REPLACEMENT_BYTE });
+
+		return encoder;
+	}
+
+	/**
+	 * Used to hand an encoder taken with {@link #getEncoder(Charset)} back to
+	 * the pool of the charset it was taken for.
+	 */
+	protected static void releaseEncoder(Charset charset,
+			CharsetEncoder encoder) {
+		getPool(charset).offer(encoder);
+	}
+
+	protected static CoderPool<CharsetEncoder> getPool(Charset charset) {
+		CoderPool<CharsetEncoder> pool = encoderPoolMap.get(charset);
+
+		if (pool == null) {
+			CoderPool<CharsetEncoder> created = new CoderPool<CharsetEncoder>();
+			pool = encoderPoolMap.putIfAbsent(charset, created);
+
+			// We won the race to register it.
+			if (pool == null)
+				pool = created;
+		}
+
+		return pool;
+	}
 
-		if (result == null) {
-			result = charset.newEncoder();
-			encoderMap.put(charset, result);
+	/**
+	 * Used to encode the given chars in {@link #UTF8_CHARSET} or
+	 * {@link #ASCII_CHARSET} into a new <code>byte[]</code> of exactly the
+	 * right size.
+	 */
+	protected static byte[] encodeArray(char[] source, int index, int length,
+			Charset charset) {
+		byte[] result;
+
+		if (ASCII_CHARSET.equals(charset)) {
+			result = new byte[asciiLength(source, index, length)];
+			encodeASCII(source, index, length, result, 0);
+		} else {
+			result = new byte[utf8Length(source, index, length)];
+			encodeUTF8(source, index, length, result, 0);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Used to count the exact number of bytes the given chars encode to in
+	 * UTF-8.
+	 */
+	protected static int utf8Length(char[] source, int index, int length) {
+		int end = index + length;
+		int result = length;
+
+		for (int i = index; i < end; i++) {
+			char c = source[i];
+
+			// Every char is at least 1 byte; only count the extra ones.
+			if (c < 0x80)
+				continue;
+			else if (c < 0x800)
+				result++;
+			else if (!Character.isSurrogate(c))
+				result += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < end
+					&& Character.isLowSurrogate(source[i + 1])) {
+				// 4 bytes for the 2 chars of the pair.
+				result += 2;
+				i++;
+			}
+		}
+
+		return result;
+	}
+
+	protected static int utf8Length(CharSequence source) {
+		int end = source.length();
+		int result = end;
+
+		for (int i = 0; i < end; i++) {
+			char c = source.charAt(i);
+
+			// Every char is at least 1 byte; only count the extra ones.
+			if (c < 0x80)
+				continue;
+			else if (c < 0x800)
+				result++;
+			else if (!Character.isSurrogate(c))
+				result += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < end
+					&& Character.isLowSurrogate(source.charAt(i + 1))) {
+				// 4 bytes for the 2 chars of the pair.
+				result += 2;
+				i++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Used to encode <code>length</code> chars from <code>source</code> into
+	 * <code>dest</code> in UTF-8; <code>dest</code> must have room for
+	 * {@link #utf8Length(char[], int, int)} bytes starting at
+	 * <code>destIndex</code> (never more than <code>length * 3</code>).
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 */
+	protected static int encodeUTF8(char[] source, int index, int length,
+			byte[] dest, int destIndex) {
+		int end = index + length;
+		int d = destIndex;
+
+		for (int i = index; i < end; i++) {
+			char c = source[i];
+
+			if (c < 0x80)
+				dest[d++] = (byte) c;
+			else if (c < 0x800) {
+				dest[d++] = (byte) (0xC0 | (c >> 6));
+				dest[d++] = (byte) (0x80 | (c & 0x3F));
+			} else if (!Character.isSurrogate(c)) {
+				dest[d++] = (byte) (0xE0 | (c >> 12));
+				dest[d++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				dest[d++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end
+					&& Character.isLowSurrogate(source[i + 1])) {
+				d = putCodePoint(Character.toCodePoint(c, source[++i]), dest,
+						d);
+			} else
+				dest[d++] = REPLACEMENT_BYTE;
+		}
+
+		return d - destIndex;
+	}
+
+	protected static int encodeUTF8(CharSequence source, byte[] dest,
+			int destIndex) {
+		int end = source.length();
+		int d = destIndex;
+
+		for (int i = 0; i < end; i++) {
+			char c = source.charAt(i);
+
+			if (c < 0x80)
+				dest[d++] = (byte) c;
+			else if (c < 0x800) {
+				dest[d++] = (byte) (0xC0 | (c >> 6));
+				dest[d++] = (byte) (0x80 | (c & 0x3F));
+			} else if (!Character.isSurrogate(c)) {
+				dest[d++] = (byte) (0xE0 | (c >> 12));
+				dest[d++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				dest[d++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end
+					&& Character.isLowSurrogate(source.charAt(i + 1))) {
+				d = putCodePoint(Character.toCodePoint(c, source.charAt(++i)),
+						dest, d);
+			} else
+				dest[d++] = REPLACEMENT_BYTE;
+		}
+
+		return d - destIndex;
+	}
+
+	/**
+	 * Used to count the exact number of bytes the given chars encode to in
+	 * ASCII; a surrogate pair encodes to a single {@link #REPLACEMENT_BYTE}.
+	 */
+	protected static int asciiLength(char[] source, int index, int length) {
+		int end = index + length;
+		int result = length;
+
+		for (int i = index; i < end - 1; i++) {
+			if (Character.isHighSurrogate(source[i])
+					&& Character.isLowSurrogate(source[i + 1])) {
+				result--;
+				i++;
+			}
+		}
+
+		return result;
+	}
+
+	protected static int asciiLength(CharSequence source) {
+		int end = source.length();
+		int result = end;
+
+		for (int i = 0; i < end - 1; i++) {
+			if (Character.isHighSurrogate(source.charAt(i))
+					&& Character.isLowSurrogate(source.charAt(i + 1))) {
+				result--;
+				i++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Used to encode <code>length</code> chars from <code>source</code> into
+	 * <code>dest</code> in ASCII, replacing any char &gt; <code>0x7F</code>
+	 * with {@link #REPLACEMENT_BYTE}; <code>dest</code> must have room for
+	 * <code>length</code> bytes starting at <code>destIndex</code>.
+	 *
+	 * @return the number of bytes written to <code>dest</code>.
+	 */
+	protected static int encodeASCII(char[] source, int index, int length,
+			byte[] dest, int destIndex) {
+		int end = index + length;
+		int d = destIndex;
+
+		for (int i = index; i < end; i++) {
+			char c = source[i];
+
+			if (c < 0x80)
+				dest[d++] = (byte) c;
+			else {
+				// A surrogate pair is a single unmappable char.
+				if (Character.isHighSurrogate(c) && i + 1 < end
+						&& Character.isLowSurrogate(source[i + 1]))
+					i++;
+
+				dest[d++] = REPLACEMENT_BYTE;
+			}
+		}
+
+		return d - destIndex;
+	}
+
+	protected static int encodeASCII(CharSequence source, byte[] dest,
+			int destIndex) {
+		int end = source.length();
+		int d = destIndex;
+
+		for (int i = 0; i < end; i++) {
+			char c = source.charAt(i);
+
+			if (c < 0x80)
+				dest[d++] = (byte) c;
+			else {
+				// A surrogate pair is a single unmappable char.
+				if (Character.isHighSurrogate(c) && i + 1 < end
+						&& Character.isLowSurrogate(source.charAt(i + 1)))
+					i++;
+
+				dest[d++] = REPLACEMENT_BYTE;
+			}
+		}
+
+		return d - destIndex;
+	}
+
+	private static int putCodePoint(int codePoint, byte[] dest, int index) {
+		dest[index++] = (byte) (0xF0 | (codePoint >> 18));
+		dest[index++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+		dest[index++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		dest[index++] = (byte) (0x80 | (codePoint & 0x3F));
+		return index;
+	}
+
 	protected static byte[] append(ByteBuffer source, int index, byte[] dest) {
 		// Do nothing if there is nothing to append.
 		if (source == null || source.remaining() == 0)
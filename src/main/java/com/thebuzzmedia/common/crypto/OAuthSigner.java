@@ -571,20 +571,15 @@ public class OAuthSigner {
 			if (tokenKey != null)
 				keyBuffer.append(ENCODER.escape(tokenKey));
 
-			char[] charBuffer = new char[keyBuffer.length()];
-			keyBuffer.getChars(0, charBuffer.length, charBuffer, 0);
-
 			// String.getBytes does ISO-8859-1 conversion, we want UTF8.
-			byte[] byteBuffer = EncodingUtils.encode(charBuffer);
+			byte[] byteBuffer = EncodingUtils.encode(keyBuffer);
 			SecretKey key = new SecretKeySpec(byteBuffer, algorithm.name);
 			Mac mac = Mac.getInstance(algorithm.name);
 
 			// Init with the secret key.
 			mac.init(key);
 
-			charBuffer = new char[buffer.length()];
-			buffer.getChars(0, charBuffer.length, charBuffer, 0);
-			byteBuffer = EncodingUtils.encode(charBuffer);
+			byteBuffer = EncodingUtils.encode(buffer);
 
 			// Generate the actual HMAC signature.
 			hash = mac.doFinal(byteBuffer);
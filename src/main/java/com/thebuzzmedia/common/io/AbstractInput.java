@@ -15,6 +15,7 @@
  */
 package com.thebuzzmedia.common.io;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -33,7 +34,7 @@ import java.nio.ByteBuffer;
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
-public abstract class AbstractInput<ST, BT> implements IInput<ST, BT> {
+public abstract class AbstractInput<ST, BT> implements ISeekableInput<ST, BT> {
 	/**
 	 * Position within the wrapped <code>source</code> where the first read
 	 * operation will begin.
@@ -63,10 +64,11 @@ public abstract class AbstractInput<ST, BT> implements IInput<ST, BT> {
 	 * <code>(sIndex + maxLength)</code> or if <code>sourceEmpty</code> is
 	 * <code>true</code>.
 	 * <p/>
-	 * For {@link IInput} implementations that don't need this value, it's value
-	 * will start at <code>0</code> and increment after each successful read
-	 * operation; effectively keeping track of the amount of data read from the
-	 * underlying <code>source</code>.
+	 * This value starts at <code>sIndex</code>; for {@link IInput}
+	 * implementations that don't use an index, it's value will start at
+	 * <code>0</code> and increment after each successful read operation;
+	 * effectively keeping track of the amount of data read from the underlying
+	 * <code>source</code>.
 	 */
 	protected int position;
 
@@ -110,14 +112,14 @@ public abstract class AbstractInput<ST, BT> implements IInput<ST, BT> {
 		this.sIndex = index;
 		this.maxLength = length;
 
-		this.position = 0;
+		this.position = (index == UNSPECIFIED ? 0 : index);
 
 		/*
 		 * End position will either be index+length, or just length if index is
-		 * UNSPECIFIED; automatically making endPosition UNSPECIFIED if length
-		 * was UNSPECIFIED as well (0 + -1).
+		 * UNSPECIFIED; or UNSPECIFIED if length was UNSPECIFIED.
 		 */
-		this.endPosition = ((this.sIndex == UNSPECIFIED ? 0 : this.sIndex) + this.maxLength);
+		this.endPosition = (length == UNSPECIFIED ? UNSPECIFIED : position
+				+ length);
 
 		this.source = source;
 		this.sourceEmpty = false;
@@ -154,6 +156,27 @@ public abstract class AbstractInput<ST, BT> implements IInput<ST, BT> {
 				- position);
 	}
 
+	/*
+	 * The int-based bookkeeping of this class can never exceed the int range,
+	 * so the long accessors simply widen the values; no overhead is added to
+	 * the read path.
+	 */
+	public long getLongIndex() {
+		return sIndex;
+	}
+
+	public long getLongLength() {
+		return maxLength;
+	}
+
+	public long getLongPosition() {
+		return position;
+	}
+
+	public long getLongRemaining() {
+		return getRemaining();
+	}
+
 	public int read(BT buffer) throws IllegalArgumentException, IOException {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
@@ -172,6 +195,119 @@ public abstract class AbstractInput<ST, BT> implements IInput<ST, BT> {
 		return readInternal(buffer, index, length);
 	}
 
+	public void readFully(BT buffer, int index, int length)
+			throws IllegalArgumentException, EOFException, IOException {
+		readAtLeast(buffer, index, length, length);
+	}
+
+	public int readAtLeast(BT buffer, int index, int length, int min)
+			throws IllegalArgumentException, EOFException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0 and length [" + length + "] must be >= 0");
+		if (min < 0 || min > length)
+			throw new IllegalArgumentException("min [" + min
+					+ "] must be >= 0 and <= length [" + length + "]");
+
+		int total = readAtLeastImpl(buffer, index, length, min);
+
+		if (total < min)
+			throw new EOFException("Only " + total + " of the " + min
+					+ " required units of data could be read; the input is empty");
+
+		return total;
+	}
+
+	/**
+	 * Implemented to simply move <code>position</code> forward with
+	 * {@link #reposition(int)}; the sources wrapped by these inputs are held
+	 * in memory, so skipping any amount of data is O(1).
+	 */
+	public long skip(long amount) throws IllegalArgumentException, IOException {
+		if (amount < 0)
+			throw new IllegalArgumentException("amount [" + amount
+					+ "] must be >= 0");
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		long remaining = (endPosition == UNSPECIFIED ? Integer.MAX_VALUE
+				- position : endPosition - position);
+
+		// Trim the amount to skip if necessary.
+		if (amount > remaining)
+			amount = remaining;
+
+		reposition(position + (int) amount);
+		return amount;
+	}
+
+	public void seek(long position) throws IllegalArgumentException,
+			IOException {
+		int start = (sIndex == UNSPECIFIED ? 0 : sIndex);
+
+		if (position < start
+				|| (endPosition != UNSPECIFIED && position > endPosition))
+			throw new IllegalArgumentException("position [" + position
+					+ "] must be >= " + start + " and <= " + endPosition);
+
+		reposition((int) position);
+	}
+
+	/**
+	 * Used to move this input to the given position within its
+	 * <code>source</code> so the next <code>read</code> operation begins there,
+	 * clearing the empty flag set by any previous <code>read</code> operation.
+	 * <p/>
+	 * The default implementation only updates <code>position</code>, which is
+	 * all that is needed for implementations that read from
+	 * <code>source</code> at <code>position</code>. Implementations that track
+	 * their place in the <code>source</code> some other way (e.g. the position
+	 * of a buffer) must override this to move it as well.
+	 * <p/>
+	 * <strong>NOTE</strong>: The given position is expected to already be
+	 * verified to fall between <code>sIndex</code> and the end of the input.
+	 */
+	protected void reposition(int position) {
+		this.position = position;
+		this.sourceEmpty = false;
+	}
+
+	/**
+	 * Used to perform the reads of
+	 * {@link #readAtLeast(Object, int, int, int)} once its arguments have been
+	 * verified; reading stops once <code>min</code> amount of data has been
+	 * read or the input is empty.
+	 * <p/>
+	 * The default implementation simply loops over
+	 * {@link #readInternal(Object, int, int)}, which reads all the data a
+	 * single copy can provide for inputs wrapping arrays or buffers.
+	 * Implementations wrapping streams can override this to loop over the
+	 * stream directly.
+	 * 
+	 * @return the amount of data read; only less than <code>min</code> if the
+	 *         input is empty.
+	 */
+	protected int readAtLeastImpl(BT buffer, int index, int length, int min)
+			throws IllegalArgumentException, IOException {
+		int total = 0;
+
+		while (total < min) {
+			int read = readInternal(buffer, index + total, length - total);
+
+			// Stop if empty; otherwise a non-blocking source had no data yet.
+			if (read == 0 && isEmpty())
+				break;
+
+			total += read;
+		}
+
+		return total;
+	}
+
 	/**
 	 * Internal read operation that all other read operations funnel into and
 	 * does the following:
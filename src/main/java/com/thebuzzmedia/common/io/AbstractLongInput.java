@@ -0,0 +1,335 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Variant of {@link AbstractInput} that tracks its bounds and position using
+ * 64-bit <code>long</code> values so sources larger than
+ * {@link Integer#MAX_VALUE} (e.g. multi-GB files or streams) can be read and
+ * bounded without the bookkeeping overflowing.
+ * <p/>
+ * The <code>int</code>-based accessors defined by {@link IInput} are still
+ * supported, but will saturate at {@link Integer#MAX_VALUE} once the tracked
+ * values exceed that; callers working with large sources should use the
+ * {@link ILongInput} accessors instead.
+ *
+ * @param <ST>
+ *            The type of the source that this {@link IInput} is wrapping; for
+ *            example {@link InputStream}, {@link ByteBuffer}, etc.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public abstract class AbstractLongInput<ST, BT> implements ILongInput<ST, BT> {
+	/**
+	 * Value returned by {@link #readImpl(Object, int, int)} to indicate that a
+	 * non-blocking <code>source</code> has no data available right now, but
+	 * has not reached its end either.
+	 * <p/>
+	 * The <code>read</code> operation returns <code>0</code> to the caller in
+	 * this case without marking the input as empty; callers can tell the two
+	 * outcomes apart by checking {@link #isEmpty()}.
+	 */
+	protected static final int NO_DATA = -2;
+
+	/**
+	 * Position within the wrapped <code>source</code> where the first read
+	 * operation will begin or {@link IInput#UNSPECIFIED}.
+	 */
+	protected long sIndex;
+
+	/**
+	 * Maximum limit on the amount of data that can be read from the wrapped
+	 * <code>source</code> or {@link IInput#UNSPECIFIED}.
+	 */
+	protected long maxLength;
+
+	/**
+	 * Position within the wrapped <code>source</code> where the next read
+	 * operation will begin. Starts at <code>sIndex</code> (or <code>0</code> if
+	 * no index was specified) and is incremented by the amount of data read
+	 * after each successful read operation.
+	 */
+	protected long position;
+
+	/**
+	 * Pre-computed value of <code>sIndex + maxLength</code> or
+	 * {@link IInput#UNSPECIFIED} if no <code>maxLength</code> was given.
+	 */
+	protected long endPosition;
+
+	/**
+	 * The wrapped source we get data from.
+	 */
+	protected ST source;
+
+	/**
+	 * Flag used to indicate when the underlying source is empty. This is one of
+	 * our isEmpty conditions.
+	 */
+	protected boolean sourceEmpty;
+
+	public AbstractLongInput(ST source, long index, long length)
+			throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (index < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"index ["
+							+ index
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid position in source that is >= 0");
+		if (length < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"length ["
+							+ length
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid length of data from source that is >= 0");
+
+		this.sIndex = index;
+		this.maxLength = length;
+
+		this.position = (index == UNSPECIFIED ? 0 : index);
+		this.endPosition = (length == UNSPECIFIED ? UNSPECIFIED : position
+				+ length);
+
+		this.source = source;
+		this.sourceEmpty = false;
+	}
+
+	public ST getSource() {
+		return source;
+	}
+
+	public boolean isEmpty() {
+		return (sourceEmpty || (endPosition != UNSPECIFIED && position >= endPosition));
+	}
+
+	public int getIndex() {
+		return saturate(sIndex);
+	}
+
+	public int getLength() {
+		return saturate(maxLength);
+	}
+
+	public int getPosition() {
+		return saturate(position);
+	}
+
+	public int getRemaining() {
+		return saturate(getLongRemaining());
+	}
+
+	public long getLongIndex() {
+		return sIndex;
+	}
+
+	public long getLongLength() {
+		return maxLength;
+	}
+
+	public long getLongPosition() {
+		return position;
+	}
+
+	public long getLongRemaining() {
+		return (endPosition == UNSPECIFIED ? UNSPECIFIED : endPosition
+				- position);
+	}
+
+	public int read(BT buffer) throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, 0);
+	}
+
+	public int read(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0 and length [" + length + "] must be >= 0");
+
+		return readInternal(buffer, index, length);
+	}
+
+	public void readFully(BT buffer, int index, int length)
+			throws IllegalArgumentException, EOFException, IOException {
+		readAtLeast(buffer, index, length, length);
+	}
+
+	public int readAtLeast(BT buffer, int index, int length, int min)
+			throws IllegalArgumentException, EOFException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0 and length [" + length + "] must be >= 0");
+		if (min < 0 || min > length)
+			throw new IllegalArgumentException("min [" + min
+					+ "] must be >= 0 and <= length [" + length + "]");
+
+		int total = readAtLeastImpl(buffer, index, length, min);
+
+		if (total < min)
+			throw new EOFException("Only " + total + " of the " + min
+					+ " required units of data could be read; the input is empty");
+
+		return total;
+	}
+
+	public long skip(long amount) throws IllegalArgumentException, IOException {
+		if (amount < 0)
+			throw new IllegalArgumentException("amount [" + amount
+					+ "] must be >= 0");
+
+		// Check if we have nothing to do first.
+		if (amount == 0 || isEmpty())
+			return 0;
+
+		long remaining = getLongRemaining();
+
+		// Trim the amount to skip if supported and necessary.
+		if (remaining != UNSPECIFIED && amount > remaining)
+			amount = remaining;
+
+		// Do the skip op (re-use amount variable)
+		amount = skipImpl(amount);
+
+		// Check if source is empty
+		if (amount == 0)
+			sourceEmpty = true;
+		else if (amount == NO_DATA)
+			return 0;
+
+		// Update the position
+		position += amount;
+
+		// Return the amount of data skipped to caller
+		return amount;
+	}
+
+	/**
+	 * Used to perform the reads of
+	 * {@link #readAtLeast(Object, int, int, int)} once its arguments have been
+	 * verified; reading stops once <code>min</code> amount of data has been
+	 * read or the input is empty.
+	 * <p/>
+	 * The default implementation simply loops over
+	 * {@link #readInternal(Object, int, int)}, which reads all the data a
+	 * single copy can provide for inputs wrapping arrays or buffers.
+	 * Implementations wrapping streams can override this to loop over the
+	 * stream directly.
+	 * 
+	 * @return the amount of data read; only less than <code>min</code> if the
+	 *         input is empty.
+	 */
+	protected int readAtLeastImpl(BT buffer, int index, int length, int min)
+			throws IllegalArgumentException, IOException {
+		int total = 0;
+
+		while (total < min) {
+			int read = readInternal(buffer, index + total, length - total);
+
+			// Stop if empty; otherwise a non-blocking source had no data yet.
+			if (read == 0 && isEmpty())
+				break;
+
+			total += read;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Internal read operation that all other read operations funnel into. See
+	 * {@link AbstractInput} for a description of the bookkeeping performed.
+	 */
+	protected final int readInternal(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		long remaining = getLongRemaining();
+
+		// Trim the length of the read if supported and necessary.
+		if (remaining != UNSPECIFIED && length > remaining)
+			length = (int) remaining;
+
+		// Do the read op (re-use length variable)
+		length = readImpl(buffer, index, length);
+
+		// Check if source is empty
+		if (length == 0)
+			sourceEmpty = true;
+		else if (length == NO_DATA)
+			return 0;
+
+		// Update the position
+		position += length;
+
+		// Return the amount of data read to caller
+		return length;
+	}
+
+	/**
+	 * Used to perform the actual "read" logic based on the specific type of
+	 * <code>source</code> and <code>buffer</code> this {@link IInput} supports.
+	 * <p/>
+	 * The contract is identical to {@link AbstractInput#readImpl(Object, int, int)}
+	 * ; <code>position</code> is simply tracked as a <code>long</code>.
+	 * <p/>
+	 * Implementations wrapping non-blocking sources can additionally return
+	 * {@link #NO_DATA} to indicate that no data was available yet, as opposed to
+	 * <code>0</code> which indicates the source has been exhausted.
+	 */
+	protected abstract int readImpl(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException;
+
+	/**
+	 * Used to perform the actual "skip" logic based on the specific type of
+	 * <code>source</code> this {@link IInput} supports.
+	 * <p/>
+	 * The contract mirrors {@link #readImpl(Object, int, int)}: skip
+	 * <em>up to</em> <code>amount</code> of data (which has already been
+	 * trimmed to fit the bounds of this input), returning <code>0</code> if the
+	 * <code>source</code> has been exhausted or {@link #NO_DATA} if a
+	 * non-blocking <code>source</code> has no data available right now.
+	 */
+	protected abstract long skipImpl(long amount) throws IOException;
+
+	/**
+	 * Used to clamp the given 64-bit value to fit within an <code>int</code>
+	 * for the legacy {@link IInput} accessors.
+	 */
+	protected static int saturate(long value) {
+		return (value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value);
+	}
+}
\ No newline at end of file
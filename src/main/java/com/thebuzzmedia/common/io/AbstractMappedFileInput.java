@@ -0,0 +1,194 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Base class for inputs that read from a {@link FileChannel} by memory-mapping
+ * the file in sliding, read-only windows of at most <code>windowSize</code>
+ * bytes.
+ * <p/>
+ * Only a single window is mapped at a time; as the read position moves past
+ * the end of the current window the next one is mapped in its place. This
+ * allows files of any size (including those larger than 2 GB, which cannot be
+ * mapped by a single {@link MappedByteBuffer}) to be read without the
+ * per-read system call and kernel-to-user copy overhead of a stream.
+ * <p/>
+ * The <code>index</code> and <code>length</code> bounds are specified in
+ * absolute file offsets and are tracked as <code>long</code> values; see
+ * {@link #getLongPosition()}. Reading from the mapped input does not modify the
+ * position of the underlying {@link FileChannel}.
+ * <p/>
+ * {@link #transferTo(WritableByteChannel)} bypasses the mapped windows and
+ * uses {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which
+ * lets the OS move the data to the channel (e.g. with <code>sendfile</code>)
+ * without it ever being copied into the Java heap.
+ * <p/>
+ * <strong>NOTE</strong>: The JDK provides no way to explicitly unmap a
+ * {@link MappedByteBuffer}; a window's mapping is released when it is garbage
+ * collected after being replaced by the next window.
+ *
+ * @param <BT>
+ *            The type of the read buffer that will contain data read from the
+ *            mapped file.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public abstract class AbstractMappedFileInput<BT> extends
+		AbstractLongInput<FileChannel, BT> implements
+		ISeekableInput<FileChannel, BT>, ITransferableInput<FileChannel, BT> {
+	public static final String WINDOW_SIZE_PROPERTY_NAME = "tbm.common.io.mapped.windowSize";
+
+	public static final int WINDOW_SIZE = Integer.getInteger(
+			WINDOW_SIZE_PROPERTY_NAME, 67108864);
+
+	protected int windowSize;
+
+	/**
+	 * The currently mapped window or <code>null</code> if no window has been
+	 * mapped yet.
+	 */
+	protected MappedByteBuffer window;
+
+	/**
+	 * Absolute file offset that <code>window</code> begins at.
+	 */
+	protected long windowStart;
+
+	public AbstractMappedFileInput(FileChannel source, long index,
+			long length, int windowSize) throws IllegalArgumentException,
+			IOException {
+		super(source, index, (length == UNSPECIFIED && source != null ? source
+				.size() - (index == UNSPECIFIED ? 0 : index) : length));
+
+		if (windowSize < 1)
+			throw new IllegalArgumentException("windowSize [" + windowSize
+					+ "] must be >= 1");
+
+		// Post-verify
+		if (endPosition > source.size())
+			throw new IllegalArgumentException("(index + length) ["
+					+ endPosition + "] must be <= source.size() ["
+					+ source.size() + "]");
+
+		this.windowSize = windowSize;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void seek(long position) throws IllegalArgumentException,
+			IOException {
+		long start = (sIndex == UNSPECIFIED ? 0 : sIndex);
+
+		if (position < start || position > endPosition)
+			throw new IllegalArgumentException("position [" + position
+					+ "] must be >= " + start + " and <= " + endPosition);
+
+		// The right window is mapped by the next read.
+		this.position = position;
+		this.sourceEmpty = false;
+	}
+
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException {
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		// Do the transfer op
+		long transferred = TransferUtils.transfer(source, position,
+				endPosition - position, target);
+
+		// Check if the file ended early (in case it was truncated).
+		if (transferred == 0 && position >= source.size())
+			sourceEmpty = true;
+
+		// Update the position
+		position += transferred;
+
+		// Return the amount actually transferred
+		return transferred;
+	}
+
+	/**
+	 * Used to get the mapped window containing the current
+	 * <code>position</code>, mapping a new window if the position has moved
+	 * outside of the current one.
+	 *
+	 * @return the mapped window with its position set to correspond with the
+	 *         current read <code>position</code> or <code>null</code> if the
+	 *         end of the underlying file has been reached.
+	 *
+	 * @throws IOException
+	 *             if the next window could not be mapped.
+	 */
+	protected ByteBuffer mapWindow() throws IOException {
+		if (window == null || position < windowStart
+				|| position >= windowStart + window.limit()) {
+			// Drop our reference so the old mapping can be collected.
+			window = null;
+
+			/*
+			 * Size the next window to the smallest of: our window size, the
+			 * data left in our bounds and the data left in the file (in case it
+			 * was truncated after we were created).
+			 */
+			long size = source.size() - position;
+
+			if (endPosition != UNSPECIFIED && (endPosition - position) < size)
+				size = endPosition - position;
+			if (size > windowSize)
+				size = windowSize;
+
+			if (size <= 0)
+				return null;
+
+			window = source.map(MapMode.READ_ONLY, position, size);
+			windowStart = position;
+		}
+
+		window.position((int) (position - windowStart));
+		return window;
+	}
+
+	/**
+	 * Implemented to simply move <code>position</code> forward; the window
+	 * containing the new position is mapped by the next read.
+	 */
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		// Don't move past the end of the file (in case it was truncated).
+		long size = source.size() - position;
+
+		if (amount > size)
+			amount = size;
+
+		// Return the amount actually skipped
+		return (amount < 0 ? 0 : amount);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,302 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Base implementation of {@link IOutput} that takes care of bounds checking,
+ * position tracking and batching small writes into a write buffer.
+ * <p/>
+ * Implementations only need to provide {@link #writeImpl(Object, int, int)},
+ * which writes data straight to the <code>destination</code>, and
+ * {@link #flushImpl()}.
+ * <p/>
+ * Batching works like {@link java.io.BufferedOutputStream}: writes smaller
+ * than the write buffer are copied into it and passed on to the
+ * <code>destination</code> in a single <code>writeImpl</code> call once it
+ * fills up; larger writes flush the write buffer and are then passed on
+ * directly without being copied. Outputs created without a write buffer pass
+ * every write on directly.
+ *
+ * @param <DT>
+ *            The type of the destination that this {@link IOutput} is
+ *            wrapping; for example {@link OutputStream}, {@link ByteBuffer},
+ *            etc.
+ * @param <BT>
+ *            The type of the primitive array buffer data is written from.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public abstract class AbstractOutput<DT, BT> implements IOutput<DT, BT> {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.output.bufferSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 8192);
+
+	/**
+	 * Position within the wrapped <code>destination</code> where the first
+	 * write operation began or {@link IOutput#UNSPECIFIED}.
+	 */
+	protected long sIndex;
+
+	/**
+	 * Maximum limit on the amount of data that can be written to the wrapped
+	 * <code>destination</code> or {@link IOutput#UNSPECIFIED}.
+	 */
+	protected long maxLength;
+
+	/**
+	 * Position within the wrapped <code>destination</code> where the next
+	 * write operation will begin, including any data waiting in the write
+	 * buffer.
+	 */
+	protected long position;
+
+	/**
+	 * Pre-computed value of <code>sIndex + maxLength</code> or
+	 * {@link IOutput#UNSPECIFIED}.
+	 */
+	protected long endPosition;
+
+	/**
+	 * The wrapped destination we write data to.
+	 */
+	protected DT destination;
+
+	/**
+	 * Write buffer small writes are batched in or <code>null</code> if this
+	 * output is unbuffered.
+	 */
+	protected BT batch;
+
+	/**
+	 * Capacity of <code>batch</code>.
+	 */
+	protected int batchSize;
+
+	/**
+	 * Amount of data currently waiting in <code>batch</code>.
+	 */
+	protected int batchLength;
+
+	/**
+	 * @param batch
+	 *            The write buffer to batch small writes in or <code>null</code>
+	 *            to pass every write on to the <code>destination</code>
+	 *            directly.
+	 */
+	public AbstractOutput(DT destination, long index, long length, BT batch)
+			throws IllegalArgumentException {
+		if (destination == null)
+			throw new IllegalArgumentException("destination cannot be null");
+		if (index < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"index ["
+							+ index
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid position in destination that is >= 0");
+		if (length < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"length ["
+							+ length
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid length of data for destination that is >= 0");
+
+		this.sIndex = index;
+		this.maxLength = length;
+
+		this.position = (index == UNSPECIFIED ? 0 : index);
+		this.endPosition = (length == UNSPECIFIED ? UNSPECIFIED : position
+				+ length);
+
+		this.destination = destination;
+
+		this.batch = batch;
+		this.batchSize = (batch == null ? 0 : lengthOf(batch));
+		this.batchLength = 0;
+	}
+
+	public DT getDestination() {
+		return destination;
+	}
+
+	public boolean isFull() {
+		return (endPosition != UNSPECIFIED && position >= endPosition);
+	}
+
+	public long getIndex() {
+		return sIndex;
+	}
+
+	public long getLength() {
+		return maxLength;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public long getRemaining() {
+		return (endPosition == UNSPECIFIED ? UNSPECIFIED : endPosition
+				- position);
+	}
+
+	public int write(BT buffer) throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return write(buffer, 0, lengthOf(buffer));
+	}
+
+	public int write(BT buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return write(buffer, index, lengthOf(buffer) - index);
+	}
+
+	public int write(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0 || (index + length) > lengthOf(buffer))
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= buffer.length [" + lengthOf(buffer) + "]");
+
+		return writeInternal(buffer, index, length);
+	}
+
+	public long write(BT[] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		long total = 0;
+
+		/*
+		 * Small buffers are gathered up in the write buffer and passed on
+		 * together; implementations with a native gathering write override
+		 * this.
+		 */
+		for (int i = 0; i < buffers.length && !isFull(); i++)
+			total += write(buffers[i]);
+
+		return total;
+	}
+
+	public void flush() throws IOException {
+		flushBatch();
+		flushImpl();
+	}
+
+	/**
+	 * Internal write operation that all other write operations funnel into
+	 * and does the following:
+	 * <ol>
+	 * <li>If sIndex/maxLength bounds are set on this output, the given length
+	 * argument is trimmed down to fit within {@link #getRemaining()} (if
+	 * needed).</li>
+	 * <li>Either batches the data in the write buffer or passes it on to
+	 * {@link #writeImpl(Object, int, int)}.</li>
+	 * <li>Updates the value of <code>position</code> by the amount of data
+	 * accepted.</li>
+	 * </ol>
+	 *
+	 * @return the amount of data accepted by this output.
+	 */
+	protected final int writeInternal(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Check if we have nothing to do first.
+		if (isFull())
+			return 0;
+
+		long remaining = getRemaining();
+
+		// Trim the length of the write if supported and necessary.
+		if (remaining != UNSPECIFIED && length > remaining)
+			length = (int) remaining;
+
+		if (length < batchSize) {
+			// Make room in the batch if necessary, then batch the data.
+			if (length > batchSize - batchLength)
+				flushBatch();
+
+			System.arraycopy(buffer, index, batch, batchLength, length);
+			batchLength += length;
+		} else {
+			// Keep the data in-order, then write directly.
+			flushBatch();
+			writeImpl(buffer, index, length);
+		}
+
+		// Update the position
+		position += length;
+
+		// Return the amount of data accepted to caller
+		return length;
+	}
+
+	/**
+	 * Used to pass any data waiting in the write buffer on to the
+	 * <code>destination</code>.
+	 */
+	protected void flushBatch() throws IOException {
+		if (batchLength > 0) {
+			writeImpl(batch, 0, batchLength);
+			batchLength = 0;
+		}
+	}
+
+	/**
+	 * Used to get the length of the given buffer; used for bounds checking as
+	 * the buffer type is generic.
+	 */
+	protected abstract int lengthOf(BT buffer);
+
+	/**
+	 * Used to perform the actual "write" logic based on the specific type of
+	 * <code>destination</code> and <code>buffer</code> this {@link IOutput}
+	 * supports.
+	 * <p/>
+	 * This operation must write <em>all</em> <code>length</code> amount of
+	 * data from the buffer, starting at <code>index</code>, to the
+	 * <code>destination</code>.
+	 * <p/>
+	 * <strong>NOTE</strong>: By the time this method is called, the buffer
+	 * bounds and the bounds of this output have already been checked.
+	 *
+	 * @throws IOException
+	 *             if any problem arises with writing content to the
+	 *             underlying <code>destination</code>.
+	 */
+	protected abstract void writeImpl(BT buffer, int index, int length)
+			throws IOException;
+
+	/**
+	 * Used to flush the <code>destination</code> itself, if supported. Called
+	 * after the write buffer has been written out.
+	 */
+	protected abstract void flushImpl() throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,256 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AsynchronousFileChannel} source with <code>byte[]</code> buffer.
+ * <p/>
+ * Every <code>readAsync</code> operation claims its range of the file up
+ * front and reads it with a positional read of the channel, so any number of
+ * reads of the same input can be in flight at once, from any number of
+ * threads. The reads are completed, and the handlers called, by the thread
+ * pool the channel was opened with; handlers should not block.
+ * <p/>
+ * A read only completes once its whole range has been read (the channel is
+ * asked again after a short read), or with less data if the end of the file
+ * is hit first (in case it was truncated after this input was created).
+ * <p/>
+ * The <code>index</code> and <code>length</code> bounds are specified in
+ * absolute file offsets; without a <code>length</code> the bounds extend to
+ * the size of the file when this input is created.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class AsyncFileInput implements
+		IAsyncInput<AsynchronousFileChannel, byte[]> {
+	protected AsynchronousFileChannel source;
+	protected long sIndex;
+	protected long maxLength;
+	protected long endPosition;
+
+	/**
+	 * Start of the range of the file the next <code>readAsync</code>
+	 * operation claims.
+	 */
+	protected AtomicLong position;
+
+	public AsyncFileInput(AsynchronousFileChannel source)
+			throws IllegalArgumentException, IOException {
+		this(source, 0, UNSPECIFIED);
+	}
+
+	public AsyncFileInput(AsynchronousFileChannel source, long index,
+			long length) throws IllegalArgumentException, IOException {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (index < 0)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0");
+		if (length < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"length ["
+							+ length
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid length of data from source that is >= 0");
+
+		this.source = source;
+		this.sIndex = index;
+		this.maxLength = (length == UNSPECIFIED ? Math.max(0, source.size()
+				- index) : length);
+		this.endPosition = index + maxLength;
+		this.position = new AtomicLong(index);
+	}
+
+	public AsynchronousFileChannel getSource() {
+		return source;
+	}
+
+	public boolean isEmpty() {
+		return (position.get() >= endPosition);
+	}
+
+	public long getLongIndex() {
+		return sIndex;
+	}
+
+	public long getLongLength() {
+		return maxLength;
+	}
+
+	public long getLongPosition() {
+		return position.get();
+	}
+
+	public long getLongRemaining() {
+		return endPosition - position.get();
+	}
+
+	public Future<Integer> readAsync(byte[] buffer, int index, int length)
+			throws IllegalArgumentException {
+		ReadFuture future = new ReadFuture();
+		readAsync(buffer, index, length, null, future);
+		return future;
+	}
+
+	public <A> void readAsync(byte[] buffer, int index, int length,
+			A attachment, CompletionHandler<Integer, ? super A> handler)
+			throws IllegalArgumentException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (handler == null)
+			throw new IllegalArgumentException("handler cannot be null");
+		if (index < 0 || length < 0 || (index + length) > buffer.length)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= buffer.length [" + buffer.length + "]");
+
+		long start;
+		int amount;
+
+		// Claim our range, trimming the length of the read if necessary.
+		do {
+			start = position.get();
+			amount = (int) Math.min(length, endPosition - start);
+		} while (amount > 0 && !position.compareAndSet(start, start + amount));
+
+		// Check if we have nothing to do.
+		if (amount <= 0) {
+			handler.completed(Integer.valueOf(0), attachment);
+			return;
+		}
+
+		// Do the read op
+		ByteBuffer target = ByteBuffer.wrap(buffer, index, amount);
+		source.read(target, start, null, new ReadOp<A>(target, start,
+				attachment, handler));
+	}
+
+	/**
+	 * Handler used to complete the range claimed by a single
+	 * <code>readAsync</code> operation, re-issuing the read after a short read
+	 * until the range is filled or the end of the file is hit.
+	 */
+	protected class ReadOp<A> implements CompletionHandler<Integer, Void> {
+		protected ByteBuffer target;
+		protected long start;
+		protected int begin;
+		protected A attachment;
+		protected CompletionHandler<Integer, ? super A> handler;
+
+		protected ReadOp(ByteBuffer target, long start, A attachment,
+				CompletionHandler<Integer, ? super A> handler) {
+			this.target = target;
+			this.start = start;
+			this.begin = target.position();
+			this.attachment = attachment;
+			this.handler = handler;
+		}
+
+		public void completed(Integer result, Void ignored) {
+			int read = target.position() - begin;
+
+			// Done if the range is full or we hit the end of the file.
+			if (result.intValue() < 0 || !target.hasRemaining()) {
+				handler.completed(Integer.valueOf(read), attachment);
+				return;
+			}
+
+			try {
+				source.read(target, start + read, null, this);
+			} catch (RuntimeException e) {
+				// e.g. the channel was closed in the meantime.
+				handler.failed(e, attachment);
+			}
+		}
+
+		public void failed(Throwable exc, Void ignored) {
+			handler.failed(exc, attachment);
+		}
+	}
+
+	/**
+	 * {@link Future} handed out by <code>readAsync</code>; completed by the
+	 * read it is handed to as a {@link CompletionHandler}.
+	 */
+	protected static class ReadFuture implements Future<Integer>,
+			CompletionHandler<Integer, Object> {
+		private CountDownLatch done = new CountDownLatch(1);
+		private volatile Integer result;
+		private volatile Throwable failure;
+
+		public void completed(Integer result, Object attachment) {
+			this.result = result;
+			done.countDown();
+		}
+
+		public void failed(Throwable exc, Object attachment) {
+			this.failure = exc;
+			done.countDown();
+		}
+
+		/**
+		 * Reads cannot be cancelled once issued; always returns
+		 * <code>false</code>.
+		 */
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		public boolean isCancelled() {
+			return false;
+		}
+
+		public boolean isDone() {
+			return (done.getCount() == 0);
+		}
+
+		public Integer get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		public Integer get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			if (!done.await(timeout, unit))
+				throw new TimeoutException("Read did not complete within "
+						+ timeout + " " + unit);
+
+			return getResult();
+		}
+
+		private Integer getResult() throws ExecutionException {
+			if (failure != null)
+				throw new ExecutionException(failure);
+
+			return result;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+import com.thebuzzmedia.common.util.ArrayUtils;
+
+/**
+ * <code>byte[]</code> destination with <code>byte[]</code> buffer.
+ * <p/>
+ * When no <code>length</code> is given the destination array is grown as
+ * needed (doubling in size each time) so the output can hold any amount of
+ * data; use {@link #toByteArray()} to get a trimmed copy of what was written
+ * or {@link #getDestination()} to access the backing array directly.
+ * <p/>
+ * Writes are copied straight into the destination array, so this output never
+ * batches data and {@link #flush()} does nothing.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ByteArrayOutput extends AbstractOutput<byte[], byte[]> {
+	public static final int DEFAULT_CAPACITY = 256;
+
+	public static final float GROWTH_FACTOR = 2f;
+
+	public ByteArrayOutput() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public ByteArrayOutput(int initialCapacity)
+			throws IllegalArgumentException {
+		this(newDestination(initialCapacity), 0, UNSPECIFIED);
+	}
+
+	/**
+	 * Used to write into the given array, starting at <code>index</code>. If
+	 * <code>length</code> is {@link #UNSPECIFIED}, the array will be grown as
+	 * needed and {@link #getDestination()} will return the new array.
+	 */
+	public ByteArrayOutput(byte[] destination, int index, int length)
+			throws IllegalArgumentException {
+		super(destination, index, length, null);
+
+		// Post-verify
+		if (index > destination.length
+				|| (length != UNSPECIFIED && (index + length) > destination.length))
+			throw new IllegalArgumentException("index [" + index
+					+ "] and (index + length) [" + (index + length)
+					+ "] must be <= destination.length ["
+					+ destination.length + "]");
+	}
+
+	/**
+	 * @return a copy of the data written to this output.
+	 */
+	public byte[] toByteArray() {
+		int start = (sIndex == UNSPECIFIED ? 0 : (int) sIndex);
+		byte[] result = new byte[(int) position - start];
+
+		System.arraycopy(destination, start, result, 0, result.length);
+		return result;
+	}
+
+	@Override
+	protected int lengthOf(byte[] buffer) {
+		return buffer.length;
+	}
+
+	@Override
+	protected void writeImpl(byte[] buffer, int index, int length)
+			throws IOException {
+		// We are unbuffered, so position is always where this data goes.
+		int end = (int) position + length;
+
+		if (end > destination.length)
+			destination = ArrayUtils.ensureCapacity(destination, end,
+					GROWTH_FACTOR);
+
+		System.arraycopy(buffer, index, destination, (int) position, length);
+	}
+
+	@Override
+	protected void flushImpl() throws IOException {
+		// no-op
+	}
+
+	private static byte[] newDestination(int initialCapacity)
+			throws IllegalArgumentException {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("initialCapacity ["
+					+ initialCapacity + "] must be >= 0");
+
+		return new byte[initialCapacity];
+	}
+}
\ No newline at end of file
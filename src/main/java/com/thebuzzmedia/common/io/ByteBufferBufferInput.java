@@ -0,0 +1,123 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link ByteBuffer} source with {@link ByteBuffer} buffer. Data is moved with
+ * {@link ByteBuffer#put(ByteBuffer)}, so direct-to-direct transfers never pass
+ * through the Java heap.
+ * <p/>
+ * See {@link MappedFileBufferInput} for how <code>index</code> and
+ * <code>length</code> are applied to {@link ByteBuffer} buffers.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ByteBufferBufferInput extends AbstractInput<ByteBuffer, ByteBuffer>
+		implements ITransferableInput<ByteBuffer, ByteBuffer> {
+	public ByteBufferBufferInput(ByteBuffer source)
+			throws IllegalArgumentException {
+		this(source, source.remaining());
+	}
+
+	public ByteBufferBufferInput(ByteBuffer source, int length)
+			throws IllegalArgumentException {
+		super(source, 0, length);
+
+		// Post-verify
+		if (length > source.remaining())
+			throw new IllegalArgumentException("length [" + length
+					+ "] must be <= source.remaining() [" + source.remaining()
+					+ "]");
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, buffer.position(), buffer.remaining());
+	}
+
+	public int read(ByteBuffer buffer, int index)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.limit() - index);
+	}
+
+	/**
+	 * Overridden to move the position of the <code>source</code> buffer by the
+	 * same amount.
+	 */
+	@Override
+	protected void reposition(int position) {
+		source.position(source.position() + (position - this.position));
+		super.reposition(position);
+	}
+
+	/**
+	 * Implemented to write the remaining data straight from the
+	 * <code>source</code> buffer to the channel.
+	 */
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException {
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		int remaining = (endPosition == UNSPECIFIED ? source.remaining()
+				: endPosition - position);
+
+		// Do the write op, moving the source past the data written.
+		int written = TransferUtils.write(source, remaining, target);
+
+		// Update the position
+		position += written;
+
+		// Return the amount actually written
+		return written;
+	}
+
+	@Override
+	protected int readImpl(ByteBuffer buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.limit())
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.limit() ["
+					+ buffer.limit() + "]");
+
+		// Do the read op, bounding the source to the amount we want.
+		int limit = source.limit();
+		source.limit(source.position() + length);
+		buffer.position(index);
+		buffer.put(source);
+		source.limit(limit);
+
+		// Return the amount actually read
+		return length;
+	}
+}
\ No newline at end of file
@@ -17,12 +17,15 @@ package com.thebuzzmedia.common.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
-public class ByteBufferInput extends AbstractInput<ByteBuffer, byte[]> {
+public class ByteBufferInput extends AbstractInput<ByteBuffer, byte[]>
+		implements ITransferableInput<ByteBuffer, byte[]>,
+		IScatteringInput<ByteBuffer, byte[]> {
 	public ByteBufferInput(ByteBuffer source) throws IllegalArgumentException {
 		this(source, source.remaining());
 	}
@@ -43,7 +46,84 @@ public class ByteBufferInput extends AbstractInput<ByteBuffer, byte[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
+	}
+
+	/**
+	 * Overridden to move the position of the <code>source</code> buffer by the
+	 * same amount.
+	 */
+	@Override
+	protected void reposition(int position) {
+		source.position(source.position() + (position - this.position));
+		super.reposition(position);
+	}
+
+	/**
+	 * Implemented to copy straight from the <code>source</code> buffer into each
+	 * buffer in turn, checking the bounds of this input only once.
+	 */
+	public long read(byte[][] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (buffers[i] == null)
+				throw new IllegalArgumentException("buffers[" + i
+						+ "] cannot be null");
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		int remaining = (endPosition == UNSPECIFIED ? source.remaining()
+				: endPosition - position);
+		int total = 0;
+
+		// Do the read op, filling each buffer in turn.
+		for (int i = 0; i < buffers.length && remaining > 0; i++) {
+			byte[] buffer = buffers[i];
+			int length = (buffer.length > remaining ? remaining
+					: buffer.length);
+
+			source.get(buffer, 0, length);
+			total += length;
+			remaining -= length;
+		}
+
+		// Update the position
+		position += total;
+
+		// Return the amount actually read
+		return total;
+	}
+
+	/**
+	 * Implemented to write the remaining data straight from the
+	 * <code>source</code> buffer to the channel.
+	 */
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException {
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		int remaining = (endPosition == UNSPECIFIED ? source.remaining()
+				: endPosition - position);
+
+		// Do the write op, moving the source past the data written.
+		int written = TransferUtils.write(source, remaining, target);
+
+		// Update the position
+		position += written;
+
+		// Return the amount actually written
+		return written;
 	}
 
 	@Override
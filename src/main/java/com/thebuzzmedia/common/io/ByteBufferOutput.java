@@ -0,0 +1,63 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ByteBuffer} destination with <code>byte[]</code> buffer.
+ * <p/>
+ * Data is put into the destination starting at its current
+ * <code>position</code>. Writes are copied straight into the destination, so
+ * this output never batches data and {@link #flush()} does nothing.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ByteBufferOutput extends AbstractOutput<ByteBuffer, byte[]> {
+	public ByteBufferOutput(ByteBuffer destination)
+			throws IllegalArgumentException {
+		this(destination, destination.remaining());
+	}
+
+	public ByteBufferOutput(ByteBuffer destination, int length)
+			throws IllegalArgumentException {
+		super(destination, 0, length, null);
+
+		// Post-verify
+		if (length > destination.remaining())
+			throw new IllegalArgumentException("length [" + length
+					+ "] must be <= destination.remaining() ["
+					+ destination.remaining() + "]");
+	}
+
+	@Override
+	protected int lengthOf(byte[] buffer) {
+		return buffer.length;
+	}
+
+	@Override
+	protected void writeImpl(byte[] buffer, int index, int length)
+			throws IOException {
+		destination.put(buffer, index, length);
+	}
+
+	@Override
+	protected void flushImpl() throws IOException {
+		// no-op
+	}
+}
\ No newline at end of file
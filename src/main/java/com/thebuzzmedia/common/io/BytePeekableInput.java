@@ -0,0 +1,84 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+/**
+ * {@link PeekableInput} over a <code>byte[]</code> {@link IInput}.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class BytePeekableInput<ST> extends PeekableInput<ST, byte[]> {
+	public BytePeekableInput(IInput<ST, byte[]> source)
+			throws IllegalArgumentException {
+		this(source, BUFFER_SIZE);
+	}
+
+	public BytePeekableInput(IInput<ST, byte[]> source, int bufferSize)
+			throws IllegalArgumentException {
+		super(source, bufferSize);
+	}
+
+	/**
+	 * Used to look at a single upcoming byte without consuming it.
+	 *
+	 * @param offset
+	 *            How far ahead of the current position to look; <code>0</code>
+	 *            is the byte the next <code>read</code> operation will return.
+	 *
+	 * @return the byte (as an unsigned value, <code>0</code> to
+	 *         <code>255</code>) or <code>-1</code> if the input ends (or has
+	 *         no more data available right now) before it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>offset</code> is &lt; 0.
+	 * @throws IOException
+	 *             if any error occurs while reading from the wrapped input.
+	 */
+	public int peek(int offset) throws IllegalArgumentException, IOException {
+		if (offset < 0)
+			throw new IllegalArgumentException("offset [" + offset
+					+ "] must be >= 0");
+
+		if (ensureAhead(offset + 1) <= offset)
+			return -1;
+
+		return ring[(int) ((position + offset) % capacity)] & 0xFF;
+	}
+
+	public int read(byte[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected byte[] newBuffer(int size) {
+		return new byte[size];
+	}
+
+	@Override
+	protected int lengthOf(byte[] buffer) {
+		return buffer.length;
+	}
+}
\ No newline at end of file
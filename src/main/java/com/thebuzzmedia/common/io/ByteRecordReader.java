@@ -0,0 +1,226 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+import com.thebuzzmedia.common.util.ArrayUtils;
+
+/**
+ * Class used to split the data read from a <code>byte[]</code> {@link IInput}
+ * into records separated by a delimiter (e.g. lines separated by
+ * <code>'\n'</code>) without copying or allocating anything per record.
+ * <p/>
+ * Each call to {@link #next()} finds the next record and describes it as a
+ * slice ({@link #getBuffer()}, {@link #getOffset()}, {@link #getLength()}) of
+ * the reader's internal read buffer; the delimiter itself is not part of the
+ * record. The last record of the input does not need to be followed by a
+ * delimiter.
+ * <p/>
+ * The read buffer is re-used between records; a record that is split across
+ * two reads of the wrapped input is moved to the front of the buffer (and the
+ * buffer is grown if the record does not fit in it) before more data is read
+ * after it. Because of this, a record's slice is only valid until the next call
+ * to {@link #next()}; callers that need to hold onto a record must copy it.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ByteRecordReader {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.record.bufferSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 8192);
+
+	/**
+	 * Delimiter used when none is given: a single <code>'\n'</code>.
+	 */
+	public static final byte[] DEFAULT_DELIMITER = { '\n' };
+
+	protected IInput<?, byte[]> input;
+	protected byte[] delimiter;
+
+	/**
+	 * Read buffer that holds the data between <code>start</code> and
+	 * <code>end</code> that has been read but not handed out as a record yet.
+	 */
+	protected byte[] buffer;
+	protected int start;
+	protected int end;
+
+	/**
+	 * Index in <code>buffer</code> to resume searching for the delimiter from,
+	 * so data that was already searched isn't searched again after a refill.
+	 */
+	protected int searchFrom;
+
+	protected int recordOffset;
+	protected int recordLength;
+
+	protected boolean endOfInput;
+
+	public ByteRecordReader(IInput<?, byte[]> input)
+			throws IllegalArgumentException {
+		this(input, DEFAULT_DELIMITER, BUFFER_SIZE);
+	}
+
+	public ByteRecordReader(IInput<?, byte[]> input, byte[] delimiter)
+			throws IllegalArgumentException {
+		this(input, delimiter, BUFFER_SIZE);
+	}
+
+	public ByteRecordReader(IInput<?, byte[]> input, byte[] delimiter,
+			int bufferSize) throws IllegalArgumentException {
+		if (input == null)
+			throw new IllegalArgumentException("input cannot be null");
+		if (delimiter == null || delimiter.length == 0)
+			throw new IllegalArgumentException(
+					"delimiter cannot be null or empty");
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= 1");
+
+		this.input = input;
+		this.delimiter = delimiter;
+
+		buffer = new byte[bufferSize];
+	}
+
+	public IInput<?, byte[]> getInput() {
+		return input;
+	}
+
+	public byte[] getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Used to determine if this reader is empty; that is the wrapped input is
+	 * empty and every record read from it has been handed out.
+	 *
+	 * @return <code>true</code> if calls to {@link #next()} will never find
+	 *         another record, otherwise returns <code>false</code>.
+	 */
+	public boolean isEmpty() {
+		return (endOfInput && start == end);
+	}
+
+	/**
+	 * @return the buffer containing the current record. This is the reader's
+	 *         internal read buffer and can change (grow) between records.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the index in {@link #getBuffer()} where the current record
+	 *         begins.
+	 */
+	public int getOffset() {
+		return recordOffset;
+	}
+
+	/**
+	 * @return the length of the current record, not including its delimiter.
+	 */
+	public int getLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Used to find the next record, reading more data from the wrapped input
+	 * as needed.
+	 * <p/>
+	 * If the wrapped input is non-blocking and has no data available yet, this
+	 * method returns <code>false</code> while {@link #isEmpty()} continues to
+	 * return <code>false</code>; calling it again later resumes where it left
+	 * off.
+	 *
+	 * @return <code>true</code> if a record was found and can be accessed with
+	 *         {@link #getBuffer()}, {@link #getOffset()} and
+	 *         {@link #getLength()}, otherwise returns <code>false</code>.
+	 *
+	 * @throws IOException
+	 *             if any error occurs while reading from the wrapped input.
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			// Look for the delimiter in the data we haven't searched yet.
+			int dIndex = indexOfDelimiter(searchFrom, end - searchFrom);
+
+			if (dIndex != ArrayUtils.INVALID_INDEX) {
+				recordOffset = start;
+				recordLength = dIndex - start;
+
+				start = searchFrom = dIndex + delimiter.length;
+				return true;
+			}
+
+			/*
+			 * The tail of the data could be the start of a delimiter, so we
+			 * resume searching just before it once more data is read.
+			 */
+			searchFrom = Math.max(start, end - delimiter.length + 1);
+
+			// Hand out whatever is left as the last record.
+			if (endOfInput) {
+				if (start == end)
+					return false;
+
+				recordOffset = start;
+				recordLength = end - start;
+
+				start = searchFrom = end;
+				return true;
+			}
+
+			// Move the partial record to the front of the buffer.
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, end - start);
+
+				end -= start;
+				searchFrom -= start;
+				start = 0;
+			}
+
+			// Grow the buffer if the partial record fills it.
+			if (end == buffer.length)
+				buffer = ArrayUtils.ensureCapacity(buffer, buffer.length + 1, 2);
+
+			int read = input.read(buffer, end, buffer.length - end);
+
+			if (read == 0) {
+				if (input.isEmpty())
+					endOfInput = true;
+				else
+					return false;
+			}
+
+			end += read;
+		}
+	}
+
+	protected int indexOfDelimiter(int index, int length) {
+		if (delimiter.length == 1)
+			return ArrayUtils.indexOfNoCheck(delimiter[0], buffer, index,
+					length);
+		else
+			return ArrayUtils.indexOfNoCheck(delimiter, buffer, index, length);
+	}
+}
\ No newline at end of file
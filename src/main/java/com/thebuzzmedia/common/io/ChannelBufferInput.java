@@ -0,0 +1,192 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * {@link ReadableByteChannel} source with {@link ByteBuffer} buffer.
+ * <p/>
+ * Reading a {@link FileChannel} or {@link SocketChannel} into a direct
+ * {@link ByteBuffer} lets the data be handed straight to another channel
+ * without ever being copied onto the Java heap.
+ * <p/>
+ * Non-blocking channels are supported; see {@link ChannelInput}.
+ * <p/>
+ * Scattering reads ({@link #read(ByteBuffer[])}) of a
+ * {@link ScatteringByteChannel} hand the caller's buffers straight to
+ * {@link ScatteringByteChannel#read(ByteBuffer[])}.
+ * <p/>
+ * See {@link MappedFileBufferInput} for how <code>index</code> and
+ * <code>length</code> are applied to {@link ByteBuffer} buffers.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ChannelBufferInput extends
+		AbstractLongInput<ReadableByteChannel, ByteBuffer> implements
+		IScatteringInput<ReadableByteChannel, ByteBuffer> {
+	/**
+	 * Scratch buffer skipped data is read into, for channels that aren't
+	 * files; allocated the first time it's needed.
+	 */
+	protected ByteBuffer skipBuffer;
+
+	public ChannelBufferInput(ReadableByteChannel source)
+			throws IllegalArgumentException {
+		this(source, UNSPECIFIED);
+	}
+
+	public ChannelBufferInput(ReadableByteChannel source, long length)
+			throws IllegalArgumentException {
+		super(source, UNSPECIFIED, length);
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, buffer.position(), buffer.remaining());
+	}
+
+	public int read(ByteBuffer buffer, int index)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.limit() - index);
+	}
+
+	public long read(ByteBuffer[] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (buffers[i] == null)
+				throw new IllegalArgumentException("buffers[" + i
+						+ "] cannot be null");
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		if (!(source instanceof ScatteringByteChannel)) {
+			long total = 0;
+
+			// Fill each buffer in turn, stopping at the first short read.
+			for (int i = 0; i < buffers.length; i++) {
+				int length = buffers[i].remaining();
+				int read = read(buffers[i]);
+				total += read;
+
+				if (read < length)
+					break;
+			}
+
+			return total;
+		}
+
+		long remaining = getLongRemaining();
+		int[] limits = null;
+
+		// Bound the buffers to the amount we want (if necessary).
+		if (remaining != UNSPECIFIED) {
+			for (int i = 0; i < buffers.length; i++) {
+				int length = buffers[i].remaining();
+
+				if (length > remaining) {
+					if (limits == null)
+						limits = new int[buffers.length];
+
+					limits[i] = buffers[i].limit();
+					buffers[i].limit(buffers[i].position() + (int) remaining);
+					length = (int) remaining;
+				}
+
+				remaining -= length;
+			}
+		}
+
+		// Do the read op
+		long read;
+
+		try {
+			read = ((ScatteringByteChannel) source).read(buffers);
+		} finally {
+			if (limits != null) {
+				for (int i = 0; i < buffers.length; i++) {
+					if (limits[i] > 0)
+						buffers[i].limit(limits[i]);
+				}
+			}
+		}
+
+		// Check if source is empty
+		if (read < 0) {
+			sourceEmpty = true;
+			return 0;
+		}
+
+		// Update the position
+		position += read;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	@Override
+	protected int readImpl(ByteBuffer buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.limit())
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.limit() ["
+					+ buffer.limit() + "]");
+
+		// Do the read op, bounding the buffer to the amount we want.
+		int limit = buffer.limit();
+		buffer.limit(index + length);
+		buffer.position(index);
+		length = source.read(buffer);
+		buffer.limit(limit);
+
+		// Adjust EOF marker to meet our API design (return 0)
+		if (length < 0)
+			length = 0;
+		else if (length == 0)
+			length = NO_DATA;
+
+		// Return the amount actually read
+		return length;
+	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		if (skipBuffer == null && !(source instanceof FileChannel))
+			skipBuffer = ByteBuffer.allocate(ChannelInput.SKIP_BUFFER_SIZE);
+
+		return ChannelInput.skip(source, amount, skipBuffer);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link ReadableByteChannel} source with <code>byte[]</code> buffer.
+ * <p/>
+ * Non-blocking channels (e.g. a {@link SocketChannel} registered with a
+ * {@link Selector}) are supported directly: when the channel has no data
+ * available, <code>read</code> returns <code>0</code> and the input is
+ * <strong>not</strong> considered empty. The input only becomes empty once
+ * the channel reports end-of-stream, so a selector-driven reader looks like:
+ *
+ * <pre>
+ * int read = input.read(buffer);
+ * 
+ * if (read &gt; 0)
+ * 	process(buffer, read);
+ * else if (input.isEmpty())
+ * 	close(key);
+ * // otherwise wait for the next OP_READ
+ * </pre>
+ * 
+ * When the channel is a {@link FileChannel},
+ * {@link #transferTo(WritableByteChannel)} uses
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} so the OS
+ * can move the data to the target channel directly; any other channel is
+ * copied through a pooled buffer by {@link TransferUtils}, which keeps the
+ * data a non-blocking channel didn't accept yet for the next transfer.
+ * <p/>
+ * {@link FileChannelInput} wraps a {@link FileChannel} the same way and can
+ * also seek within it.
+ * <p/>
+ * Scattering reads ({@link #read(byte[][])}) of a
+ * {@link ScatteringByteChannel} (e.g. a {@link FileChannel} or
+ * {@link SocketChannel}) are done with a single
+ * {@link ScatteringByteChannel#read(ByteBuffer[])} call.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ChannelInput extends AbstractLongInput<ReadableByteChannel, byte[]>
+		implements ITransferableInput<ReadableByteChannel, byte[]>,
+		IScatteringInput<ReadableByteChannel, byte[]> {
+	/**
+	 * Size of the scratch buffer used to skip data in channels that can't
+	 * simply be repositioned.
+	 */
+	protected static final int SKIP_BUFFER_SIZE = 8192;
+
+	/**
+	 * Wrapper around the last buffer read into, re-used when the caller reads
+	 * into the same array again to avoid allocating a wrapper on every read.
+	 */
+	protected ByteBuffer wrapper;
+
+	/**
+	 * Wrappers around the last buffers scatter-read into, re-used when the
+	 * caller reads into the same arrays again.
+	 */
+	protected ByteBuffer[] wrappers;
+
+	/**
+	 * Scratch buffer skipped data is read into, for channels that aren't
+	 * files; allocated the first time it's needed.
+	 */
+	protected ByteBuffer skipBuffer;
+
+	/**
+	 * Data read for a transfer to a non-blocking channel that hasn't accepted
+	 * it yet, when the channel isn't a file.
+	 */
+	protected TransferUtils.Carry carry = new TransferUtils.Carry();
+
+	public ChannelInput(ReadableByteChannel source)
+			throws IllegalArgumentException {
+		this(source, UNSPECIFIED);
+	}
+
+	public ChannelInput(ReadableByteChannel source, long length)
+			throws IllegalArgumentException {
+		super(source, UNSPECIFIED, length);
+	}
+
+	public int read(byte[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	public long read(byte[][] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (buffers[i] == null)
+				throw new IllegalArgumentException("buffers[" + i
+						+ "] cannot be null");
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		// Data carried over from a transfer must be handed out first.
+		if (!(source instanceof ScatteringByteChannel)
+				|| carry.remaining() > 0) {
+			long total = 0;
+
+			// Fill each buffer in turn, stopping at the first short read.
+			for (int i = 0; i < buffers.length; i++) {
+				int read = readInternal(buffers[i], 0, buffers[i].length);
+				total += read;
+
+				if (read < buffers[i].length)
+					break;
+			}
+
+			return total;
+		}
+
+		// Re-use our wrappers if possible.
+		if (wrappers == null || wrappers.length != buffers.length)
+			wrappers = new ByteBuffer[buffers.length];
+
+		long remaining = getLongRemaining();
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (wrappers[i] == null || wrappers[i].array() != buffers[i])
+				wrappers[i] = ByteBuffer.wrap(buffers[i]);
+			else
+				wrappers[i].clear();
+
+			// Bound the wrappers to the amount we want.
+			if (remaining != UNSPECIFIED) {
+				int length = (int) Math.min(remaining, buffers[i].length);
+				wrappers[i].limit(length);
+				remaining -= length;
+			}
+		}
+
+		// Do the read op
+		long read = ((ScatteringByteChannel) source).read(wrappers);
+
+		// Check if source is empty
+		if (read < 0) {
+			sourceEmpty = true;
+			return 0;
+		}
+
+		// Update the position
+		position += read;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	/**
+	 * Overridden to also count the data carried over from a transfer to a
+	 * channel that stopped accepting it.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return (carry.remaining() == 0 && super.isEmpty());
+	}
+
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException {
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		if (!(source instanceof FileChannel)) {
+			// Write what the channel didn't accept last time first.
+			long written = carry.flush(target);
+			position += written;
+
+			if (carry.remaining() > 0)
+				return written;
+
+			written += TransferUtils.copy(this, target, carry);
+
+			// Only move past the data the channel actually accepted.
+			position -= carry.remaining();
+
+			return written;
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		FileChannel file = (FileChannel) source;
+
+		// Do the transfer op
+		long transferred = TransferUtils.transfer(file, getLongRemaining(),
+				target);
+
+		// Check if source is empty
+		if (file.position() >= file.size())
+			sourceEmpty = true;
+
+		// Update the position
+		position += transferred;
+
+		// Return the amount actually transferred
+		return transferred;
+	}
+
+	@Override
+	protected int readImpl(byte[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		// Hand out the data carried over from a transfer first.
+		if (carry.remaining() > 0)
+			return carry.get(buffer, index, length);
+
+		// Re-use our wrapper if possible.
+		if (wrapper == null || wrapper.array() != buffer)
+			wrapper = ByteBuffer.wrap(buffer);
+
+		wrapper.limit(index + length);
+		wrapper.position(index);
+
+		// Do the read op, re-use length variable.
+		length = source.read(wrapper);
+
+		// Adjust EOF marker to meet our API design (return 0)
+		if (length < 0)
+			length = 0;
+		else if (length == 0)
+			length = NO_DATA;
+
+		// Return the amount actually read
+		return length;
+	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		if (carry.remaining() > 0)
+			return carry.skip(amount);
+
+		if (skipBuffer == null && !(source instanceof FileChannel))
+			skipBuffer = ByteBuffer.allocate(SKIP_BUFFER_SIZE);
+
+		return skip(source, amount, skipBuffer);
+	}
+
+	/**
+	 * Used to skip over data in the given channel; files simply have their
+	 * position moved, other channels are read into the given scratch buffer.
+	 *
+	 * @return the amount of data skipped, <code>0</code> if the end of the
+	 *         channel was hit or {@link #NO_DATA} if a non-blocking channel has
+	 *         no data available right now.
+	 */
+	static long skip(ReadableByteChannel channel, long amount,
+			ByteBuffer scratch) throws IOException {
+		if (channel instanceof FileChannel) {
+			FileChannel file = (FileChannel) channel;
+			long filePosition = file.position();
+
+			// Don't move past the end of the file.
+			if (amount > file.size() - filePosition)
+				amount = file.size() - filePosition;
+
+			if (amount <= 0)
+				return 0;
+
+			file.position(filePosition + amount);
+			return amount;
+		}
+
+		scratch.clear();
+
+		if (amount < scratch.capacity())
+			scratch.limit((int) amount);
+
+		int read = channel.read(scratch);
+
+		// Adjust EOF marker to meet our API design (return 0)
+		if (read < 0)
+			read = 0;
+		else if (read == 0)
+			read = NO_DATA;
+
+		return read;
+	}
+}
\ No newline at end of file
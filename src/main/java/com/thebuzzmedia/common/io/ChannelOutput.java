@@ -0,0 +1,179 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link WritableByteChannel} destination with <code>byte[]</code> buffer.
+ * <p/>
+ * Small writes are batched in a write buffer of <code>bufferSize</code>
+ * (default {@link #BUFFER_SIZE}) before being written to the
+ * <code>destination</code>. When the destination is a
+ * {@link GatheringByteChannel}, {@link #write(byte[][])} hands all the
+ * buffers to it in a single gathering write.
+ * <p/>
+ * Writes block until all the data has been written, so only blocking
+ * destinations are supported; a {@link SelectableChannel} in non-blocking mode
+ * is rejected. A destination that momentarily accepts nothing is retried
+ * every {@link #RETRY_PARK_NANOS} instead of in a busy loop.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ChannelOutput extends AbstractOutput<WritableByteChannel, byte[]> {
+	/**
+	 * How long to wait before retrying a destination that accepted nothing.
+	 */
+	public static final long RETRY_PARK_NANOS = 1000000;
+
+	/**
+	 * Wrapper around the last buffer written from, re-used when the caller
+	 * writes from the same array again.
+	 */
+	protected ByteBuffer wrapper;
+
+	/**
+	 * Wrappers around the last buffers gather-written from, re-used when the
+	 * caller writes from the same arrays again.
+	 */
+	protected ByteBuffer[] wrappers;
+
+	public ChannelOutput(WritableByteChannel destination)
+			throws IllegalArgumentException {
+		this(destination, UNSPECIFIED, BUFFER_SIZE);
+	}
+
+	public ChannelOutput(WritableByteChannel destination, long length)
+			throws IllegalArgumentException {
+		this(destination, length, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            The size of the write buffer or <code>0</code> to pass every
+	 *            write on to the <code>destination</code> directly.
+	 */
+	public ChannelOutput(WritableByteChannel destination, long length,
+			int bufferSize) throws IllegalArgumentException {
+		super(destination, UNSPECIFIED, length,
+				(bufferSize > 0 ? new byte[bufferSize] : null));
+
+		if (bufferSize < 0)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= 0");
+		if (destination instanceof SelectableChannel
+				&& !((SelectableChannel) destination).isBlocking())
+			throw new IllegalArgumentException(
+					"destination cannot be a non-blocking channel");
+	}
+
+	@Override
+	public long write(byte[][] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		// Bounded outputs may need to trim; let the default logic handle it.
+		if (!(destination instanceof GatheringByteChannel)
+				|| endPosition != UNSPECIFIED)
+			return super.write(buffers);
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (buffers[i] == null)
+				throw new IllegalArgumentException("buffers[" + i
+						+ "] cannot be null");
+		}
+
+		// Re-use our wrappers if possible.
+		if (wrappers == null || wrappers.length != buffers.length)
+			wrappers = new ByteBuffer[buffers.length];
+
+		long total = 0;
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (wrappers[i] == null || wrappers[i].array() != buffers[i])
+				wrappers[i] = ByteBuffer.wrap(buffers[i]);
+			else
+				wrappers[i].clear();
+
+			total += buffers[i].length;
+		}
+
+		// Keep the data in-order, then do the gathering write.
+		flushBatch();
+
+		for (long written = 0; written < total;) {
+			long count = ((GatheringByteChannel) destination).write(wrappers);
+
+			if (count == 0)
+				awaitDestination();
+
+			written += count;
+		}
+
+		position += total;
+		return total;
+	}
+
+	@Override
+	protected int lengthOf(byte[] buffer) {
+		return buffer.length;
+	}
+
+	@Override
+	protected void writeImpl(byte[] buffer, int index, int length)
+			throws IOException {
+		// Re-use our wrapper if possible.
+		if (wrapper == null || wrapper.array() != buffer)
+			wrapper = ByteBuffer.wrap(buffer);
+
+		wrapper.limit(index + length);
+		wrapper.position(index);
+
+		while (wrapper.hasRemaining()) {
+			if (destination.write(wrapper) == 0)
+				awaitDestination();
+		}
+	}
+
+	@Override
+	protected void flushImpl() throws IOException {
+		// no-op, channels have nothing to flush.
+	}
+
+	/**
+	 * Used to wait a moment after the destination accepted nothing, before
+	 * retrying the write.
+	 *
+	 * @throws IOException
+	 *             if the destination has been switched to non-blocking mode,
+	 *             since it would otherwise be retried indefinitely.
+	 */
+	protected void awaitDestination() throws IOException {
+		if (destination instanceof SelectableChannel
+				&& !((SelectableChannel) destination).isBlocking())
+			throw new IOException(
+					"destination was switched to non-blocking mode and stopped accepting data.");
+
+		LockSupport.parkNanos(RETRY_PARK_NANOS);
+	}
+}
\ No newline at end of file
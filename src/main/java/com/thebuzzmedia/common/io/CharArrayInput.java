@@ -21,7 +21,8 @@ import java.io.IOException;
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
-public class CharArrayInput extends AbstractInput<char[], char[]> {
+public class CharArrayInput extends AbstractInput<char[], char[]> implements
+		IScatteringInput<char[], char[]> {
 	public CharArrayInput(char[] source) throws IllegalArgumentException {
 		this(source, 0, source.length);
 	}
@@ -42,7 +43,48 @@ public class CharArrayInput extends AbstractInput<char[], char[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
+	}
+
+	/**
+	 * Implemented to copy straight from the <code>source</code> array into each
+	 * buffer in turn, checking the bounds of this input only once.
+	 */
+	public long read(char[][] buffers) throws IllegalArgumentException,
+			IOException {
+		if (buffers == null)
+			throw new IllegalArgumentException("buffers cannot be null");
+
+		for (int i = 0; i < buffers.length; i++) {
+			if (buffers[i] == null)
+				throw new IllegalArgumentException("buffers[" + i
+						+ "] cannot be null");
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		int remaining = (endPosition == UNSPECIFIED ? source.length - position
+				: endPosition - position);
+		int total = 0;
+
+		// Do the read op, filling each buffer in turn.
+		for (int i = 0; i < buffers.length && remaining > 0; i++) {
+			char[] buffer = buffers[i];
+			int length = (buffer.length > remaining ? remaining
+					: buffer.length);
+
+			System.arraycopy(source, position + total, buffer, 0, length);
+			total += length;
+			remaining -= length;
+		}
+
+		// Update the position
+		position += total;
+
+		// Return the amount actually read
+		return total;
 	}
 
 	@Override
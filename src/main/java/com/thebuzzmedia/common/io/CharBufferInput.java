@@ -43,7 +43,17 @@ public class CharBufferInput extends AbstractInput<CharBuffer, char[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
+	}
+
+	/**
+	 * Overridden to move the position of the <code>source</code> buffer by the
+	 * same amount.
+	 */
+	@Override
+	protected void reposition(int position) {
+		source.position(source.position() + (position - this.position));
+		super.reposition(position);
 	}
 
 	@Override
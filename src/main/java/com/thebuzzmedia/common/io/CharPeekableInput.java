@@ -0,0 +1,83 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+/**
+ * {@link PeekableInput} over a <code>char[]</code> {@link IInput}.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class CharPeekableInput<ST> extends PeekableInput<ST, char[]> {
+	public CharPeekableInput(IInput<ST, char[]> source)
+			throws IllegalArgumentException {
+		this(source, BUFFER_SIZE);
+	}
+
+	public CharPeekableInput(IInput<ST, char[]> source, int bufferSize)
+			throws IllegalArgumentException {
+		super(source, bufferSize);
+	}
+
+	/**
+	 * Used to look at a single upcoming char without consuming it.
+	 *
+	 * @param offset
+	 *            How far ahead of the current position to look; <code>0</code>
+	 *            is the char the next <code>read</code> operation will return.
+	 *
+	 * @return the char or <code>-1</code> if the input ends (or has no more
+	 *         data available right now) before it.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>offset</code> is &lt; 0.
+	 * @throws IOException
+	 *             if any error occurs while reading from the wrapped input.
+	 */
+	public int peek(int offset) throws IllegalArgumentException, IOException {
+		if (offset < 0)
+			throw new IllegalArgumentException("offset [" + offset
+					+ "] must be >= 0");
+
+		if (ensureAhead(offset + 1) <= offset)
+			return -1;
+
+		return ring[(int) ((position + offset) % capacity)];
+	}
+
+	public int read(char[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected char[] newBuffer(int size) {
+		return new char[size];
+	}
+
+	@Override
+	protected int lengthOf(char[] buffer) {
+		return buffer.length;
+	}
+}
\ No newline at end of file
@@ -16,12 +16,38 @@
 package com.thebuzzmedia.common.io;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 
 /**
+ * {@link CharSequence} source with <code>char[]</code> buffer.
+ * <p/>
+ * Data is copied in bulk when the source supports it: with
+ * <code>getChars</code> for {@link String}, {@link StringBuilder} and
+ * {@link StringBuffer} sources and {@link CharBuffer#get(char[], int, int)}
+ * for {@link CharBuffer} sources. Any other {@link CharSequence} is copied one
+ * {@link CharSequence#charAt(int)} at a time.
+ * <p/>
+ * Like {@link CharBuffer#charAt(int)}, indices into a {@link CharBuffer}
+ * source are relative to its position; the position it has when this input is
+ * created is used for all reads and the source buffer itself is never moved.
+ * 
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
 public class CharSequenceInput extends AbstractInput<CharSequence, char[]> {
+	/**
+	 * Duplicate of a {@link CharBuffer} source that bulk reads are done with,
+	 * so the source's own position is never changed; <code>null</code> for
+	 * any other source.
+	 */
+	protected CharBuffer view;
+
+	/**
+	 * Position of a {@link CharBuffer} source when this input was created;
+	 * what indices into the source are relative to.
+	 */
+	protected int viewBase;
+
 	public CharSequenceInput(CharSequence source)
 			throws IllegalArgumentException {
 		this(source, 0, source.length());
@@ -32,9 +58,15 @@ public class CharSequenceInput extends AbstractInput<CharSequence, char[]> {
 		super(source, index, length);
 
 		// Post-verify
-		if (length > source.length())
-			throw new IllegalArgumentException("length [" + length
-					+ "] must be <= source.length() [" + source.length() + "]");
+		if ((index + length) > source.length())
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= source.length() ["
+					+ source.length() + "]");
+
+		if (source instanceof CharBuffer) {
+			view = ((CharBuffer) source).duplicate();
+			viewBase = view.position();
+		}
 	}
 
 	public int read(char[] buffer, int index) throws IllegalArgumentException,
@@ -42,7 +74,7 @@ public class CharSequenceInput extends AbstractInput<CharSequence, char[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
 	}
 
 	@Override
@@ -54,12 +86,26 @@ public class CharSequenceInput extends AbstractInput<CharSequence, char[]> {
 					+ (index + length) + "] must be <= buffer.length ["
 					+ buffer.length + "]");
 
-		// Do the read op
-		for (int i = 0; i < length; i++)
-			buffer[index + i] = source.charAt(position + i);
+		// Do the read op, with a bulk copy if the source supports one.
+		if (source instanceof String)
+			((String) source).getChars(position, position + length, buffer,
+					index);
+		else if (source instanceof StringBuilder)
+			((StringBuilder) source).getChars(position, position + length,
+					buffer, index);
+		else if (view != null) {
+			view.position(viewBase + position);
+			view.get(buffer, index, length);
+		} else if (source instanceof StringBuffer)
+			((StringBuffer) source).getChars(position, position + length,
+					buffer, index);
+		else {
+			for (int i = 0; i < length; i++)
+				buffer[index + i] = source.charAt(position + i);
+		}
 
 		// Return the amount actually read
 		return length;
 	}
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,305 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.thebuzzmedia.common.util.ArrayUtils;
+
+/**
+ * Input that presents a sequence of {@link IInput}s as one logical input; the
+ * inputs are read one after another, in order, as if their data had been
+ * concatenated.
+ * <p/>
+ * No data is copied to join the inputs together; a <code>read</code>
+ * operation that reaches the end of one input simply continues into the next
+ * one, so reassembling a message from many fragments (e.g. network frames
+ * wrapped in {@link ByteArrayInput}s) costs the same as reading it from a
+ * single array, unlike joining the fragments with
+ * {@link ArrayUtils#append(byte[], byte[])} which copies the entire
+ * accumulated data for every fragment.
+ * <p/>
+ * More inputs can be added with {@link #add(IInput)} at any time, including
+ * after the inputs already added have been read to their end.
+ * <p/>
+ * {@link #getLongLength()} and {@link #getLongRemaining()} report the sums of
+ * the values of the individual inputs, or {@link #UNSPECIFIED} if any of the
+ * inputs that make up the sum does not know its own. The remaining sum is
+ * kept up to date as data is read instead of being added up again, so every
+ * <code>read</code> costs the same however many inputs have been added.
+ * <p/>
+ * The wrapped inputs must not be used by anyone else once they have been
+ * added.
+ *
+ * @param <BT>
+ *            The type of the buffer that data is read into; typically
+ *            <code>byte[]</code> or <code>char[]</code>.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class CompositeInput<BT> extends
+		AbstractLongInput<List<IInput<?, BT>>, BT> {
+	/**
+	 * Index of the input in <code>source</code> currently being read from.
+	 */
+	protected int current;
+
+	/**
+	 * Sum of the remaining data of the inputs from <code>current</code> on
+	 * that knew theirs when they were added; reduced as they are read.
+	 */
+	protected long knownRemaining;
+
+	/**
+	 * Indices of the inputs that didn't know their remaining data when they
+	 * were added, and how many of them haven't been read to their end yet.
+	 */
+	protected BitSet unbounded = new BitSet();
+	protected int unboundedCount;
+
+	public CompositeInput() {
+		super(new ArrayList<IInput<?, BT>>(), UNSPECIFIED, UNSPECIFIED);
+	}
+
+	public CompositeInput(List<? extends IInput<?, BT>> inputs)
+			throws IllegalArgumentException {
+		this();
+
+		if (inputs == null)
+			throw new IllegalArgumentException("inputs cannot be null");
+
+		for (int i = 0, size = inputs.size(); i < size; i++)
+			add(inputs.get(i));
+	}
+
+	/**
+	 * Used to add another input to the end of this input.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>input</code> is <code>null</code> or
+	 *             <code>this</code>.
+	 */
+	public void add(IInput<?, BT> input) throws IllegalArgumentException {
+		if (input == null)
+			throw new IllegalArgumentException("input cannot be null");
+		if (input == this)
+			throw new IllegalArgumentException(
+					"input cannot be this CompositeInput");
+
+		long remaining = remainingOf(input);
+
+		if (remaining == UNSPECIFIED) {
+			unbounded.set(source.size());
+			unboundedCount++;
+		} else
+			knownRemaining += remaining;
+
+		source.add(input);
+		sourceEmpty = false;
+	}
+
+	/**
+	 * @return the number of inputs that make up this input.
+	 */
+	public int getInputCount() {
+		return source.size();
+	}
+
+	/**
+	 * Used to determine if this input is empty; that is every input added to it
+	 * is empty.
+	 */
+	@Override
+	public boolean isEmpty() {
+		for (int i = current, size = source.size(); i < size; i++) {
+			if (!source.get(i).isEmpty())
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public int getLength() {
+		return saturate(getLongLength());
+	}
+
+	@Override
+	public long getLongLength() {
+		long total = 0;
+
+		for (int i = 0, size = source.size(); i < size; i++) {
+			IInput<?, BT> input = source.get(i);
+			long length = (input instanceof ILongInput ? ((ILongInput<?, BT>) input)
+					.getLongLength() : input.getLength());
+
+			if (length == UNSPECIFIED)
+				return UNSPECIFIED;
+
+			total += length;
+		}
+
+		return total;
+	}
+
+	@Override
+	public long getLongRemaining() {
+		return (unboundedCount > 0 ? UNSPECIFIED : knownRemaining);
+	}
+
+	/**
+	 * Overridden to read into the space between the {@link Buffer}'s position
+	 * and limit when reading into a {@link Buffer}, to match the inputs that
+	 * support {@link Buffer} buffers.
+	 */
+	@Override
+	public int read(BT buffer) throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		if (buffer instanceof Buffer) {
+			Buffer b = (Buffer) buffer;
+			return read(buffer, b.position(), b.remaining());
+		}
+
+		return read(buffer, 0);
+	}
+
+	public int read(BT buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, lengthOf(buffer) - index);
+	}
+
+	@Override
+	protected int readImpl(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > lengthOf(buffer))
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ lengthOf(buffer) + "]");
+
+		int total = 0;
+
+		// Do the read op, moving onto the next input as each one runs dry.
+		for (int size = source.size(); length > 0 && current < size;) {
+			IInput<?, BT> input = source.get(current);
+			int read = input.read(buffer, index, length);
+
+			if (read > 0) {
+				consumed(read);
+				index += read;
+				length -= read;
+				total += read;
+			} else if (input.isEmpty())
+				advance();
+			else
+				break;
+		}
+
+		// A non-blocking input has no data for us yet.
+		if (total == 0 && current < source.size())
+			return NO_DATA;
+
+		// Return the amount actually read
+		return total;
+	}
+
+	/**
+	 * Implemented to skip through each input in turn using its own
+	 * <code>skip</code> support.
+	 */
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		long total = 0;
+
+		// Do the skip op, moving onto the next input as each one runs dry.
+		for (int size = source.size(); amount > 0 && current < size;) {
+			IInput<?, BT> input = source.get(current);
+			long skipped = input.skip(amount);
+
+			if (skipped > 0) {
+				consumed(skipped);
+				amount -= skipped;
+				total += skipped;
+			} else if (input.isEmpty())
+				advance();
+			else
+				break;
+		}
+
+		// A non-blocking input has no data for us yet.
+		if (total == 0 && current < source.size())
+			return NO_DATA;
+
+		// Return the amount actually skipped
+		return total;
+	}
+
+	/**
+	 * Used to account for data read or skipped from the current input.
+	 */
+	protected void consumed(long amount) {
+		if (!unbounded.get(current))
+			knownRemaining -= amount;
+	}
+
+	/**
+	 * Used to move on from the current input once it is empty; whatever it
+	 * claimed to have left but never provided is no longer remaining.
+	 */
+	protected void advance() {
+		if (unbounded.get(current))
+			unboundedCount--;
+		else {
+			long left = remainingOf(source.get(current));
+
+			if (left > 0)
+				knownRemaining -= left;
+		}
+
+		current++;
+	}
+
+	/**
+	 * Used to get the remaining data of the given input, preferring the
+	 * {@link ILongInput} accessor when available.
+	 */
+	protected static long remainingOf(IInput<?, ?> input) {
+		return (input instanceof ILongInput ? ((ILongInput<?, ?>) input)
+				.getLongRemaining() : input.getRemaining());
+	}
+
+	/**
+	 * Used to get the length of the given buffer; used for bounds checking as
+	 * the buffer type is generic. For {@link Buffer}s this is their limit.
+	 */
+	protected int lengthOf(BT buffer) {
+		if (buffer instanceof Buffer)
+			return ((Buffer) buffer).limit();
+
+		return Array.getLength(buffer);
+	}
+}
\ No newline at end of file
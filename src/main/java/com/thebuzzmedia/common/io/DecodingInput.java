@@ -0,0 +1,226 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decorator that adapts a <code>byte[]</code> {@link IInput} into a
+ * <code>char[]</code> {@link IInput} by decoding the bytes as they are read.
+ * <p/>
+ * Decoding is done incrementally with a single {@link CharsetDecoder} that
+ * lives as long as this input, so multi-byte sequences that are split across
+ * reads of the wrapped input are carried over and decoded correctly. Only a
+ * fixed-size byte buffer is held, so inputs of any size can be decoded in
+ * constant memory.
+ * <p/>
+ * Like {@link InputStreamReader}, malformed or unmappable input is replaced
+ * with the charset's replacement character instead of causing an error.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class DecodingInput<ST> extends
+		AbstractLongInput<IInput<ST, byte[]>, char[]> {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.decoding.bufferSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 8192);
+
+	/**
+	 * Smallest byte buffer we allow; always large enough to hold a partial
+	 * multi-byte sequence and still have room to read more bytes after it.
+	 */
+	public static final int MIN_BUFFER_SIZE = 16;
+
+	protected Charset charset;
+	protected CharsetDecoder decoder;
+
+	/**
+	 * Bytes read from the wrapped input that have not been decoded yet. Always
+	 * kept ready to be read from (flipped) between operations.
+	 */
+	protected ByteBuffer bytes;
+
+	/**
+	 * Wrapper around the last buffer decoded into, re-used when the caller
+	 * reads into the same array again.
+	 */
+	protected CharBuffer wrapper;
+
+	/**
+	 * Scratch space used when the caller's buffer is too small to hold a
+	 * decoded surrogate pair; the second half is kept in
+	 * <code>leftover</code> for the next read.
+	 */
+	protected CharBuffer pair;
+	protected char leftover;
+	protected boolean hasLeftover;
+
+	protected boolean endOfInput;
+	protected boolean flushed;
+
+	/**
+	 * Scratch buffer skipped chars are decoded into; allocated the first time
+	 * it's needed.
+	 */
+	protected char[] skipBuffer;
+
+	public DecodingInput(IInput<ST, byte[]> source, Charset charset)
+			throws IllegalArgumentException {
+		this(source, charset, BUFFER_SIZE);
+	}
+
+	public DecodingInput(IInput<ST, byte[]> source, Charset charset,
+			int bufferSize) throws IllegalArgumentException {
+		super(source, UNSPECIFIED, UNSPECIFIED);
+
+		if (charset == null)
+			throw new IllegalArgumentException("charset cannot be null");
+		if (bufferSize < MIN_BUFFER_SIZE)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= " + MIN_BUFFER_SIZE);
+
+		this.charset = charset;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		bytes = ByteBuffer.allocate(bufferSize);
+		bytes.limit(0);
+
+		pair = CharBuffer.allocate(2);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public int read(char[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected int readImpl(char[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		int start = index;
+		int end = index + length;
+
+		// Hand out the second half of a split surrogate pair first.
+		if (hasLeftover && index < end) {
+			buffer[index++] = leftover;
+			hasLeftover = false;
+		}
+
+		// Re-use our wrapper if possible.
+		if (wrapper == null || wrapper.array() != buffer)
+			wrapper = CharBuffer.wrap(buffer);
+
+		wrapper.limit(end);
+		wrapper.position(index);
+
+		while (!flushed && wrapper.hasRemaining()) {
+			CoderResult result = decoder.decode(bytes, wrapper, endOfInput);
+
+			if (result.isOverflow()) {
+				/*
+				 * If nothing fit, the next char is a surrogate pair and there
+				 * is only room for 1 char; decode it on the side and keep the
+				 * second half for the next read.
+				 */
+				if (wrapper.position() == start) {
+					pair.clear();
+					decoder.decode(bytes, pair, endOfInput);
+					pair.flip();
+
+					wrapper.put(pair.get());
+
+					if (pair.hasRemaining()) {
+						leftover = pair.get();
+						hasLeftover = true;
+					}
+				}
+
+				break;
+			}
+
+			// Underflow; all bytes we have are decoded.
+			if (endOfInput) {
+				if (decoder.flush(wrapper).isUnderflow())
+					flushed = true;
+
+				break;
+			}
+
+			// Return what we have rather than block waiting for more.
+			if (wrapper.position() > start)
+				break;
+
+			// Refill the bytes, keeping any partial sequence at the front.
+			bytes.compact();
+			int read = source.read(bytes.array(), bytes.position(),
+					bytes.remaining());
+			bytes.position(bytes.position() + read);
+			bytes.flip();
+
+			if (read == 0) {
+				if (source.isEmpty())
+					endOfInput = true;
+				else
+					return NO_DATA;
+			}
+		}
+
+		// Return the amount actually decoded
+		return wrapper.position() - start;
+	}
+
+	/**
+	 * Implemented to decode the skipped data into a scratch buffer; there is
+	 * no way to know how many bytes make up a given number of chars without
+	 * decoding them.
+	 */
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		if (skipBuffer == null)
+			skipBuffer = new char[1024];
+
+		return readImpl(skipBuffer, 0,
+				(int) Math.min(amount, skipBuffer.length));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link ChannelInput} over a {@link FileChannel} that can also be
+ * repositioned, by moving the channel's own position.
+ * <p/>
+ * Positions are relative to where the channel was positioned when it was
+ * wrapped, as with every {@link ChannelInput}; seeking to <code>0</code>
+ * returns to that point. The channel must not be repositioned by anyone else
+ * while wrapped.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class FileChannelInput extends ChannelInput implements
+		ISeekableInput<ReadableByteChannel, byte[]> {
+	/**
+	 * Position of the channel when it was wrapped; position <code>0</code> of
+	 * this input.
+	 */
+	protected long base;
+
+	public FileChannelInput(FileChannel source)
+			throws IllegalArgumentException, IOException {
+		this(source, UNSPECIFIED);
+	}
+
+	public FileChannelInput(FileChannel source, long length)
+			throws IllegalArgumentException, IOException {
+		super(source, length);
+
+		base = source.position();
+	}
+
+	public void seek(long position) throws IllegalArgumentException,
+			IOException {
+		FileChannel file = (FileChannel) source;
+		long end = (endPosition == UNSPECIFIED ? file.size() - base
+				: endPosition);
+
+		if (position < 0 || position > end)
+			throw new IllegalArgumentException("position [" + position
+					+ "] must be >= 0 and <= " + end);
+
+		file.position(base + position);
+
+		this.position = position;
+		this.sourceEmpty = false;
+	}
+}
\ No newline at end of file
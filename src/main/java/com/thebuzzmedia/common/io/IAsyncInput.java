@@ -0,0 +1,99 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart to {@link IInput}: <code>read</code> operations
+ * return immediately and report their result later, either through a
+ * {@link Future} or a {@link CompletionHandler}, so no thread is blocked while
+ * waiting on the <code>source</code>.
+ * <p/>
+ * Each <code>readAsync</code> call claims the next range of data of the input
+ * as soon as it is made, so any number of reads can be in flight at once and
+ * still fill their buffers with consecutive, non-overlapping data in the
+ * order the calls were made (though they may complete in any order).
+ *
+ * @param <ST>
+ *            The type of the source that this input is wrapping.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface IAsyncInput<ST, BT> {
+	public static final int UNSPECIFIED = IInput.UNSPECIFIED;
+
+	public ST getSource();
+
+	/**
+	 * Used to determine if every range of data of this input has been claimed
+	 * by a <code>readAsync</code> operation (those reads may still be in
+	 * flight).
+	 */
+	public boolean isEmpty();
+
+	public long getLongIndex();
+
+	public long getLongLength();
+
+	/**
+	 * @return the position the next <code>readAsync</code> operation will
+	 *         read from.
+	 */
+	public long getLongPosition();
+
+	public long getLongRemaining();
+
+	/**
+	 * Used to read up to <code>length</code> amount of data into the given
+	 * buffer, starting at <code>index</code>, without blocking.
+	 * 
+	 * @return a {@link Future} that completes with the amount of data read;
+	 *         <code>0</code> only if this input was already empty. Failures
+	 *         are reported by its <code>get</code> methods as an
+	 *         {@link ExecutionException}. Reads cannot be cancelled.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code> or if
+	 *             <code>index</code> or <code>length</code> are invalid.
+	 */
+	public Future<Integer> readAsync(BT buffer, int index, int length)
+			throws IllegalArgumentException;
+
+	/**
+	 * Used to read up to <code>length</code> amount of data into the given
+	 * buffer, starting at <code>index</code>, without blocking; the given
+	 * handler is called with the amount of data read (<code>0</code> only if
+	 * this input was already empty) or the failure once the read completes.
+	 * <p/>
+	 * The handler can be called from any thread, including the calling thread
+	 * before this method returns.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> or <code>handler</code> are
+	 *             <code>null</code> or if <code>index</code> or
+	 *             <code>length</code> are invalid.
+	 */
+	public <A> void readAsync(BT buffer, int index, int length, A attachment,
+			CompletionHandler<Integer, ? super A> handler)
+			throws IllegalArgumentException;
+}
\ No newline at end of file
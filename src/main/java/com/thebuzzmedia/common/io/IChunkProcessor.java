@@ -0,0 +1,61 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Callback used by {@link ParallelFileProcessor} to process a single chunk of
+ * a file and to merge the results of processed chunks.
+ * <p/>
+ * {@link #process(ILongInput)} is called concurrently from multiple threads,
+ * once per chunk; implementations must not share mutable state between calls
+ * without synchronizing it. {@link #reduce(Object, Object)} is only ever
+ * called from the thread that started processing.
+ *
+ * @param <R>
+ *            The type of the result produced for each chunk and for the file
+ *            as a whole.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface IChunkProcessor<R> {
+	/**
+	 * Used to process a single chunk of the file.
+	 *
+	 * @param chunk
+	 *            An input bounded to the chunk; it begins at the start of a
+	 *            record and ends right after a delimiter (or at the end of the
+	 *            file).
+	 *
+	 * @return the result for the chunk.
+	 *
+	 * @throws IOException
+	 *             if any error occurs while reading the chunk.
+	 */
+	public R process(ILongInput<FileChannel, byte[]> chunk) throws IOException;
+
+	/**
+	 * Used to merge the results of two chunks. Results are always merged in
+	 * file order; <code>first</code> is the result (or merged results) of the
+	 * data that precedes the data <code>second</code> is the result of.
+	 *
+	 * @return the merged result.
+	 */
+	public R reduce(R first, R second);
+}
\ No newline at end of file
@@ -15,6 +15,7 @@
  */
 package com.thebuzzmedia.common.io;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -51,6 +52,12 @@ public interface IInput<ST, BT> {
 	 * </ol>
 	 * These are the only two conditions that can trigger an input to be
 	 * considered empty.
+	 * <p/>
+	 * Inputs wrapping non-blocking sources (e.g. {@link ChannelInput}) can
+	 * return <code>0</code> from a <code>read</code> operation when no data is
+	 * available yet; in that case this method continues to return
+	 * <code>false</code>, which is how the caller can tell "no data yet" apart
+	 * from the end of the source.
 	 * 
 	 * @return <code>true</code> if the input is empty and future <code>read
 	 *         </code> operations will return nothing, otherwise returns <code>
@@ -149,4 +156,82 @@ public interface IInput<ST, BT> {
 
 	public int read(BT buffer, int index, int length)
 			throws IllegalArgumentException, IOException;
+
+	/**
+	 * Used to read exactly <code>length</code> amount of data into the given
+	 * buffer, starting at <code>index</code>.
+	 * <p/>
+	 * Unlike <code>read</code>, which can return after reading any amount of
+	 * data, this operation keeps reading until the buffer region is full; the
+	 * arguments are only verified once, no matter how many reads of the
+	 * underlying <code>source</code> it takes.
+	 * <p/>
+	 * <strong>NOTE</strong>: For non-blocking sources this operation spins
+	 * until enough data has arrived; use <code>read</code> with them instead.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code> or if
+	 *             <code>index</code> or <code>length</code> are invalid.
+	 * @throws EOFException
+	 *             if the input becomes empty before <code>length</code> amount
+	 *             of data could be read; the data that was read is left in the
+	 *             buffer.
+	 * @throws IOException
+	 *             if any problem arises with reading content from the
+	 *             underlying <code>source</code>.
+	 */
+	public void readFully(BT buffer, int index, int length)
+			throws IllegalArgumentException, EOFException, IOException;
+
+	/**
+	 * Used to read at least <code>min</code> and up to <code>length</code>
+	 * amount of data into the given buffer, starting at <code>index</code>.
+	 * <p/>
+	 * Useful for reading a fixed-size header and as much of what follows it as
+	 * is already available in one operation. See
+	 * {@link #readFully(Object, int, int)}.
+	 * 
+	 * @return the amount of data read; always &gt;= <code>min</code>.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code>, if
+	 *             <code>index</code> or <code>length</code> are invalid or if
+	 *             <code>min</code> is &lt; 0 or &gt; <code>length</code>.
+	 * @throws EOFException
+	 *             if the input becomes empty before <code>min</code> amount of
+	 *             data could be read; the data that was read is left in the
+	 *             buffer.
+	 * @throws IOException
+	 *             if any problem arises with reading content from the
+	 *             underlying <code>source</code>.
+	 */
+	public int readAtLeast(BT buffer, int index, int length, int min)
+			throws IllegalArgumentException, EOFException, IOException;
+
+	/**
+	 * Used to skip over up to <code>amount</code> of data without reading it
+	 * into a buffer; the next <code>read</code> operation begins after the
+	 * skipped data.
+	 * <p/>
+	 * Implementations skip as efficiently as their <code>source</code>
+	 * allows; inputs wrapping arrays, buffers or files simply move their
+	 * position, while inputs wrapping streams use the stream's own skip
+	 * support.
+	 * <p/>
+	 * Like <code>read</code>, this operation can skip less than
+	 * <code>amount</code> and only returns <code>0</code> when the input is
+	 * empty (or, for non-blocking sources, has no data available right now).
+	 * 
+	 * @param amount
+	 *            The maximum amount of data to skip.
+	 * 
+	 * @return the amount of data actually skipped.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>amount</code> is &lt; 0.
+	 * @throws IOException
+	 *             if any problem arises with skipping data in the underlying
+	 *             <code>source</code>.
+	 */
+	public long skip(long amount) throws IllegalArgumentException, IOException;
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+/**
+ * Extension of {@link IInput} that exposes its bounds and position as 64-bit
+ * <code>long</code> values.
+ * <p/>
+ * The <code>int</code>-based accessors defined by {@link IInput} cannot
+ * describe sources larger than {@link Integer#MAX_VALUE} (e.g. multi-GB files
+ * or streams); implementations whose values exceed that saturate the
+ * <code>int</code> accessors at {@link Integer#MAX_VALUE} while the
+ * <code>long</code> accessors defined here continue to report the exact
+ * values.
+ * <p/>
+ * Inputs that can never exceed the <code>int</code> range (e.g. those wrapping
+ * arrays or NIO buffers) simply widen their <code>int</code> values.
+ *
+ * @param <ST>
+ *            The type of the source that this {@link IInput} is wrapping.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface ILongInput<ST, BT> extends IInput<ST, BT> {
+	/**
+	 * Used to get the 64-bit value of {@link #getIndex()}.
+	 *
+	 * @return the bounded start-position where this input will begin its first
+	 *         <code>read</code> operation or {@link #UNSPECIFIED}.
+	 */
+	public long getLongIndex();
+
+	/**
+	 * Used to get the 64-bit value of {@link #getLength()}.
+	 *
+	 * @return the limit on the amount of data that can be read from this input
+	 *         or {@link #UNSPECIFIED}.
+	 */
+	public long getLongLength();
+
+	/**
+	 * Used to get the 64-bit value of {@link #getPosition()}.
+	 *
+	 * @return the position within <code>source</code> where the next
+	 *         <code>read</code> operation will begin.
+	 */
+	public long getLongPosition();
+
+	/**
+	 * Used to get the 64-bit value of {@link #getRemaining()}.
+	 *
+	 * @return the amount of data remaining that can be read from the underlying
+	 *         <code>source</code> or {@link #UNSPECIFIED}.
+	 */
+	public long getLongRemaining();
+}
\ No newline at end of file
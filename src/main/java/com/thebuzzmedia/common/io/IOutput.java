@@ -0,0 +1,134 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The write-side counterpart of {@link IInput}; wraps any kind of writable
+ * destination with a common, generics-enhanced interface that data is written
+ * to from a given buffer.
+ * <p/>
+ * Like inputs, outputs can be "bounded" by an <code>index</code> and
+ * <code>length</code> that cap the amount of data that can be written to the
+ * underlying <code>destination</code>. Unlike {@link IInput}, all positions
+ * are reported as <code>long</code> values from the start so outputs to
+ * streams or files larger than 2 GB do not overflow.
+ * <p/>
+ * Outputs may batch small writes into an internal write buffer and only pass
+ * them on to the <code>destination</code> once that buffer is full or
+ * {@link #flush()} is called; callers must call {@link #flush()} once they
+ * are done writing to guarantee all data has reached the
+ * <code>destination</code>. Writes larger than the write buffer bypass it
+ * entirely.
+ *
+ * @param <DT>
+ *            The type of the destination that this {@link IOutput} is
+ *            wrapping; for example {@link OutputStream}, {@link ByteBuffer},
+ *            etc.
+ * @param <BT>
+ *            The type of the primitive buffer that data is written from. This
+ *            is typically either <code>byte[]</code> or <code>char[]</code>.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface IOutput<DT, BT> {
+	public static final int UNSPECIFIED = -1;
+
+	/**
+	 * Used to determine if this output is full. An {@link IOutput} is full
+	 * when the write-bounds imposed on it by a given <code>index</code> and
+	 * <code>length</code> were hit, resulting in {@link #getRemaining()}
+	 * returning <code>0</code>.
+	 *
+	 * @return <code>true</code> if the output is full and future
+	 *         <code>write</code> operations will write nothing, otherwise
+	 *         returns <code>false</code>.
+	 */
+	public boolean isFull();
+
+	/**
+	 * @return the bounded start-position in <code>destination</code> where
+	 *         this output began writing or {@link #UNSPECIFIED}.
+	 */
+	public long getIndex();
+
+	/**
+	 * @return the limit on the amount of data that can be written to this
+	 *         output or {@link #UNSPECIFIED} if there is no limit.
+	 */
+	public long getLength();
+
+	/**
+	 * Used to get the position within <code>destination</code> where the next
+	 * <code>write</code> operation will begin. This includes data that has
+	 * been accepted by the output but is still batched in its write buffer.
+	 *
+	 * @return the position within <code>destination</code> where the next
+	 *         <code>write</code> operation will begin.
+	 */
+	public long getPosition();
+
+	/**
+	 * @return the amount of data that can still be written to this output or
+	 *         {@link #UNSPECIFIED} if there is no limit.
+	 */
+	public long getRemaining();
+
+	/**
+	 * Used to get the underlying destination that data is written to.
+	 *
+	 * @return the underlying destination that data is written to.
+	 */
+	public DT getDestination();
+
+	public int write(BT buffer) throws IllegalArgumentException, IOException;
+
+	public int write(BT buffer, int index) throws IllegalArgumentException,
+			IOException;
+
+	/**
+	 * Used to write <code>length</code> amount of data from the given buffer,
+	 * starting at <code>index</code>, to this output.
+	 *
+	 * @return the amount of data accepted by this output. This is only ever
+	 *         less than <code>length</code> when the bounds of this output are
+	 *         hit.
+	 */
+	public int write(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException;
+
+	/**
+	 * Used to write the full contents of each of the given buffers, in order,
+	 * to this output (a "gathering" write). Implementations whose
+	 * <code>destination</code> supports gathering writes natively pass all the
+	 * buffers to it in a single operation.
+	 *
+	 * @return the total amount of data accepted by this output.
+	 */
+	public long write(BT[] buffers) throws IllegalArgumentException,
+			IOException;
+
+	/**
+	 * Used to write any data batched in the write buffer to the
+	 * <code>destination</code> and then flush the <code>destination</code>
+	 * itself (if supported).
+	 */
+	public void flush() throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * Extension of {@link IInput} implemented by inputs that can read into a
+ * sequence of buffers with a single operation (a "scattering" read, like
+ * {@link ScatteringByteChannel#read(ByteBuffer[])}); for example reading a
+ * fixed-size frame header and its body into separate buffers at once.
+ * <p/>
+ * Array buffers are filled from index <code>0</code> to their length;
+ * {@link ByteBuffer} buffers are filled between their position and limit and
+ * have their position moved past the data read.
+ *
+ * @param <ST>
+ *            The type of the source that this {@link IInput} is wrapping.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface IScatteringInput<ST, BT> extends IInput<ST, BT> {
+	/**
+	 * Used to read data into the given buffers, in order. A buffer only
+	 * receives data once every buffer before it has been filled.
+	 * <p/>
+	 * Like <code>read</code>, this operation can read less than the buffers
+	 * can hold and only returns <code>0</code> when the input is empty (or,
+	 * for non-blocking sources, has no data available right now).
+	 * 
+	 * @return the total amount of data read into all the buffers.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>buffers</code> or any of its elements are
+	 *             <code>null</code>.
+	 * @throws IOException
+	 *             if any problem arises with reading content from the
+	 *             underlying <code>source</code>.
+	 */
+	public long read(BT[] buffers) throws IllegalArgumentException,
+			IOException;
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+/**
+ * Extension of {@link ILongInput} implemented by inputs that can move to any
+ * position within their bounds in constant time; those wrapping arrays,
+ * buffers, {@link CharSequence}s or memory-mapped files.
+ *
+ * @param <ST>
+ *            The type of the source that this {@link IInput} is wrapping.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface ISeekableInput<ST, BT> extends ILongInput<ST, BT> {
+	/**
+	 * Used to move this input so the next <code>read</code> operation begins
+	 * at the given position within <code>source</code>. Seeking backwards
+	 * makes an input that was empty readable again.
+	 * 
+	 * @param position
+	 *            The new position; in the same terms as
+	 *            {@link #getLongPosition()}.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>position</code> is before {@link #getLongIndex()}
+	 *             (or <code>0</code> if that is unspecified) or past the end of
+	 *             this input's bounds.
+	 * @throws IOException
+	 *             if any problem arises with moving within the underlying
+	 *             <code>source</code>.
+	 */
+	public void seek(long position) throws IllegalArgumentException,
+			IOException;
+}
\ No newline at end of file
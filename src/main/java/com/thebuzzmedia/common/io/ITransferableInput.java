@@ -0,0 +1,62 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Extension of {@link ILongInput} implemented by byte inputs that can hand
+ * their data to a {@link WritableByteChannel} without first copying it into a
+ * caller's buffer; for example by writing the wrapped array or buffer directly
+ * or by letting the OS move the data with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * <p/>
+ * {@link TransferUtils#transferTo(IInput, WritableByteChannel)} uses this
+ * when it is available and falls back to a copy loop otherwise.
+ *
+ * @param <ST>
+ *            The type of the source that this {@link IInput} is wrapping.
+ * @param <BT>
+ *            The type of the primitive read buffer that will contain data read
+ *            from the given source.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public interface ITransferableInput<ST, BT> extends ILongInput<ST, BT> {
+	/**
+	 * Used to write all the remaining data of this input to the given channel;
+	 * this input's position is moved past the data written.
+	 * <p/>
+	 * If the channel is non-blocking and stops accepting data before this
+	 * input is empty, the operation returns early; calling it again later
+	 * resumes where it left off. Data an input had to read before the channel
+	 * stopped accepting it still counts as remaining in this input until it
+	 * has been written (or read) and is written first by that next call.
+	 * 
+	 * @return the amount of data written to the channel.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>target</code> is <code>null</code>.
+	 * @throws IOException
+	 *             if any error occurs while reading this input or writing to
+	 *             the channel.
+	 */
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException;
+}
\ No newline at end of file
@@ -0,0 +1,490 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decorator that decompresses the GZIP, ZLIB or raw DEFLATE data read from a
+ * <code>byte[]</code> {@link IInput}, inflating it directly into the caller's
+ * buffer.
+ * <p/>
+ * Unlike a {@link GZIPInputStream}, which creates (and holds the native memory
+ * of) a new {@link Inflater} for every stream, the {@link Inflater}s used by
+ * these inputs are taken from a shared pool and handed back as soon as the end
+ * of the compressed data is reached, so decompressing many files in a row
+ * re-uses the same few {@link Inflater}s. Callers that stop reading before
+ * the end should call {@link #close()} to hand theirs back early. If reading
+ * fails (e.g. the data is corrupt) the {@link Inflater} is handed back right
+ * away and every later read fails as well.
+ * <p/>
+ * GZIP data may consist of several concatenated members (e.g. log files
+ * appended to with <code>gzip -c &gt;&gt;</code>); the members are inflated
+ * one after another as a single stream of data. The CRC-32 and size recorded
+ * in each member's trailer are verified. Any data following the last member
+ * that does not begin with a GZIP header is ignored, as it is by
+ * {@link GZIPInputStream}.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class InflatingInput<ST> extends
+		AbstractLongInput<IInput<ST, byte[]>, byte[]> {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.inflating.bufferSize";
+	public static final String POOL_SIZE_PROPERTY_NAME = "tbm.common.io.inflating.poolSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 8192);
+
+	/**
+	 * Maximum number of idle {@link Inflater}s kept in each pool; any more
+	 * than this are ended when handed back.
+	 */
+	public static final int POOL_SIZE = Integer.getInteger(
+			POOL_SIZE_PROPERTY_NAME, 16);
+
+	/**
+	 * Smallest compressed-data buffer we allow; always large enough to hold a
+	 * GZIP header without its optional fields.
+	 */
+	public static final int MIN_BUFFER_SIZE = 16;
+
+	/**
+	 * Used to define the formats of compressed data these inputs can inflate.
+	 */
+	public enum Format {
+		/**
+		 * GZIP file format (RFC 1952); may contain several concatenated
+		 * members.
+		 */
+		GZIP(true),
+		/**
+		 * ZLIB format (RFC 1950); DEFLATE data with a small header and an
+		 * Adler-32 checksum, as produced by a default {@link Inflater}.
+		 */
+		ZLIB(false),
+		/**
+		 * Raw DEFLATE data (RFC 1951) without any header or checksum.
+		 */
+		DEFLATE(true);
+
+		private boolean nowrap;
+
+		private Format(boolean nowrap) {
+			this.nowrap = nowrap;
+		}
+	}
+
+	private static final int GZIP_MAGIC = 0x8B1F;
+	private static final int GZIP_HEADER_LENGTH = 10;
+	private static final int GZIP_TRAILER_LENGTH = 8;
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private static final int STATE_HEADER = 0;
+	private static final int STATE_DATA = 1;
+	private static final int STATE_TRAILER = 2;
+	private static final int STATE_DONE = 3;
+	private static final int STATE_FAILED = 4;
+
+	private static final Queue<Inflater> NOWRAP_POOL = new ConcurrentLinkedQueue<Inflater>();
+	private static final Queue<Inflater> ZLIB_POOL = new ConcurrentLinkedQueue<Inflater>();
+
+	protected Format format;
+	protected Inflater inflater;
+
+	/**
+	 * CRC-32 of the data inflated from the current GZIP member.
+	 */
+	protected CRC32 crc;
+
+	/**
+	 * Compressed data read from the wrapped input; the data between
+	 * <code>bPosition</code> and <code>bLimit</code> has not been handed to
+	 * the {@link Inflater} or parsed yet.
+	 */
+	protected byte[] bytes;
+	protected int bPosition;
+	protected int bLimit;
+
+	protected int state;
+
+	/**
+	 * Number of GZIP members inflated completely so far.
+	 */
+	protected int members;
+
+	/**
+	 * Scratch buffer skipped data is inflated into; allocated the first time
+	 * it's needed.
+	 */
+	protected byte[] skipBuffer;
+
+	public InflatingInput(IInput<ST, byte[]> source)
+			throws IllegalArgumentException {
+		this(source, Format.GZIP, BUFFER_SIZE);
+	}
+
+	public InflatingInput(IInput<ST, byte[]> source, Format format)
+			throws IllegalArgumentException {
+		this(source, format, BUFFER_SIZE);
+	}
+
+	public InflatingInput(IInput<ST, byte[]> source, Format format,
+			int bufferSize) throws IllegalArgumentException {
+		super(source, UNSPECIFIED, UNSPECIFIED);
+
+		if (format == null)
+			throw new IllegalArgumentException("format cannot be null");
+		if (bufferSize < MIN_BUFFER_SIZE)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= " + MIN_BUFFER_SIZE);
+
+		this.format = format;
+		this.bytes = new byte[bufferSize];
+		this.state = (format == Format.GZIP ? STATE_HEADER : STATE_DATA);
+
+		if (format == Format.GZIP)
+			crc = new CRC32();
+
+		inflater = acquire(format.nowrap);
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Used to hand the {@link Inflater} used by this input back to the pool
+	 * before the end of the compressed data has been reached. This input is
+	 * considered empty after being closed.
+	 * <p/>
+	 * The wrapped input is not closed by this operation.
+	 */
+	public void close() {
+		finish();
+		sourceEmpty = true;
+	}
+
+	public int read(byte[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected int readImpl(byte[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		if (length == 0)
+			return 0;
+
+		if (state == STATE_FAILED)
+			throw new ZipException(
+					"A previous read failed; the rest of the compressed data cannot be inflated");
+
+		boolean failed = true;
+
+		try {
+			int read = inflate(buffer, index, length);
+			failed = false;
+
+			return read;
+		} finally {
+			// Don't leak the inflater if the caller never closes us.
+			if (failed) {
+				finish();
+				state = STATE_FAILED;
+			}
+		}
+	}
+
+	/**
+	 * Used to inflate data into the given buffer, reading and parsing more of
+	 * the compressed data as needed.
+	 */
+	protected int inflate(byte[] buffer, int index, int length)
+			throws IOException {
+		while (state != STATE_DONE) {
+			if (state == STATE_HEADER) {
+				int header = headerLength();
+
+				if (header > 0) {
+					bPosition += header;
+					inflater.reset();
+					crc.reset();
+					state = STATE_DATA;
+				} else if (header == 0) {
+					// Data following the last member isn't another member.
+					finish();
+				} else if (fill() == 0) {
+					if (!source.isEmpty())
+						return NO_DATA;
+
+					// The last member simply ended (maybe with some padding).
+					if (members > 0)
+						finish();
+					else
+						throw new EOFException("Unexpected end of GZIP header");
+				}
+			} else if (state == STATE_DATA) {
+				if (inflater.finished()) {
+					// Take back the data following the compressed data.
+					bPosition = bLimit - inflater.getRemaining();
+
+					if (format == Format.GZIP)
+						state = STATE_TRAILER;
+					else
+						finish();
+
+					continue;
+				}
+
+				if (inflater.needsDictionary())
+					throw new ZipException(
+							"Compressed data requires a preset dictionary");
+
+				if (inflater.needsInput()) {
+					if (bPosition == bLimit && fill() == 0) {
+						if (!source.isEmpty())
+							return NO_DATA;
+
+						throw new EOFException(
+								"Unexpected end of compressed data");
+					}
+
+					inflater.setInput(bytes, bPosition, bLimit - bPosition);
+					bPosition = bLimit;
+				}
+
+				// Do the read op
+				int read;
+
+				try {
+					read = inflater.inflate(buffer, index, length);
+				} catch (DataFormatException e) {
+					ZipException wrapper = new ZipException(e.getMessage());
+					wrapper.initCause(e);
+					throw wrapper;
+				}
+
+				if (read > 0) {
+					if (crc != null)
+						crc.update(buffer, index, read);
+
+					// Return the amount actually read
+					return read;
+				}
+			} else {
+				if (bLimit - bPosition < GZIP_TRAILER_LENGTH) {
+					if (fill() == 0) {
+						if (!source.isEmpty())
+							return NO_DATA;
+
+						throw new EOFException("Unexpected end of GZIP trailer");
+					}
+
+					continue;
+				}
+
+				if (readInt(bPosition) != (int) crc.getValue()
+						|| readInt(bPosition + 4) != (int) inflater
+								.getBytesWritten())
+					throw new ZipException("Corrupt GZIP trailer");
+
+				bPosition += GZIP_TRAILER_LENGTH;
+				members++;
+				state = STATE_HEADER;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Implemented to inflate the skipped data into a scratch buffer; there is
+	 * no way to skip over compressed data without inflating it.
+	 */
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		if (skipBuffer == null)
+			skipBuffer = new byte[1024];
+
+		return readImpl(skipBuffer, 0,
+				(int) Math.min(amount, skipBuffer.length));
+	}
+
+	/**
+	 * Used to parse the GZIP header at <code>bPosition</code>.
+	 *
+	 * @return the length of the header, <code>-1</code> if more data is
+	 *         needed to parse it or <code>0</code> if the data following a
+	 *         completed member is not another member.
+	 *
+	 * @throws ZipException
+	 *             if the first member does not begin with a valid header.
+	 */
+	protected int headerLength() throws ZipException {
+		int i = bPosition;
+
+		if (bLimit - i < 2)
+			return -1;
+
+		if (((bytes[i] & 0xFF) | ((bytes[i + 1] & 0xFF) << 8)) != GZIP_MAGIC) {
+			if (members > 0)
+				return 0;
+
+			throw new ZipException("Not in GZIP format");
+		}
+
+		if (bLimit - i < GZIP_HEADER_LENGTH)
+			return -1;
+
+		if (bytes[i + 2] != 8)
+			throw new ZipException("Unsupported compression method");
+
+		int flags = bytes[i + 3] & 0xFF;
+		i += GZIP_HEADER_LENGTH;
+
+		if ((flags & FEXTRA) != 0) {
+			if (bLimit - i < 2)
+				return -1;
+
+			i += 2 + ((bytes[i] & 0xFF) | ((bytes[i + 1] & 0xFF) << 8));
+		}
+
+		if ((flags & FNAME) != 0 && (i = skipString(i)) == -1)
+			return -1;
+		if ((flags & FCOMMENT) != 0 && (i = skipString(i)) == -1)
+			return -1;
+		if ((flags & FHCRC) != 0)
+			i += 2;
+
+		return (i > bLimit ? -1 : i - bPosition);
+	}
+
+	/**
+	 * Used to skip over the zero-terminated string starting at the given
+	 * index.
+	 *
+	 * @return the index following the terminating zero or <code>-1</code> if
+	 *         it hasn't been read yet.
+	 */
+	protected int skipString(int index) {
+		for (; index < bLimit; index++) {
+			if (bytes[index] == 0)
+				return index + 1;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Used to read more compressed data from the wrapped input after the data
+	 * not handled yet, first moving that data to the front of
+	 * <code>bytes</code> (or growing <code>bytes</code> if it is full).
+	 *
+	 * @return the amount of data read.
+	 */
+	protected int fill() throws IOException {
+		int remaining = bLimit - bPosition;
+
+		if (bPosition > 0) {
+			System.arraycopy(bytes, bPosition, bytes, 0, remaining);
+			bPosition = 0;
+			bLimit = remaining;
+		} else if (bLimit == bytes.length) {
+			// Only happens for headers with very large optional fields.
+			byte[] grown = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, grown, 0, bLimit);
+			bytes = grown;
+		}
+
+		int read = source.read(bytes, bLimit, bytes.length - bLimit);
+		bLimit += read;
+
+		return read;
+	}
+
+	/**
+	 * Used to read the little-endian 32-bit value at the given index.
+	 */
+	protected int readInt(int index) {
+		return (bytes[index] & 0xFF) | ((bytes[index + 1] & 0xFF) << 8)
+				| ((bytes[index + 2] & 0xFF) << 16)
+				| ((bytes[index + 3] & 0xFF) << 24);
+	}
+
+	/**
+	 * Used to mark the end of the compressed data and hand our
+	 * {@link Inflater} back to the pool.
+	 */
+	protected void finish() {
+		state = STATE_DONE;
+
+		if (inflater != null) {
+			release(inflater, format.nowrap);
+			inflater = null;
+		}
+	}
+
+	/**
+	 * Used to take an {@link Inflater} from the pool, creating a new one if
+	 * the pool is empty.
+	 */
+	protected static Inflater acquire(boolean nowrap) {
+		Inflater inflater = (nowrap ? NOWRAP_POOL : ZLIB_POOL).poll();
+		return (inflater == null ? new Inflater(nowrap) : inflater);
+	}
+
+	/**
+	 * Used to reset the given {@link Inflater} and hand it back to the pool,
+	 * or end it if the pool is already full.
+	 */
+	protected static void release(Inflater inflater, boolean nowrap) {
+		Queue<Inflater> pool = (nowrap ? NOWRAP_POOL : ZLIB_POOL);
+
+		// The pool is unbounded; stay roughly within POOL_SIZE.
+		if (pool.size() < POOL_SIZE) {
+			inflater.reset();
+			pool.offer(inflater);
+		} else
+			inflater.end();
+	}
+}
\ No newline at end of file
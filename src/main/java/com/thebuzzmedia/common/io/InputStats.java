@@ -0,0 +1,235 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class used to collect statistics about the <code>read</code> operations of
+ * one or more {@link InstrumentedInput}s: the amount of data read, the number
+ * of <code>read</code> calls, the time spent inside them and a histogram of
+ * the amount of data each call returned.
+ * <p/>
+ * All counters are atomic and never locked, so a single instance can be
+ * shared by inputs being read from any number of threads; see
+ * {@link InputStatsRegistry} for sharing instances by name. Like a
+ * <code>LongAdder</code>, the counters are striped: each thread records into
+ * one of {@link #STRIPE_COUNT} padded stripes picked by a hash of its ID, so
+ * threads reading at the same time rarely touch the same cache lines, and the
+ * stripes are summed when a value is asked for.
+ * <p/>
+ * Read sizes are counted in power-of-two buckets, so the percentiles returned
+ * by {@link #getReadSizePercentile(double)} are the upper bound of the bucket
+ * the percentile falls in, not the exact size.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class InputStats {
+	/**
+	 * Number of histogram buckets; bucket <code>0</code> counts reads that
+	 * returned no data and bucket <code>b</code> counts reads that returned
+	 * between <code>2<sup>b-1</sup></code> and <code>2<sup>b</sup> - 1</code>
+	 * units.
+	 */
+	public static final int BUCKET_COUNT = 33;
+
+	public static final String STRIPE_COUNT_PROPERTY_NAME = "tbm.common.io.stats.stripeCount";
+
+	/**
+	 * Number of stripes the counters are spread over; a power of 2, by
+	 * default the smallest one &gt;= the number of available processors.
+	 */
+	public static final int STRIPE_COUNT = powerOfTwo(Integer.getInteger(
+			STRIPE_COUNT_PROPERTY_NAME,
+			Runtime.getRuntime().availableProcessors()));
+
+	/*
+	 * Layout of a single stripe in the cells array; the padding keeps the
+	 * counters of neighbouring stripes off each other's cache lines.
+	 */
+	private static final int UNITS = 0;
+	private static final int CALLS = 1;
+	private static final int NANOS = 2;
+	private static final int BUCKETS = 3;
+	private static final int PADDING = 8;
+	private static final int STRIDE = BUCKETS + BUCKET_COUNT + PADDING;
+
+	private static final int MASK = STRIPE_COUNT - 1;
+
+	protected AtomicLongArray cells = new AtomicLongArray(STRIPE_COUNT
+			* STRIDE);
+
+	/**
+	 * Used to record a single <code>read</code> call.
+	 * 
+	 * @param read
+	 *            The amount of data the call returned.
+	 * @param elapsed
+	 *            The time spent inside the call, in nanoseconds.
+	 */
+	public void record(long read, long elapsed) {
+		int base = stripe() * STRIDE;
+
+		cells.addAndGet(base + UNITS, read);
+		cells.incrementAndGet(base + CALLS);
+		cells.addAndGet(base + NANOS, elapsed);
+		cells.incrementAndGet(base + BUCKETS + bucketOf(read));
+	}
+
+	/**
+	 * @return the total amount of data read.
+	 */
+	public long getUnits() {
+		return sum(UNITS);
+	}
+
+	/**
+	 * @return the number of <code>read</code> calls made.
+	 */
+	public long getCalls() {
+		return sum(CALLS);
+	}
+
+	/**
+	 * @return the total time spent inside <code>read</code> calls, in
+	 *         nanoseconds.
+	 */
+	public long getNanos() {
+		return sum(NANOS);
+	}
+
+	/**
+	 * @return the average amount of data returned per <code>read</code> call
+	 *         or <code>0</code> if no calls have been made.
+	 */
+	public double getAverageReadSize() {
+		long count = getCalls();
+		return (count == 0 ? 0 : (double) getUnits() / count);
+	}
+
+	/**
+	 * Used to get the approximate read size that the given percentage of
+	 * <code>read</code> calls returned at most (e.g. <code>50</code> for the
+	 * median).
+	 * 
+	 * @return the upper bound of the histogram bucket the percentile falls in
+	 *         or <code>0</code> if no calls have been made.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>percentile</code> is not &gt; 0 and &lt;= 100.
+	 */
+	public long getReadSizePercentile(double percentile)
+			throws IllegalArgumentException {
+		if (percentile <= 0 || percentile > 100)
+			throw new IllegalArgumentException("percentile [" + percentile
+					+ "] must be > 0 and <= 100");
+
+		// Take a snapshot; the counters can move while we look at them.
+		long[] counts = new long[BUCKET_COUNT];
+		long total = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			total += (counts[i] = sum(BUCKETS + i));
+
+		if (total == 0)
+			return 0;
+
+		long target = (long) Math.ceil(total * (percentile / 100));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+
+			if (seen >= target)
+				return (i == 0 ? 0 : (1L << i) - 1);
+		}
+
+		return (1L << (BUCKET_COUNT - 1)) - 1;
+	}
+
+	/**
+	 * Used to get the number of <code>read</code> calls counted in the given
+	 * histogram bucket. See {@link #BUCKET_COUNT}.
+	 */
+	public long getBucketCount(int bucket) throws IllegalArgumentException {
+		if (bucket < 0 || bucket >= BUCKET_COUNT)
+			throw new IllegalArgumentException("bucket [" + bucket
+					+ "] must be >= 0 and < " + BUCKET_COUNT);
+
+		return sum(BUCKETS + bucket);
+	}
+
+	/**
+	 * Used to reset all the counters to <code>0</code>. Calls recorded while
+	 * resetting may be partially lost.
+	 */
+	public void reset() {
+		for (int i = 0, length = cells.length(); i < length; i++)
+			cells.set(i, 0);
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getName() + "@" + hashCode() + "[units="
+				+ getUnits() + ", calls=" + getCalls() + ", nanos="
+				+ getNanos() + ", averageReadSize=" + getAverageReadSize()
+				+ ", p50=" + getReadSizePercentile(50) + ", p99="
+				+ getReadSizePercentile(99) + "]";
+	}
+
+	/**
+	 * Used to get the histogram bucket the given read size is counted in.
+	 */
+	protected static int bucketOf(long read) {
+		if (read <= 0)
+			return 0;
+
+		// Anything larger than an int read can return shares the top bucket.
+		int bucket = 64 - Long.numberOfLeadingZeros(read);
+		return (bucket >= BUCKET_COUNT ? BUCKET_COUNT - 1 : bucket);
+	}
+
+	/**
+	 * Used to add up the given counter across all the stripes.
+	 */
+	protected long sum(int offset) {
+		long total = 0;
+
+		for (int i = 0; i < STRIPE_COUNT; i++)
+			total += cells.get(i * STRIDE + offset);
+
+		return total;
+	}
+
+	/**
+	 * Used to pick the stripe the current thread records into; thread IDs are
+	 * sequential, so they are spread out with a multiplicative hash.
+	 */
+	protected static int stripe() {
+		int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & MASK;
+	}
+
+	private static int powerOfTwo(int value) {
+		int result = 1;
+
+		while (result < value && result < (1 << 16))
+			result <<= 1;
+
+		return result;
+	}
+}
\ No newline at end of file
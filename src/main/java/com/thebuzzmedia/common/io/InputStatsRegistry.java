@@ -0,0 +1,86 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Global registry of named {@link InputStats}, used to collect the statistics
+ * of all the {@link InstrumentedInput}s created with the same name (e.g.
+ * every input of one stage of a pipeline) in one place, where they can be
+ * looked at or logged periodically.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class InputStatsRegistry {
+	private static final ConcurrentMap<String, InputStats> STATS_MAP = new ConcurrentHashMap<String, InputStats>();
+
+	/**
+	 * Used to get the {@link InputStats} registered under the given name,
+	 * registering a new one if there is none yet.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>name</code> is <code>null</code>.
+	 */
+	public static InputStats get(String name) throws IllegalArgumentException {
+		if (name == null)
+			throw new IllegalArgumentException("name cannot be null");
+
+		InputStats stats = STATS_MAP.get(name);
+
+		if (stats == null) {
+			InputStats created = new InputStats();
+			stats = STATS_MAP.putIfAbsent(name, created);
+
+			// We won the race to register it.
+			if (stats == null)
+				stats = created;
+		}
+
+		return stats;
+	}
+
+	/**
+	 * @return a snapshot of all the registered {@link InputStats}, by name.
+	 */
+	public static Map<String, InputStats> getAll() {
+		return Collections.unmodifiableMap(new HashMap<String, InputStats>(
+				STATS_MAP));
+	}
+
+	/**
+	 * Used to remove the {@link InputStats} registered under the given name;
+	 * inputs still holding it keep recording to it.
+	 * 
+	 * @return the removed {@link InputStats} or <code>null</code> if none was
+	 *         registered under the name.
+	 */
+	public static InputStats remove(String name) {
+		return (name == null ? null : STATS_MAP.remove(name));
+	}
+
+	/**
+	 * Used to remove all the registered {@link InputStats}.
+	 */
+	public static void clear() {
+		STATS_MAP.clear();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * {@link InputStream} source with {@link ByteBuffer} buffer.
+ * <p/>
+ * The stream is read through {@link Channels#newChannel(InputStream)}; when
+ * the source is a {@link FileInputStream} this resolves to the stream's own
+ * file channel and data is read directly into (direct) buffers without an
+ * intermediate heap copy.
+ * <p/>
+ * See {@link MappedFileBufferInput} for how <code>index</code> and
+ * <code>length</code> are applied to {@link ByteBuffer} buffers.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class InputStreamBufferInput extends
+		AbstractLongInput<InputStream, ByteBuffer> {
+	protected ReadableByteChannel channel;
+
+	public InputStreamBufferInput(InputStream source)
+			throws IllegalArgumentException {
+		this(source, UNSPECIFIED);
+	}
+
+	public InputStreamBufferInput(InputStream source, long length)
+			throws IllegalArgumentException {
+		super(source, UNSPECIFIED, length);
+
+		channel = Channels.newChannel(source);
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, buffer.position(), buffer.remaining());
+	}
+
+	public int read(ByteBuffer buffer, int index)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.limit() - index);
+	}
+
+	@Override
+	protected int readImpl(ByteBuffer buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.limit())
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.limit() ["
+					+ buffer.limit() + "]");
+
+		// Do the read op, bounding the buffer to the amount we want.
+		int limit = buffer.limit();
+		buffer.limit(index + length);
+		buffer.position(index);
+		length = channel.read(buffer);
+		buffer.limit(limit);
+
+		// Adjust EOF marker to meet our API design (return 0)
+		if (length < 0)
+			length = 0;
+
+		// Return the amount actually read
+		return length;
+	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		// Do the skip op, re-use amount variable.
+		amount = source.skip(amount);
+
+		/*
+		 * Streams can skip nothing without having hit their end; read a single
+		 * byte to tell the two apart.
+		 */
+		if (amount <= 0)
+			amount = (source.read() == -1 ? 0 : 1);
+
+		// Return the amount actually skipped
+		return amount;
+	}
+}
\ No newline at end of file
@@ -15,19 +15,37 @@
  */
 package com.thebuzzmedia.common.io;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
+ * When the stream is a {@link FileInputStream},
+ * {@link #transferTo(WritableByteChannel)} transfers the data with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} on the
+ * stream's channel, which shares its position with the stream; any other
+ * stream is copied through a pooled buffer by {@link TransferUtils}, which
+ * keeps the data a non-blocking channel didn't accept yet for the next
+ * transfer.
+ * 
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
-public class InputStreamInput extends AbstractInput<InputStream, byte[]> {
+public class InputStreamInput extends AbstractLongInput<InputStream, byte[]>
+		implements ITransferableInput<InputStream, byte[]> {
+	/**
+	 * Data read for a transfer to a non-blocking channel that hasn't accepted
+	 * it yet, when the stream isn't a file.
+	 */
+	protected TransferUtils.Carry carry = new TransferUtils.Carry();
+
 	public InputStreamInput(InputStream source) throws IllegalArgumentException {
 		this(source, UNSPECIFIED);
 	}
 
-	public InputStreamInput(InputStream source, int length)
+	public InputStreamInput(InputStream source, long length)
 			throws IllegalArgumentException {
 		super(source, UNSPECIFIED, length);
 	}
@@ -37,7 +55,106 @@ public class InputStreamInput extends AbstractInput<InputStream, byte[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
+	}
+
+	/**
+	 * Overridden to also count the data carried over from a transfer to a
+	 * channel that stopped accepting it.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return (carry.remaining() == 0 && super.isEmpty());
+	}
+
+	public long transferTo(WritableByteChannel target)
+			throws IllegalArgumentException, IOException {
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		if (!(source instanceof FileInputStream)) {
+			// Write what the channel didn't accept last time first.
+			long written = carry.flush(target);
+			position += written;
+
+			if (carry.remaining() > 0)
+				return written;
+
+			written += TransferUtils.copy(this, target, carry);
+
+			// Only move past the data the channel actually accepted.
+			position -= carry.remaining();
+
+			return written;
+		}
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		FileChannel file = ((FileInputStream) source).getChannel();
+
+		// Do the transfer op
+		long transferred = TransferUtils.transfer(file, getLongRemaining(),
+				target);
+
+		// Check if source is empty
+		if (file.position() >= file.size())
+			sourceEmpty = true;
+
+		// Update the position
+		position += transferred;
+
+		// Return the amount actually transferred
+		return transferred;
+	}
+
+	/**
+	 * Overridden to loop over the {@link InputStream}'s own <code>read</code>
+	 * directly, only checking the bounds of this input once.
+	 */
+	@Override
+	protected int readAtLeastImpl(byte[] buffer, int index, int length, int min)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		// Let the data carried over from a transfer be handed out first.
+		if (carry.remaining() > 0)
+			return super.readAtLeastImpl(buffer, index, length, min);
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		long remaining = getLongRemaining();
+
+		// Trim the length of the read if supported and necessary.
+		if (remaining != UNSPECIFIED && length > remaining)
+			length = (int) remaining;
+
+		int total = 0;
+
+		// Do the read op
+		while (total < min && total < length) {
+			int read = source.read(buffer, index + total, length - total);
+
+			if (read == -1) {
+				sourceEmpty = true;
+				break;
+			}
+
+			total += read;
+		}
+
+		// Update the position
+		position += total;
+
+		// Return the amount actually read
+		return total;
 	}
 
 	@Override
@@ -49,6 +166,10 @@ public class InputStreamInput extends AbstractInput<InputStream, byte[]> {
 					+ (index + length) + "] must be <= buffer.length ["
 					+ buffer.length + "]");
 
+		// Hand out the data carried over from a transfer first.
+		if (carry.remaining() > 0)
+			return carry.get(buffer, index, length);
+
 		// Do the read op, re-use length variable.
 		length = source.read(buffer, index, length);
 
@@ -59,4 +180,23 @@ public class InputStreamInput extends AbstractInput<InputStream, byte[]> {
 		// Return the amount actually read
 		return length;
 	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		if (carry.remaining() > 0)
+			return carry.skip(amount);
+
+		// Do the skip op, re-use amount variable.
+		amount = source.skip(amount);
+
+		/*
+		 * Streams can skip nothing without having hit their end; read a single
+		 * byte to tell the two apart.
+		 */
+		if (amount <= 0)
+			amount = (source.read() == -1 ? 0 : 1);
+
+		// Return the amount actually skipped
+		return amount;
+	}
 }
\ No newline at end of file
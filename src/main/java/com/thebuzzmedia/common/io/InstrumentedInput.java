@@ -0,0 +1,157 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+/**
+ * Decorator that records every <code>read</code> operation of the wrapped
+ * {@link IInput} into an {@link InputStats}: the amount of data returned and
+ * the time spent inside the wrapped input's <code>read</code>, which includes
+ * any time spent blocked waiting on its <code>source</code>.
+ * <p/>
+ * Comparing the time spent reading to the total time of a pipeline tells if
+ * it is I/O-bound, while the read-size histogram shows if callers are passing
+ * tiny buffers (or a source is only handing out a little data at a time).
+ * <p/>
+ * The {@link InputStats} can be private to the input, shared by name through
+ * {@link InputStatsRegistry} or given directly; <code>skip</code> operations
+ * are not recorded.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ * @param <BT>
+ *            The type of the buffer that data is read into.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class InstrumentedInput<ST, BT> extends
+		AbstractLongInput<IInput<ST, BT>, BT> {
+	protected InputStats stats;
+
+	public InstrumentedInput(IInput<ST, BT> source)
+			throws IllegalArgumentException {
+		this(source, new InputStats());
+	}
+
+	/**
+	 * Creates an input recording into the {@link InputStats} registered under
+	 * the given name in {@link InputStatsRegistry}.
+	 */
+	public InstrumentedInput(IInput<ST, BT> source, String name)
+			throws IllegalArgumentException {
+		this(source, InputStatsRegistry.get(name));
+	}
+
+	public InstrumentedInput(IInput<ST, BT> source, InputStats stats)
+			throws IllegalArgumentException {
+		super(source, UNSPECIFIED, UNSPECIFIED);
+
+		if (stats == null)
+			throw new IllegalArgumentException("stats cannot be null");
+
+		this.stats = stats;
+	}
+
+	public InputStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return source.isEmpty();
+	}
+
+	@Override
+	public long getLongLength() {
+		return (source instanceof ILongInput ? ((ILongInput<ST, BT>) source)
+				.getLongLength() : source.getLength());
+	}
+
+	@Override
+	public long getLongRemaining() {
+		return (source instanceof ILongInput ? ((ILongInput<ST, BT>) source)
+				.getLongRemaining() : source.getRemaining());
+	}
+
+	/**
+	 * Overridden to hand the buffer to the wrapped input's own
+	 * <code>read(buffer)</code>, which knows how to fill it.
+	 */
+	@Override
+	public int read(BT buffer) throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		long start = System.nanoTime();
+		int read = source.read(buffer);
+		stats.record(read, System.nanoTime() - start);
+
+		// Update the position
+		position += read;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	public int read(BT buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		long start = System.nanoTime();
+		int read = source.read(buffer, index);
+		stats.record(read, System.nanoTime() - start);
+
+		// Update the position
+		position += read;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	@Override
+	protected int readImpl(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Do the read op; the wrapped input verifies the buffer bounds.
+		long start = System.nanoTime();
+		int read = source.read(buffer, index, length);
+		stats.record(read, System.nanoTime() - start);
+
+		// A non-blocking input has no data for us yet.
+		if (read == 0 && !source.isEmpty())
+			return NO_DATA;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		// Do the skip op, re-use amount variable.
+		amount = source.skip(amount);
+
+		// A non-blocking input has no data for us yet.
+		if (amount == 0 && !source.isEmpty())
+			return NO_DATA;
+
+		// Return the amount actually skipped
+		return amount;
+	}
+}
\ No newline at end of file
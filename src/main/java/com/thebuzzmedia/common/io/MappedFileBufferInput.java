@@ -0,0 +1,100 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link FileChannel} source with {@link ByteBuffer} buffer, read through
+ * sliding memory-mapped windows. See {@link AbstractMappedFileInput}.
+ * <p/>
+ * For {@link ByteBuffer} buffers the <code>index</code> and
+ * <code>length</code> arguments of the <code>read</code> operations are
+ * absolute positions within the buffer and must fall within its
+ * <code>limit</code>. After a read the buffer's <code>position</code> is set
+ * to the end of the data written into it, so the simplest way to use this
+ * input is to call {@link #read(ByteBuffer)} (which fills the buffer from its
+ * current <code>position</code> to its <code>limit</code>) and then
+ * {@link ByteBuffer#flip()} the buffer.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class MappedFileBufferInput extends AbstractMappedFileInput<ByteBuffer> {
+	public MappedFileBufferInput(FileChannel source)
+			throws IllegalArgumentException, IOException {
+		this(source, 0, UNSPECIFIED, WINDOW_SIZE);
+	}
+
+	public MappedFileBufferInput(FileChannel source, long index, long length)
+			throws IllegalArgumentException, IOException {
+		this(source, index, length, WINDOW_SIZE);
+	}
+
+	public MappedFileBufferInput(FileChannel source, long index, long length,
+			int windowSize) throws IllegalArgumentException, IOException {
+		super(source, index, length, windowSize);
+	}
+
+	@Override
+	public int read(ByteBuffer buffer) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, buffer.position(), buffer.remaining());
+	}
+
+	public int read(ByteBuffer buffer, int index)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.limit() - index);
+	}
+
+	@Override
+	protected int readImpl(ByteBuffer buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.limit())
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.limit() ["
+					+ buffer.limit() + "]");
+
+		ByteBuffer window = mapWindow();
+
+		// Hit the end of the file
+		if (window == null)
+			return 0;
+
+		// Only read up to the end of the current window
+		if (length > window.remaining())
+			length = window.remaining();
+
+		// Do the read op, bounding the window to the amount we want.
+		int limit = window.limit();
+		window.limit(window.position() + length);
+		buffer.position(index);
+		buffer.put(window);
+		window.limit(limit);
+
+		// Return the amount actually read
+		return length;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link FileChannel} source with <code>byte[]</code> buffer, read through
+ * sliding memory-mapped windows. See {@link AbstractMappedFileInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class MappedFileInput extends AbstractMappedFileInput<byte[]> {
+	public MappedFileInput(FileChannel source)
+			throws IllegalArgumentException, IOException {
+		this(source, 0, UNSPECIFIED, WINDOW_SIZE);
+	}
+
+	public MappedFileInput(FileChannel source, long index, long length)
+			throws IllegalArgumentException, IOException {
+		this(source, index, length, WINDOW_SIZE);
+	}
+
+	public MappedFileInput(FileChannel source, long index, long length,
+			int windowSize) throws IllegalArgumentException, IOException {
+		super(source, index, length, windowSize);
+	}
+
+	public int read(byte[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected int readImpl(byte[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		ByteBuffer window = mapWindow();
+
+		// Hit the end of the file
+		if (window == null)
+			return 0;
+
+		// Only read up to the end of the current window
+		if (length > window.remaining())
+			length = window.remaining();
+
+		// Do the read op
+		window.get(buffer, index, length);
+
+		// Return the amount actually read
+		return length;
+	}
+}
\ No newline at end of file
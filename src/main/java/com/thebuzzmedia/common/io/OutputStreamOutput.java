@@ -0,0 +1,73 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link OutputStream} destination with <code>byte[]</code> buffer.
+ * <p/>
+ * Small writes are batched in a write buffer of <code>bufferSize</code>
+ * (default {@link #BUFFER_SIZE}) before being written to the
+ * <code>destination</code>, so wrapping the destination in a
+ * <code>BufferedOutputStream</code> is unnecessary.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class OutputStreamOutput extends AbstractOutput<OutputStream, byte[]> {
+	public OutputStreamOutput(OutputStream destination)
+			throws IllegalArgumentException {
+		this(destination, UNSPECIFIED, BUFFER_SIZE);
+	}
+
+	public OutputStreamOutput(OutputStream destination, long length)
+			throws IllegalArgumentException {
+		this(destination, length, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            The size of the write buffer or <code>0</code> to pass every
+	 *            write on to the <code>destination</code> directly.
+	 */
+	public OutputStreamOutput(OutputStream destination, long length,
+			int bufferSize) throws IllegalArgumentException {
+		super(destination, UNSPECIFIED, length,
+				(bufferSize > 0 ? new byte[bufferSize] : null));
+
+		if (bufferSize < 0)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= 0");
+	}
+
+	@Override
+	protected int lengthOf(byte[] buffer) {
+		return buffer.length;
+	}
+
+	@Override
+	protected void writeImpl(byte[] buffer, int index, int length)
+			throws IOException {
+		destination.write(buffer, index, length);
+	}
+
+	@Override
+	protected void flushImpl() throws IOException {
+		destination.flush();
+	}
+}
\ No newline at end of file
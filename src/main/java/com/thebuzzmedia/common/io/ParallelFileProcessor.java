@@ -0,0 +1,314 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.thebuzzmedia.common.util.ArrayUtils;
+
+/**
+ * Class used to process a large file in parallel by splitting it into chunks
+ * of records and handing each chunk to an {@link IChunkProcessor} on its own
+ * thread.
+ * <p/>
+ * The file is split into <code>chunkCount</code> roughly equal byte ranges,
+ * then every split point is moved forward to just after the next record
+ * delimiter so no record is ever split between two chunks. Each chunk is
+ * handed to {@link IChunkProcessor#process(ILongInput)} as a
+ * {@link MappedFileInput} bounded to the chunk, and the results are merged,
+ * in file order, with {@link IChunkProcessor#reduce(Object, Object)}.
+ * <p/>
+ * Chunks are processed on the given {@link ExecutorService}; if none is given
+ * they are processed on {@link #DEFAULT_EXECUTOR}, a {@link ForkJoinPool}
+ * shared by all processors so repeated calls don't create and tear down
+ * threads of their own. All chunks read from the same {@link FileChannel}
+ * using positional operations, so the channel's own position is never
+ * changed.
+ *
+ * @param <R>
+ *            The type of the result produced by the {@link IChunkProcessor}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ParallelFileProcessor<R> {
+	/**
+	 * Delimiter used when none is given: a single <code>'\n'</code>.
+	 */
+	public static final byte[] DEFAULT_DELIMITER = { '\n' };
+
+	/**
+	 * Default number of chunks a file is split into; one per available
+	 * processor.
+	 */
+	public static final int CHUNK_COUNT = Runtime.getRuntime()
+			.availableProcessors();
+
+	/**
+	 * Amount of data read at a time while scanning for a delimiter to move a
+	 * split point to.
+	 */
+	protected static final int SCAN_SIZE = 8192;
+
+	/**
+	 * Executor shared by all processors created without one; a
+	 * {@link ForkJoinPool} with one thread per available processor, whose
+	 * (daemon) threads are only started when there is work to do.
+	 */
+	public static final ExecutorService DEFAULT_EXECUTOR = new ForkJoinPool();
+
+	protected IChunkProcessor<R> processor;
+	protected byte[] delimiter;
+	protected int chunkCount;
+	protected ExecutorService executor;
+
+	public ParallelFileProcessor(IChunkProcessor<R> processor)
+			throws IllegalArgumentException {
+		this(processor, DEFAULT_DELIMITER, CHUNK_COUNT, null);
+	}
+
+	/**
+	 * @param executor
+	 *            The executor used to process chunks or <code>null</code> to
+	 *            use {@link #DEFAULT_EXECUTOR}.
+	 */
+	public ParallelFileProcessor(IChunkProcessor<R> processor,
+			byte[] delimiter, int chunkCount, ExecutorService executor)
+			throws IllegalArgumentException {
+		if (processor == null)
+			throw new IllegalArgumentException("processor cannot be null");
+		if (delimiter == null || delimiter.length == 0)
+			throw new IllegalArgumentException(
+					"delimiter cannot be null or empty");
+		if (chunkCount < 1)
+			throw new IllegalArgumentException("chunkCount [" + chunkCount
+					+ "] must be >= 1");
+
+		this.processor = processor;
+		this.delimiter = delimiter;
+		this.chunkCount = chunkCount;
+		this.executor = (executor == null ? DEFAULT_EXECUTOR : executor);
+	}
+
+	public IChunkProcessor<R> getProcessor() {
+		return processor;
+	}
+
+	public byte[] getDelimiter() {
+		return delimiter;
+	}
+
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Used to process the given file in parallel and merge the results of all
+	 * its chunks.
+	 *
+	 * @return the merged result of all the chunks or <code>null</code> if the
+	 *         file is empty.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>file</code> is <code>null</code>.
+	 * @throws IOException
+	 *             if any error occurs while splitting the file or thrown by
+	 *             the {@link IChunkProcessor} while processing a chunk.
+	 */
+	public R process(FileChannel file) throws IllegalArgumentException,
+			IOException {
+		long[] splits = split(file);
+		int chunks = splits.length - 1;
+
+		if (chunks == 0)
+			return null;
+
+		List<Future<R>> futures = new ArrayList<Future<R>>(chunks);
+		boolean failed = true;
+
+		try {
+			for (int i = 0; i < chunks; i++)
+				futures.add(executor.submit(new ChunkTask(file, splits[i],
+						splits[i + 1] - splits[i])));
+
+			R result = null;
+
+			// Merge the results in file order as they become available.
+			for (int i = 0; i < chunks; i++) {
+				R chunkResult = futures.get(i).get();
+				result = (i == 0 ? chunkResult : processor.reduce(result,
+						chunkResult));
+			}
+
+			failed = false;
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for chunks to be processed.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+
+			IOException wrapper = new IOException("Unable to process chunk.");
+			wrapper.initCause(cause);
+			throw wrapper;
+		} finally {
+			// Don't leave chunks running if we are bailing out early.
+			if (failed) {
+				for (int i = 0, size = futures.size(); i < size; i++)
+					futures.get(i).cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Used to split the given file into at most <code>chunkCount</code> chunks
+	 * that each begin at the start of a record. Chunks that would be empty
+	 * (e.g. because a single record spans more than one chunk) are dropped.
+	 *
+	 * @return the boundaries of the chunks; chunk <code>i</code> spans from
+	 *         <code>splits[i]</code> (inclusive) to <code>splits[i + 1]</code>
+	 *         (exclusive). For an empty file, only <code>0</code> is
+	 *         returned.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>file</code> is <code>null</code>.
+	 * @throws IOException
+	 *             if any error occurs while scanning the file for delimiters.
+	 */
+	public long[] split(FileChannel file) throws IllegalArgumentException,
+			IOException {
+		if (file == null)
+			throw new IllegalArgumentException("file cannot be null");
+
+		long size = file.size();
+		long[] splits = new long[chunkCount + 1];
+		int count = 1;
+
+		// Re-used for every scan
+		byte[] scan = new byte[Math.max(SCAN_SIZE, delimiter.length * 2)];
+		ByteBuffer wrapper = ByteBuffer.wrap(scan);
+
+		for (int i = 1; i < chunkCount; i++) {
+			long previous = splits[count - 1];
+			long point = (size / chunkCount) * i;
+
+			if (point <= previous)
+				continue;
+
+			/*
+			 * Start far enough back to find a delimiter that ends right at the
+			 * split point; the record after it then starts the next chunk.
+			 */
+			long split = findSplit(file, wrapper,
+					Math.max(previous, point - delimiter.length), size);
+
+			if (split >= size)
+				break;
+
+			splits[count++] = split;
+		}
+
+		if (size > 0)
+			splits[count++] = size;
+
+		// Trim off the slots of any dropped chunks.
+		long[] result = new long[count];
+		System.arraycopy(splits, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Used to find the index right after the first delimiter that begins at
+	 * or after <code>index</code>.
+	 *
+	 * @return the index right after the delimiter or <code>size</code> if the
+	 *         file contains no more delimiters.
+	 */
+	protected long findSplit(FileChannel file, ByteBuffer wrapper, long index,
+			long size) throws IOException {
+		byte[] scan = wrapper.array();
+
+		while (index < size) {
+			// Fill the scan buffer as far as the file allows.
+			wrapper.clear();
+
+			while (wrapper.hasRemaining()) {
+				int read = file.read(wrapper, index + wrapper.position());
+
+				if (read == -1)
+					break;
+			}
+
+			int length = wrapper.position();
+			int dIndex = (delimiter.length == 1 ? ArrayUtils.indexOfNoCheck(
+					delimiter[0], scan, 0, length) : ArrayUtils.indexOfNoCheck(
+					delimiter, scan, 0, length));
+
+			if (dIndex != ArrayUtils.INVALID_INDEX)
+				return index + dIndex + delimiter.length;
+
+			// Hit the end of the file without finding one.
+			if (index + length >= size)
+				break;
+
+			// Overlap the next scan in case a delimiter straddles the two.
+			index += length - (delimiter.length - 1);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Task used to process a single chunk of the file.
+	 */
+	protected class ChunkTask implements Callable<R> {
+		protected FileChannel file;
+		protected long index;
+		protected long length;
+
+		protected ChunkTask(FileChannel file, long index, long length) {
+			this.file = file;
+			this.index = index;
+			this.length = length;
+		}
+
+		public R call() throws IOException {
+			return processor.process(new MappedFileInput(file, index, length));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,402 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+
+/**
+ * Base class for decorators that add lookahead ({@link #peek(Object, int, int)}
+ * ), {@link #mark(int)}/{@link #reset()} and {@link #unread(int)} support to
+ * any {@link IInput}, including ones wrapping streams that cannot be rewound
+ * themselves.
+ * <p/>
+ * Data read from the wrapped input is kept in a ring buffer that is re-used
+ * for the life of this input. The ring holds data that has been peeked at but
+ * not read yet, followed (going backwards) by the most recently read data,
+ * which is what {@link #unread(int)} and {@link #reset()} rewind into. Large
+ * reads made while no mark is set bypass the ring and go straight to the
+ * caller's buffer.
+ * <p/>
+ * Like {@link java.io.BufferedInputStream}, a mark stays valid until more than
+ * <code>readLimit</code> units have been read after it; the ring is grown as
+ * needed to hold that much data. Wrapped inputs that can seek (those
+ * implementing {@link ISeekableInput}, e.g. {@link ByteArrayInput},
+ * {@link CharSequenceInput} or {@link MappedFileInput}) are simply
+ * repositioned instead, so rewinding them is O(1), never copies any data and
+ * marks on them never expire.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ * @param <BT>
+ *            The type of the primitive array buffer data is read into.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public abstract class PeekableInput<ST, BT> extends
+		AbstractLongInput<IInput<ST, BT>, BT> {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.peekable.bufferSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 8192);
+
+	/**
+	 * Ring buffer; the data at position <code>p</code> (in this input's own
+	 * positions) is kept at index <code>p % capacity</code>.
+	 */
+	protected BT ring;
+	protected int capacity;
+
+	/**
+	 * Positions of the first and one past the last unit of data held in the
+	 * ring. Everything from <code>position</code> to <code>ringEnd</code> has
+	 * been peeked at but not read yet.
+	 */
+	protected long ringStart;
+	protected long ringEnd;
+
+	protected long markPosition;
+	protected int markLimit;
+
+	/**
+	 * Set when the wrapped input can seek; in which case
+	 * <code>sourceBase</code> is its position when it was wrapped.
+	 */
+	protected ISeekableInput<ST, BT> seekable;
+	protected long sourceBase;
+
+	public PeekableInput(IInput<ST, BT> source, int bufferSize)
+			throws IllegalArgumentException {
+		super(source, UNSPECIFIED, UNSPECIFIED);
+
+		if (bufferSize < 1)
+			throw new IllegalArgumentException("bufferSize [" + bufferSize
+					+ "] must be >= 1");
+
+		capacity = bufferSize;
+		ring = newBuffer(bufferSize);
+		markPosition = UNSPECIFIED;
+
+		if (source instanceof ISeekableInput) {
+			seekable = (ISeekableInput<ST, BT>) source;
+			sourceBase = seekable.getLongPosition();
+		}
+	}
+
+	/**
+	 * Used to determine if this input is empty; that is the wrapped input is
+	 * empty and no data is waiting in the ring to be read.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return (position == ringEnd && source.isEmpty());
+	}
+
+	/**
+	 * Used to copy up to <code>length</code> amount of upcoming data into the
+	 * given buffer without consuming it; the next <code>read</code> operation
+	 * returns the same data.
+	 * <p/>
+	 * The ring is grown if needed to hold <code>length</code> units.
+	 *
+	 * @return the amount of data copied into the buffer. This is only ever
+	 *         less than <code>length</code> if the wrapped input ends (or, if
+	 *         it is non-blocking, has no more data available right now) before
+	 *         that much data could be read.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code> or if
+	 *             <code>index</code> or <code>length</code> are invalid.
+	 * @throws IOException
+	 *             if any error occurs while reading from the wrapped input.
+	 */
+	public int peek(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0 || (index + length) > lengthOf(buffer))
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= buffer.length [" + lengthOf(buffer) + "]");
+
+		length = ensureAhead(length);
+		copyOut(position, buffer, index, length);
+
+		return length;
+	}
+
+	/**
+	 * Used to mark the current position so a later call to {@link #reset()}
+	 * can return to it.
+	 *
+	 * @param readLimit
+	 *            The amount of data that can be read after the mark before it
+	 *            is invalidated. Ignored if the wrapped input can seek.
+	 */
+	public void mark(int readLimit) {
+		markPosition = position;
+		markLimit = readLimit;
+	}
+
+	/**
+	 * Used to return to the position last marked with {@link #mark(int)}. The
+	 * mark stays set, so it can be returned to again.
+	 *
+	 * @throws IOException
+	 *             if no mark is set or the mark was invalidated by reading
+	 *             more than <code>readLimit</code> units after it.
+	 */
+	public void reset() throws IOException {
+		if (markPosition == UNSPECIFIED)
+			throw new IOException("No mark is set or the mark has expired.");
+
+		if (markPosition <= position)
+			unread((int) (position - markPosition));
+		else if (markPosition <= ringEnd)
+			// unread() moved back before the mark; the data is still held.
+			position = markPosition;
+		else {
+			seekable.seek(sourceBase + markPosition);
+			position = ringStart = ringEnd = markPosition;
+		}
+	}
+
+	/**
+	 * Used to step back over the last <code>count</code> units of data read,
+	 * so the next <code>read</code> operation returns them again.
+	 * <p/>
+	 * Data can always be unread back to a valid mark; beyond that, whatever is
+	 * still held in the ring can be unread. Inputs that can seek can be unread
+	 * all the way back to where they started.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>count</code> is &lt; 0 or &gt; the amount of data
+	 *             read so far.
+	 * @throws IOException
+	 *             if the data to unread is no longer held in the ring.
+	 */
+	public void unread(int count) throws IllegalArgumentException,
+			IOException {
+		if (count < 0 || count > position)
+			throw new IllegalArgumentException("count [" + count
+					+ "] must be >= 0 and <= getLongPosition() [" + position
+					+ "]");
+
+		long target = position - count;
+
+		if (target >= ringStart)
+			position = target;
+		else if (seekable != null) {
+			// Throw away the ring; it's cheaper to just re-read the data.
+			seekable.seek(sourceBase + target);
+			position = ringStart = ringEnd = target;
+		} else
+			throw new IOException("Unable to unread " + count
+					+ " units; only " + (position - ringStart)
+					+ " units of previously read data are still buffered.");
+	}
+
+	@Override
+	protected int readImpl(BT buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > lengthOf(buffer))
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ lengthOf(buffer) + "]");
+
+		int ahead = (int) (ringEnd - position);
+
+		// Hand out data we already have first.
+		if (ahead > 0) {
+			if (length > ahead)
+				length = ahead;
+
+			copyOut(position, buffer, index, length);
+			return length;
+		}
+
+		int read;
+
+		/*
+		 * Nothing needs keeping for a large, unmarked read; skip the ring
+		 * entirely (giving up the ability to unread into what came before).
+		 */
+		if (length >= capacity
+				&& (markPosition == UNSPECIFIED || seekable != null)) {
+			read = source.read(buffer, index, length);
+			ringStart = ringEnd = position + read;
+		} else {
+			read = fill(1);
+
+			if (length > read)
+				length = read;
+
+			copyOut(position, buffer, index, length);
+			read = length;
+		}
+
+		if (read == 0 && !source.isEmpty())
+			return NO_DATA;
+
+		// Return the amount actually read
+		return read;
+	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		int ahead = (int) (ringEnd - position);
+
+		// Skip over data we already have first.
+		if (ahead > 0)
+			return (amount < ahead ? amount : ahead);
+
+		long skipped;
+
+		// Data after a valid mark must be kept, so it goes through the ring.
+		if (markPosition != UNSPECIFIED && seekable == null) {
+			skipped = fill(1);
+
+			if (amount < skipped)
+				skipped = amount;
+		} else {
+			skipped = source.skip(amount);
+			ringStart = ringEnd = position + skipped;
+		}
+
+		if (skipped == 0 && !source.isEmpty())
+			return NO_DATA;
+
+		// Return the amount actually skipped
+		return skipped;
+	}
+
+	/**
+	 * Used to read from the wrapped input until at least <code>length</code>
+	 * units are waiting in the ring to be read, or the wrapped input can't
+	 * provide any more right now.
+	 *
+	 * @return the amount of data waiting in the ring, up to
+	 *         <code>length</code>.
+	 */
+	protected int ensureAhead(int length) throws IOException {
+		int ahead = (int) (ringEnd - position);
+
+		while (ahead < length && fill(length - ahead) > 0)
+			ahead = (int) (ringEnd - position);
+
+		return (ahead < length ? ahead : length);
+	}
+
+	/**
+	 * Used to do a single read from the wrapped input into the ring, first
+	 * making room for at least <code>minimum</code> more units of data.
+	 * <p/>
+	 * Data that may still be needed (anything not read yet and, for inputs
+	 * that can't be repositioned, anything after a valid mark) is never
+	 * overwritten; the ring is grown instead, or the mark is invalidated if
+	 * keeping it would exceed its <code>readLimit</code>.
+	 *
+	 * @return the amount of data read into the ring.
+	 */
+	protected int fill(int minimum) throws IOException {
+		long keep = position;
+
+		// unread() may have moved the position back before the mark.
+		if (markPosition != UNSPECIFIED && seekable == null)
+			keep = Math.min(markPosition, position);
+
+		int used = (int) (ringEnd - keep);
+
+		if (capacity - used < minimum) {
+			// Let go of the mark rather than grow past its read limit.
+			if (keep < position && used + minimum > markLimit) {
+				markPosition = UNSPECIFIED;
+				used = (int) (ringEnd - position);
+			}
+
+			if (capacity - used < minimum)
+				grow(used + minimum);
+		}
+
+		// Read as much as fits before wrapping around or hitting kept data.
+		int index = (int) (ringEnd % capacity);
+		int length = Math.min(capacity - used, capacity - index);
+		int read = source.read(ring, index, length);
+
+		ringEnd += read;
+
+		if (ringEnd - ringStart > capacity)
+			ringStart = ringEnd - capacity;
+
+		return read;
+	}
+
+	/**
+	 * Used to grow the ring to hold at least <code>minimum</code> units,
+	 * keeping all the data it holds.
+	 */
+	protected void grow(int minimum) {
+		int newCapacity = Math.max(capacity * 2, minimum);
+		BT newRing = newBuffer(newCapacity);
+
+		// Every unit moves to its index in the larger ring.
+		for (long p = ringStart; p < ringEnd;) {
+			int from = (int) (p % capacity);
+			int to = (int) (p % newCapacity);
+			int length = (int) Math.min(ringEnd - p,
+					Math.min(capacity - from, newCapacity - to));
+
+			System.arraycopy(ring, from, newRing, to, length);
+			p += length;
+		}
+
+		ring = newRing;
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Used to copy <code>length</code> units of data held in the ring,
+	 * beginning at the given position, into the given buffer.
+	 */
+	protected void copyOut(long from, BT buffer, int index, int length) {
+		while (length > 0) {
+			int ringIndex = (int) (from % capacity);
+			int count = Math.min(length, capacity - ringIndex);
+
+			System.arraycopy(ring, ringIndex, buffer, index, count);
+
+			from += count;
+			index += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Used to create a new buffer of the given size; used for the ring as the
+	 * buffer type is generic.
+	 */
+	protected abstract BT newBuffer(int size);
+
+	/**
+	 * Used to get the length of the given buffer; used for bounds checking as
+	 * the buffer type is generic.
+	 */
+	protected abstract int lengthOf(BT buffer);
+}
\ No newline at end of file
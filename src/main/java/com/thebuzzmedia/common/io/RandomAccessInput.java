@@ -0,0 +1,264 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class used to read from any position of a {@link FileChannel} without
+ * tracking a position of its own; every <code>read</code> operation is given
+ * the position to read from (like the POSIX <code>pread</code> call).
+ * <p/>
+ * Because no state is changed by a <code>read</code> operation, a single
+ * instance can safely be shared by any number of threads reading different
+ * (or the same) regions of a file at the same time. Reads are done with
+ * {@link FileChannel#read(ByteBuffer, long)}, which never touches the
+ * channel's own position either, so the channel can be shared too.
+ * <p/>
+ * The <code>index</code> and <code>length</code> bounds are specified in
+ * absolute file offsets; read positions are absolute file offsets as well and
+ * must fall within the bounds. Without a <code>length</code> the bounds extend
+ * to the end of the file, wherever that is at the time of each read.
+ * <p/>
+ * <strong>NOTE</strong>: Like all interruptible channels, a
+ * {@link FileChannel} is closed if a thread is interrupted while reading from
+ * it (see {@link ClosedByInterruptException}); this closes it for all the
+ * threads sharing it.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class RandomAccessInput {
+	public static final int UNSPECIFIED = IInput.UNSPECIFIED;
+
+	protected FileChannel source;
+	protected long sIndex;
+	protected long maxLength;
+	protected long endPosition;
+
+	public RandomAccessInput(FileChannel source)
+			throws IllegalArgumentException {
+		this(source, 0, UNSPECIFIED);
+	}
+
+	public RandomAccessInput(FileChannel source, long index, long length)
+			throws IllegalArgumentException {
+		if (source == null)
+			throw new IllegalArgumentException("source cannot be null");
+		if (index < 0)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0");
+		if (length < UNSPECIFIED)
+			throw new IllegalArgumentException(
+					"length ["
+							+ length
+							+ "] must be "
+							+ UNSPECIFIED
+							+ " (unspecified) or a valid length of data from source that is >= 0");
+
+		this.source = source;
+		this.sIndex = index;
+		this.maxLength = length;
+		this.endPosition = (length == UNSPECIFIED ? UNSPECIFIED : index
+				+ length);
+	}
+
+	public FileChannel getSource() {
+		return source;
+	}
+
+	public long getIndex() {
+		return sIndex;
+	}
+
+	/**
+	 * @return the length of the bounds of this input or {@link #UNSPECIFIED}
+	 *         if they extend to the end of the file.
+	 */
+	public long getLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Used to get the amount of data that can be read from the given position
+	 * until the end of the bounds of this input (or of the file, whichever
+	 * comes first).
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>position</code> falls outside of the bounds of this
+	 *             input.
+	 * @throws IOException
+	 *             if the size of the file cannot be determined.
+	 */
+	public long getRemaining(long position) throws IllegalArgumentException,
+			IOException {
+		checkPosition(position);
+
+		long remaining = source.size() - position;
+
+		if (endPosition != UNSPECIFIED && endPosition - position < remaining)
+			remaining = endPosition - position;
+
+		return (remaining < 0 ? 0 : remaining);
+	}
+
+	public int read(long position, byte[] buffer)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(position, buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Used to read up to <code>length</code> bytes from the file, starting at
+	 * the given position, into the given buffer.
+	 *
+	 * @return the amount of data read; only <code>0</code> if
+	 *         <code>position</code> is at the end of the bounds of this input
+	 *         (or of the file).
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code>, if
+	 *             <code>index</code> or <code>length</code> are invalid or if
+	 *             <code>position</code> falls outside of the bounds of this
+	 *             input.
+	 * @throws IOException
+	 *             if any error occurs while reading from the file.
+	 */
+	public int read(long position, byte[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0 || (index + length) > buffer.length)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= buffer.length [" + buffer.length + "]");
+
+		// Each call needs its own wrapper to stay thread-safe.
+		return readInternal(position, ByteBuffer.wrap(buffer, index, length));
+	}
+
+	/**
+	 * Used to read from the file, starting at the given position, into the
+	 * space between the given buffer's position and limit. The buffer's
+	 * position is moved past the data read, as with any channel read.
+	 *
+	 * @return the amount of data read; only <code>0</code> if
+	 *         <code>position</code> is at the end of the bounds of this input
+	 *         (or of the file) or the buffer has no space remaining.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code> or if
+	 *             <code>position</code> falls outside of the bounds of this
+	 *             input.
+	 * @throws IOException
+	 *             if any error occurs while reading from the file.
+	 */
+	public int read(long position, ByteBuffer buffer)
+			throws IllegalArgumentException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return readInternal(position, buffer);
+	}
+
+	/**
+	 * Used to read exactly <code>length</code> bytes from the file, starting at
+	 * the given position, into the given buffer.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if <code>buffer</code> is <code>null</code>, if
+	 *             <code>index</code> or <code>length</code> are invalid or if
+	 *             <code>position</code> falls outside of the bounds of this
+	 *             input.
+	 * @throws EOFException
+	 *             if the bounds of this input (or the file) end before
+	 *             <code>length</code> bytes could be read.
+	 * @throws IOException
+	 *             if any error occurs while reading from the file.
+	 */
+	public void readFully(long position, byte[] buffer, int index, int length)
+			throws IllegalArgumentException, EOFException, IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+		if (index < 0 || length < 0 || (index + length) > buffer.length)
+			throw new IllegalArgumentException("index [" + index
+					+ "] must be >= 0, length [" + length
+					+ "] must be >= 0 and (index + length) [" + (index + length)
+					+ "] must be <= buffer.length [" + buffer.length + "]");
+
+		ByteBuffer wrapper = ByteBuffer.wrap(buffer, index, length);
+
+		while (wrapper.hasRemaining()) {
+			int read = readInternal(position, wrapper);
+
+			if (read == 0)
+				throw new EOFException("Only " + (length - wrapper.remaining())
+						+ " of " + length
+						+ " bytes could be read; the data ends at position "
+						+ position);
+
+			position += read;
+		}
+	}
+
+	/**
+	 * Internal read operation that all other read operations funnel into;
+	 * trims the read to the bounds of this input and reads from the file.
+	 * <p/>
+	 * The end of the file is found by the read itself coming up short (or
+	 * returning <code>-1</code>), so the size of the file is never queried.
+	 */
+	protected int readInternal(long position, ByteBuffer buffer)
+			throws IllegalArgumentException, IOException {
+		checkPosition(position);
+
+		if (!buffer.hasRemaining()
+				|| (endPosition != UNSPECIFIED && position == endPosition))
+			return 0;
+
+		int limit = buffer.limit();
+		int read;
+
+		try {
+			// Trim the length of the read if necessary.
+			if (endPosition != UNSPECIFIED
+					&& buffer.remaining() > endPosition - position)
+				buffer.limit(buffer.position() + (int) (endPosition - position));
+
+			// Do the read op
+			read = source.read(buffer, position);
+		} finally {
+			buffer.limit(limit);
+		}
+
+		// Adjust EOF marker to meet our API design (return 0)
+		return (read < 0 ? 0 : read);
+	}
+
+	private void checkPosition(long position) throws IllegalArgumentException {
+		if (position < sIndex
+				|| (endPosition != UNSPECIFIED && position > endPosition))
+			throw new IllegalArgumentException("position [" + position
+					+ "] must be >= " + sIndex + " and <= " + endPosition);
+	}
+}
\ No newline at end of file
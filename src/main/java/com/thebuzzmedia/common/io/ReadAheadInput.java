@@ -0,0 +1,378 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decorator that reads ahead of the caller, prefetching blocks of data from
+ * the wrapped {@link IInput} on a background thread while the caller processes
+ * the data it has already been given.
+ * <p/>
+ * This lets I/O-bound reads (e.g. an {@link InputStreamInput} over a slow disk
+ * or network stream) overlap with CPU-bound processing of the data instead of
+ * alternating between the two.
+ * <p/>
+ * Up to <code>queueDepth</code> blocks of <code>blockSize</code> bytes are
+ * read ahead; all blocks are allocated up-front and recycled, so no garbage is
+ * created while reading. Any exception thrown by the wrapped input is re-thrown
+ * to the caller from the <code>read</code> operation that would have returned
+ * the data following it; an {@link Error} is re-thrown wrapped in an
+ * {@link IOException}.
+ * <p/>
+ * By default a daemon {@link Thread} is started to do the prefetching; an
+ * {@link Executor} can be given instead to control which thread (or kind of
+ * thread) is used. The task runs until the wrapped input is empty, an error
+ * occurs or {@link #close()} is called; callers that stop reading before the
+ * end of the input should call {@link #close()} to release the thread.
+ * <p/>
+ * A non-blocking wrapped input that has no data available yet (a
+ * <code>read</code> returning <code>0</code> while it isn't empty) is polled
+ * again after yielding, and then after parking for {@link #IDLE_PARK_NANOS},
+ * so the prefetching task doesn't spin on it.
+ * <p/>
+ * The wrapped input must not be used by anyone else once it has been wrapped.
+ *
+ * @param <ST>
+ *            The source type of the wrapped {@link IInput}.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class ReadAheadInput<ST> extends
+		AbstractLongInput<IInput<ST, byte[]>, byte[]> {
+	public static final String BLOCK_SIZE_PROPERTY_NAME = "tbm.common.io.readAhead.blockSize";
+	public static final String QUEUE_DEPTH_PROPERTY_NAME = "tbm.common.io.readAhead.queueDepth";
+
+	public static final int BLOCK_SIZE = Integer.getInteger(
+			BLOCK_SIZE_PROPERTY_NAME, 65536);
+	public static final int QUEUE_DEPTH = Integer.getInteger(
+			QUEUE_DEPTH_PROPERTY_NAME, 2);
+
+	/**
+	 * How long the prefetching task parks after a run of empty reads before
+	 * polling the wrapped input again.
+	 */
+	public static final long IDLE_PARK_NANOS = 1000000;
+
+	/**
+	 * Number of empty reads in a row the prefetching task only yields after,
+	 * before it starts parking.
+	 */
+	protected static final int IDLE_SPIN_COUNT = 16;
+
+	protected int blockSize;
+	protected int queueDepth;
+
+	/**
+	 * Blocks that have been filled by the prefetching task and are waiting to
+	 * be read by the caller.
+	 */
+	protected BlockingQueue<Block> filled;
+
+	/**
+	 * Blocks that have been consumed by the caller and can be filled again.
+	 */
+	protected BlockingQueue<Block> free;
+
+	/**
+	 * Block the caller is currently reading from or <code>null</code>.
+	 */
+	protected Block current;
+
+	protected volatile boolean closed;
+
+	public ReadAheadInput(IInput<ST, byte[]> source)
+			throws IllegalArgumentException {
+		this(source, BLOCK_SIZE, QUEUE_DEPTH, null);
+	}
+
+	public ReadAheadInput(IInput<ST, byte[]> source, int blockSize,
+			int queueDepth) throws IllegalArgumentException {
+		this(source, blockSize, queueDepth, null);
+	}
+
+	/**
+	 * @param executor
+	 *            The executor used to run the prefetching task or
+	 *            <code>null</code> to start a new daemon {@link Thread} for
+	 *            it.
+	 */
+	public ReadAheadInput(IInput<ST, byte[]> source, int blockSize,
+			int queueDepth, Executor executor) throws IllegalArgumentException {
+		super(source, UNSPECIFIED, UNSPECIFIED);
+
+		if (blockSize < 1)
+			throw new IllegalArgumentException("blockSize [" + blockSize
+					+ "] must be >= 1");
+		if (queueDepth < 1)
+			throw new IllegalArgumentException("queueDepth [" + queueDepth
+					+ "] must be >= 1");
+
+		this.blockSize = blockSize;
+		this.queueDepth = queueDepth;
+
+		/*
+		 * One block for every queue slot, plus the one the caller is reading
+		 * from and the one the prefetching task is filling.
+		 */
+		int blockCount = queueDepth + 2;
+
+		filled = new ArrayBlockingQueue<Block>(blockCount + 1);
+		free = new ArrayBlockingQueue<Block>(blockCount);
+
+		for (int i = 0; i < blockCount; i++)
+			free.add(new Block(blockSize));
+
+		Runnable task = new ReadAheadTask();
+
+		if (executor == null) {
+			Thread thread = new Thread(task, "ReadAheadInput");
+			thread.setDaemon(true);
+			thread.start();
+		} else
+			executor.execute(task);
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Used to stop the prefetching task and release any blocks it has read
+	 * ahead. This input is considered empty after being closed.
+	 * <p/>
+	 * The wrapped input is not closed by this operation.
+	 */
+	public void close() {
+		closed = true;
+		sourceEmpty = true;
+
+		// Hand blocks back so a prefetching task waiting on them can exit.
+		Block block;
+
+		while ((block = filled.poll()) != null)
+			free.offer(block);
+	}
+
+	public int read(byte[] buffer, int index) throws IllegalArgumentException,
+			IOException {
+		if (buffer == null)
+			throw new IllegalArgumentException("buffer cannot be null");
+
+		return read(buffer, index, buffer.length - index);
+	}
+
+	@Override
+	protected int readImpl(byte[] buffer, int index, int length)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		// Move onto the next block once the current one is used up.
+		if (current == null || current.offset == current.length)
+			nextBlock();
+
+		// Only read up to the end of the current block (0 means EOF)
+		if (length > current.length - current.offset)
+			length = current.length - current.offset;
+
+		// Do the read op
+		System.arraycopy(current.data, current.offset, buffer, index, length);
+		current.offset += length;
+
+		// Return the amount actually read
+		return length;
+	}
+
+	/**
+	 * Implemented to drop data from the blocks that have been read ahead
+	 * without copying it anywhere.
+	 */
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		// Move onto the next block once the current one is used up.
+		if (current == null || current.offset == current.length)
+			nextBlock();
+
+		// Only skip up to the end of the current block (0 means EOF)
+		int length = current.length - current.offset;
+
+		if (amount < length)
+			length = (int) amount;
+
+		current.offset += length;
+
+		// Return the amount actually skipped
+		return length;
+	}
+
+	/**
+	 * Used to recycle the current block and wait for the next one to be read
+	 * ahead.
+	 */
+	protected void nextBlock() throws IOException {
+		if (current != null) {
+			/*
+			 * A failed block is kept as the current block so every subsequent
+			 * read reports the same problem.
+			 */
+			checkError(current);
+			free.offer(current);
+		}
+
+		try {
+			current = filled.take();
+		} catch (InterruptedException e) {
+			current = null;
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while waiting for the next block to be read ahead.");
+		}
+
+		// Re-throw any problem hit by the prefetching task.
+		checkError(current);
+	}
+
+	protected static void checkError(Block block) throws IOException {
+		if (block.error != null)
+			throw block.error;
+		if (block.runtimeError != null)
+			throw block.runtimeError;
+		if (block.fatalError != null)
+			throw new IOException(
+					"Read-ahead failed with an unrecoverable error.",
+					block.fatalError);
+	}
+
+	/**
+	 * A recycled unit of read-ahead data, along with the outcome of the read
+	 * that filled it.
+	 */
+	protected static class Block {
+		protected byte[] data;
+		protected int offset;
+		protected int length;
+
+		protected IOException error;
+		protected RuntimeException runtimeError;
+		protected Error fatalError;
+
+		protected Block(int size) {
+			data = new byte[size];
+		}
+	}
+
+	/**
+	 * Task that fills free blocks from the wrapped input and queues them for
+	 * the caller until the wrapped input is empty.
+	 */
+	protected class ReadAheadTask implements Runnable {
+		public void run() {
+			boolean done = false;
+			int idleCount = 0;
+			Error fatalError = null;
+
+			try {
+				while (!done && !closed) {
+					Block block;
+
+					try {
+						block = free.take();
+					} catch (InterruptedException e) {
+						// Treat interruption as an error so the caller doesn't hang.
+						block = new Block(0);
+						block.error = new InterruptedIOException(
+								"Read-ahead was interrupted.");
+					}
+
+					block.offset = 0;
+
+					if (block.error == null) {
+						try {
+							block.length = source.read(block.data, 0, blockSize);
+
+							// An empty block marks the end of the input.
+							done = (block.length == 0 && source.isEmpty());
+						} catch (IOException e) {
+							block.length = 0;
+							block.error = e;
+						} catch (RuntimeException e) {
+							block.length = 0;
+							block.runtimeError = e;
+						} catch (Error e) {
+							block.length = 0;
+							block.fatalError = e;
+						}
+					}
+
+					if (block.error != null || block.runtimeError != null
+							|| block.fatalError != null)
+						done = true;
+
+					/*
+					 * Skip blocks that came back empty from a source without
+					 * data available yet; we only hand the caller data, errors
+					 * or EOF.
+					 */
+					if (done || block.length > 0) {
+						filled.offer(block);
+						idleCount = 0;
+					} else {
+						free.offer(block);
+
+						// Back off instead of spinning on a non-blocking source.
+						if (++idleCount < IDLE_SPIN_COUNT)
+							Thread.yield();
+						else
+							LockSupport.parkNanos(IDLE_PARK_NANOS);
+					}
+				}
+			} catch (Error e) {
+				fatalError = e;
+				throw e;
+			} finally {
+				/*
+				 * Always leave the caller something to wake up to if we exit
+				 * without queuing the end of the input or an error ourselves.
+				 */
+				if (!done) {
+					Block block = new Block(0);
+
+					if (fatalError != null)
+						block.fatalError = fatalError;
+					else
+						block.error = new IOException(
+								"Read-ahead stopped before the end of the input.");
+
+					filled.offer(block);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -22,12 +22,12 @@ import java.io.Reader;
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.2
  */
-public class ReaderInput extends AbstractInput<Reader, char[]> {
+public class ReaderInput extends AbstractLongInput<Reader, char[]> {
 	public ReaderInput(Reader source) throws IllegalArgumentException {
 		this(source, UNSPECIFIED);
 	}
 
-	public ReaderInput(Reader source, int length)
+	public ReaderInput(Reader source, long length)
 			throws IllegalArgumentException {
 		super(source, UNSPECIFIED, length);
 	}
@@ -37,7 +37,51 @@ public class ReaderInput extends AbstractInput<Reader, char[]> {
 		if (buffer == null)
 			throw new IllegalArgumentException("buffer cannot be null");
 
-		return read(buffer, index, buffer.length);
+		return read(buffer, index, buffer.length - index);
+	}
+
+	/**
+	 * Overridden to loop over the {@link Reader}'s own <code>read</code>
+	 * directly, only checking the bounds of this input once.
+	 */
+	@Override
+	protected int readAtLeastImpl(char[] buffer, int index, int length, int min)
+			throws IllegalArgumentException, IOException {
+		// Verify the buffer bounds
+		if ((index + length) > buffer.length)
+			throw new IllegalArgumentException("(index + length) ["
+					+ (index + length) + "] must be <= buffer.length ["
+					+ buffer.length + "]");
+
+		// Check if we have nothing to do first.
+		if (isEmpty())
+			return 0;
+
+		long remaining = getLongRemaining();
+
+		// Trim the length of the read if supported and necessary.
+		if (remaining != UNSPECIFIED && length > remaining)
+			length = (int) remaining;
+
+		int total = 0;
+
+		// Do the read op
+		while (total < min && total < length) {
+			int read = source.read(buffer, index + total, length - total);
+
+			if (read == -1) {
+				sourceEmpty = true;
+				break;
+			}
+
+			total += read;
+		}
+
+		// Update the position
+		position += total;
+
+		// Return the amount actually read
+		return total;
 	}
 
 	@Override
@@ -59,4 +103,20 @@ public class ReaderInput extends AbstractInput<Reader, char[]> {
 		// Return the amount actually read
 		return length;
 	}
+
+	@Override
+	protected long skipImpl(long amount) throws IOException {
+		// Do the skip op, re-use amount variable.
+		amount = source.skip(amount);
+
+		/*
+		 * Readers can skip nothing without having hit their end; read a single
+		 * char to tell the two apart.
+		 */
+		if (amount <= 0)
+			amount = (source.read() == -1 ? 0 : 1);
+
+		// Return the amount actually skipped
+		return amount;
+	}
 }
\ No newline at end of file
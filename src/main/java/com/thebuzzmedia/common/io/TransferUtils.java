@@ -0,0 +1,318 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class used to move all the data of a byte {@link IInput} into a
+ * {@link WritableByteChannel} (e.g. a socket) as cheaply as the input allows.
+ * <p/>
+ * Inputs implementing {@link ITransferableInput} transfer the data themselves
+ * (e.g. with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * or by writing their wrapped array or buffer directly); all other inputs are
+ * copied through a transfer buffer borrowed from a small shared pool, so
+ * repeated transfers don't allocate a new buffer every time.
+ * <p/>
+ * The inputs in this package that fall back on the copy loop keep the data
+ * a non-blocking channel didn't accept yet in a {@link Carry} and write it
+ * first on their next transfer; other inputs can only be copied to blocking
+ * channels.
+ *
+ * @author Riyad Kalla (software@thebuzzmedia.com)
+ * @since 2.4
+ */
+public class TransferUtils {
+	public static final String BUFFER_SIZE_PROPERTY_NAME = "tbm.common.io.transfer.bufferSize";
+	public static final String POOL_SIZE_PROPERTY_NAME = "tbm.common.io.transfer.poolSize";
+
+	public static final int BUFFER_SIZE = Integer.getInteger(
+			BUFFER_SIZE_PROPERTY_NAME, 65536);
+
+	/**
+	 * Maximum number of idle transfer buffers kept in the pool.
+	 */
+	public static final int POOL_SIZE = Integer.getInteger(
+			POOL_SIZE_PROPERTY_NAME, 16);
+
+	/**
+	 * How long a copy with nowhere to keep unwritten data waits before
+	 * retrying a channel that accepted nothing.
+	 */
+	public static final long RETRY_PARK_NANOS = 1000000;
+
+	private static final Queue<byte[]> POOL = new ConcurrentLinkedQueue<byte[]>();
+
+	/**
+	 * Used to write all the remaining data of the given input to the given
+	 * channel.
+	 * <p/>
+	 * When the input is not an {@link ITransferableInput} the data is copied
+	 * through a transfer buffer and every byte read from the input is written
+	 * before returning, so the channel must be blocking.
+	 * 
+	 * @return the amount of data written to the channel.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if <code>input</code> or <code>target</code> are
+	 *             <code>null</code> or if <code>input</code> is not an
+	 *             {@link ITransferableInput} and <code>target</code> is a
+	 *             non-blocking {@link SelectableChannel}.
+	 * @throws IOException
+	 *             if any error occurs while reading the input or writing to
+	 *             the channel.
+	 */
+	public static long transferTo(IInput<?, byte[]> input,
+			WritableByteChannel target) throws IllegalArgumentException,
+			IOException {
+		if (input == null)
+			throw new IllegalArgumentException("input cannot be null");
+		if (target == null)
+			throw new IllegalArgumentException("target cannot be null");
+
+		if (input instanceof ITransferableInput)
+			return ((ITransferableInput<?, ?>) input).transferTo(target);
+
+		if (target instanceof SelectableChannel
+				&& !((SelectableChannel) target).isBlocking())
+			throw new IllegalArgumentException(
+					"target cannot be a non-blocking channel unless input is an ITransferableInput");
+
+		return copy(input, target, null);
+	}
+
+	/**
+	 * Used to copy the remaining data of the given input to the given channel
+	 * through a pooled transfer buffer. Used by inputs that can only transfer
+	 * some kinds of sources directly to fall back on.
+	 * <p/>
+	 * When the channel stops accepting data the copy returns early and the
+	 * data read from the input but not written yet is kept in
+	 * <code>carry</code> (which then holds on to the transfer buffer); the
+	 * input must write it with {@link Carry#flush(WritableByteChannel)} before
+	 * copying again. Without a <code>carry</code> the copy waits for the
+	 * channel to accept all of it.
+	 *
+	 * @return the amount of data written to the channel.
+	 */
+	static long copy(IInput<?, byte[]> input, WritableByteChannel target,
+			Carry carry) throws IOException {
+		byte[] buffer = POOL.poll();
+
+		if (buffer == null)
+			buffer = new byte[BUFFER_SIZE];
+
+		ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+		long total = 0;
+		boolean carried = false;
+
+		try {
+			int read;
+
+			// Stop when empty or when a non-blocking input has no data yet.
+			while ((read = input.read(buffer, 0, buffer.length)) > 0) {
+				wrapper.clear();
+				wrapper.limit(read);
+
+				if (carry == null) {
+					for (int written; wrapper.hasRemaining(); total += written) {
+						if ((written = target.write(wrapper)) == 0)
+							LockSupport.parkNanos(RETRY_PARK_NANOS);
+					}
+				} else {
+					total += write(wrapper, read, target);
+
+					// Keep the rest for the next call.
+					if (wrapper.hasRemaining()) {
+						carry.wrapper = wrapper;
+						carried = true;
+						break;
+					}
+				}
+			}
+		} finally {
+			if (!carried)
+				release(buffer);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Used to hand the given transfer buffer back to the pool.
+	 */
+	static void release(byte[] buffer) {
+		// The pool is unbounded; stay roughly within POOL_SIZE.
+		if (POOL.size() < POOL_SIZE)
+			POOL.offer(buffer);
+	}
+
+	/**
+	 * Used to write up to <code>length</code> bytes, starting at the given
+	 * buffer's position, to the given channel; the buffer's limit is restored
+	 * afterwards and its position is moved past the data written. Stops early
+	 * if the channel stops accepting data.
+	 *
+	 * @return the amount of data written.
+	 */
+	static int write(ByteBuffer buffer, int length, WritableByteChannel target)
+			throws IOException {
+		int limit = buffer.limit();
+		int start = buffer.position();
+
+		// Bound the buffer to the amount we want.
+		if (length < buffer.remaining())
+			buffer.limit(start + length);
+
+		try {
+			while (buffer.hasRemaining()) {
+				if (target.write(buffer) == 0)
+					break;
+			}
+		} finally {
+			buffer.limit(limit);
+		}
+
+		return buffer.position() - start;
+	}
+
+	/**
+	 * Used to transfer up to <code>length</code> bytes of the given file,
+	 * starting at <code>position</code>, to the given channel, stopping early
+	 * if the end of the file is hit or the channel stops accepting data. The
+	 * file's own position is not changed.
+	 *
+	 * @return the amount of data transferred.
+	 */
+	static long transfer(FileChannel file, long position, long length,
+			WritableByteChannel target) throws IOException {
+		long total = 0;
+
+		while (total < length) {
+			long transferred = file.transferTo(position + total, length
+					- total, target);
+
+			if (transferred <= 0)
+				break;
+
+			total += transferred;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Used to transfer up to <code>length</code> bytes of the given file,
+	 * starting at its current position, to the given channel and move the
+	 * file's position past the data transferred.
+	 *
+	 * @param length
+	 *            The maximum amount of data to transfer or
+	 *            {@link IInput#UNSPECIFIED} to transfer up to the end of the
+	 *            file.
+	 *
+	 * @return the amount of data transferred.
+	 */
+	static long transfer(FileChannel file, long length,
+			WritableByteChannel target) throws IOException {
+		long filePosition = file.position();
+		long size = file.size() - filePosition;
+
+		if (length == IInput.UNSPECIFIED || length > size)
+			length = size;
+
+		long transferred = transfer(file, filePosition, length, target);
+		file.position(filePosition + transferred);
+
+		return transferred;
+	}
+
+	/**
+	 * Holds the data an input read for a copy to a channel that stopped
+	 * accepting it. The data still belongs to the input: it is written first
+	 * by the input's next transfer and handed out first by its next read or
+	 * skip, and the input's position only moves past it once it has been.
+	 */
+	static class Carry {
+		ByteBuffer wrapper;
+
+		int remaining() {
+			return (wrapper == null ? 0 : wrapper.remaining());
+		}
+
+		/**
+		 * Used to write as much of the carried data as the channel accepts.
+		 *
+		 * @return the amount of data written.
+		 */
+		int flush(WritableByteChannel target) throws IOException {
+			if (wrapper == null)
+				return 0;
+
+			int written = write(wrapper, wrapper.remaining(), target);
+			releaseIfDrained();
+
+			return written;
+		}
+
+		/**
+		 * Used to copy up to <code>length</code> bytes of the carried data into
+		 * the given buffer.
+		 *
+		 * @return the amount of data copied.
+		 */
+		int get(byte[] buffer, int index, int length) {
+			if (wrapper == null)
+				return 0;
+
+			length = Math.min(length, wrapper.remaining());
+			wrapper.get(buffer, index, length);
+			releaseIfDrained();
+
+			return length;
+		}
+
+		/**
+		 * Used to discard up to <code>amount</code> bytes of the carried data.
+		 *
+		 * @return the amount of data discarded.
+		 */
+		int skip(long amount) {
+			if (wrapper == null)
+				return 0;
+
+			int length = (int) Math.min(amount, wrapper.remaining());
+			wrapper.position(wrapper.position() + length);
+			releaseIfDrained();
+
+			return length;
+		}
+
+		private void releaseIfDrained() {
+			if (!wrapper.hasRemaining()) {
+				release(wrapper.array());
+				wrapper = null;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -243,8 +243,6 @@ public class ArrayUtils {
 			// If j is values.length, we matched all.
 			if (j == values.length)
 				return index;
-			else
-				index += j;
 		}
 
 		return INVALID_INDEX;
@@ -401,8 +399,6 @@ public class ArrayUtils {
 			// If we incremented j all the way, we matched all of values
 			if (j == values.length)
 				return i - j + 1;
-			else
-				i -= j;
 		}
 
 		return INVALID_INDEX;
@@ -840,8 +836,6 @@ public class ArrayUtils {
 			// If j is values.length, we matched all.
 			if (j == values.length)
 				return index;
-			else
-				index += j;
 		}
 
 		return INVALID_INDEX;
@@ -998,8 +992,6 @@ public class ArrayUtils {
 			// If we incremented j all the way, we matched all of values
 			if (j == values.length)
 				return i - j + 1;
-			else
-				i -= j;
 		}
 
 		return INVALID_INDEX;
@@ -19,9 +19,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 
-import com.thebuzzmedia.common.charset.DecodingUtils;
+import com.thebuzzmedia.common.charset.DecoderSession;
 
 /**
+ * Streams are decoded a buffer at a time with a {@link DecoderSession}, so a
+ * multi-byte character split between two buffers is decoded correctly.
+ * 
  * @author Riyad Kalla (software@thebuzzmedia.com)
  * @since 2.3
  */
@@ -42,18 +45,39 @@ public class StreamUtils {
 			throw new IllegalArgumentException("stream cannot be null");
 
 		int bytesRead = 0;
-		byte[] buffer = new byte[stream.available() < MAX_BUFFER_SIZE ? stream
-				.available() : MAX_BUFFER_SIZE];
-		char[] output = new char[0];
+		int available = stream.available();
+		byte[] buffer = new byte[(available > 0
+				&& available < MAX_BUFFER_SIZE ? available : MAX_BUFFER_SIZE)];
+
+		/*
+		 * The session holds back any multi-byte sequence split between two
+		 * reads and completes it with the next one.
+		 */
+		DecoderSession session = new DecoderSession(charset);
+		char[] output = new char[session.getMaxChars(buffer.length)];
+		int outputLength = 0;
 
 		// Read all the data from the stream.
 		while ((bytesRead = stream.read(buffer)) > -1) {
-			// Decode the read segment.
-			char[] segment = DecodingUtils
-					.decode(buffer, charset, 0, bytesRead);
+			// Make room for the read segment.
+			output = ArrayUtils.ensureCapacity(output,
+					outputLength + session.getMaxChars(bytesRead), 2);
+
+			// Decode the read segment directly into the output.
+			outputLength += session.feed(buffer, 0, bytesRead, output,
+					outputLength);
+		}
+
+		// Decode anything left over from the last read.
+		output = ArrayUtils.ensureCapacity(output,
+				outputLength + session.getMaxChars(0), 2);
+		outputLength += session.finish(output, outputLength);
 
-			// Append the segment to the output.
-			output = ArrayUtils.append(segment, output);
+		// Trim the output to exactly the right size.
+		if (output.length != outputLength) {
+			char[] newArray = new char[outputLength];
+			System.arraycopy(output, 0, newArray, 0, outputLength);
+			output = newArray;
 		}
 
 		try {
@@ -0,0 +1,128 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class CodecContextTest {
+	public static final String TEXT = "caf\u00e9 \u4e2d\u6587 \uD83D\uDE00 plain";
+
+	@Test
+	public void testUTF8() throws Exception {
+		CodecContext context = new CodecContext();
+		byte[] bytes = new byte[64];
+		char[] chars = new char[64];
+
+		for (int i = 0; i < 3; i++) {
+			int encoded = context.encode(TEXT.toCharArray(), 0, TEXT.length(),
+					bytes, 2);
+			assertEquals(TEXT.getBytes("UTF-8").length, encoded);
+
+			int decoded = context.decode(bytes, 2, encoded, chars, 1);
+			assertEquals(TEXT, new String(chars, 1, decoded));
+		}
+	}
+
+	@Test
+	public void testUTF8ExactFit() throws Exception {
+		CodecContext context = new CodecContext();
+		byte[] expected = TEXT.getBytes("UTF-8");
+
+		// Smaller than the worst case for both directions, but big enough.
+		byte[] bytes = new byte[expected.length];
+		char[] chars = new char[TEXT.length()];
+
+		assertEquals(expected.length,
+				context.encode(TEXT.toCharArray(), 0, TEXT.length(), bytes, 0));
+		assertEquals(TEXT.length(),
+				context.decode(bytes, 0, bytes.length, chars, 0));
+		assertEquals(TEXT, new String(chars));
+
+		try {
+			context.decode(bytes, 0, bytes.length, chars, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		try {
+			context.encode(TEXT.toCharArray(), 0, TEXT.length(), bytes, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testOtherCharset() throws Exception {
+		Charset utf16 = Charset.forName("UTF-16BE");
+		CodecContext context = new CodecContext(utf16);
+		byte[] bytes = new byte[64];
+		char[] chars = new char[64];
+
+		for (int i = 0; i < 3; i++) {
+			int encoded = context.encode(TEXT.toCharArray(), 0, TEXT.length(),
+					bytes, 0);
+			assertEquals(TEXT.length() * 2, encoded);
+
+			int decoded = context.decode(bytes, 0, encoded, chars, 0);
+			assertEquals(TEXT, new String(chars, 0, decoded));
+		}
+
+		// The wrappers must follow a switch to different arrays.
+		byte[] other = "hi".getBytes(utf16);
+		assertEquals(2, context.decode(other, 0, other.length, chars, 0));
+		assertEquals("hi", new String(chars, 0, 2));
+
+		try {
+			context.decode(bytes, 0, 8, new char[3], 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBounds() {
+		CodecContext context = new CodecContext();
+
+		try {
+			context.decode(new byte[4], 2, 3, new char[4], 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		try {
+			context.decode(new byte[4], 0, 4, new char[4], 5);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		try {
+			context.encode(null, 0, 0, new byte[4], 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
\ No newline at end of file
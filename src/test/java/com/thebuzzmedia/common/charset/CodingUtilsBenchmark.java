@@ -0,0 +1,191 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the same decode/encode workload on a growing number of threads; with
+ * lock-free codec provisioning the throughput should grow with the thread
+ * count until the available processors run out.
+ */
+public class CodingUtilsBenchmark {
+	public static final int ITERS = 20000;
+
+	public static final byte[] DATA;
+	public static final char[] CHARS;
+
+	private static final Format FORMAT = NumberFormat.getInstance();
+
+	static {
+		// Mostly ASCII with some multi-byte text mixed in, like most input.
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		for (int i = 0; i < 10; i++)
+			load("ascii.txt", out);
+
+		load("utf8.txt", out);
+
+		DATA = out.toByteArray();
+		CHARS = DecodingUtils.decode(DATA);
+	}
+
+	public static void main(String[] args) throws Exception {
+		decodeBenchmark();
+		decoderBenchmark();
+		encodeBenchmark();
+		encoderBenchmark();
+
+		int processors = Runtime.getRuntime().availableProcessors();
+
+		for (int threads = 1; threads < processors; threads *= 2)
+			codingBenchmark(threads);
+
+		codingBenchmark(processors);
+	}
+
+	public static void decodeBenchmark() {
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < ITERS; i++) {
+			if (DecodingUtils.decode(DATA).length != CHARS.length)
+				throw new RuntimeException(
+						"decode returned the wrong amount of data, it shouldn't ever do this in this benchmark.");
+		}
+		System.out.println("decode byte[]\t\telapsed time: "
+				+ (System.currentTimeMillis() - time) + "ms\t("
+				+ FORMAT.format((long) DATA.length * ITERS)
+				+ " bytes decoded)");
+	}
+
+	public static void decoderBenchmark() {
+		// Direct buffers have no backing array and go through the decoder.
+		ByteBuffer buffer = ByteBuffer.allocateDirect(DATA.length);
+		buffer.put(DATA);
+
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < ITERS; i++) {
+			buffer.clear();
+
+			if (DecodingUtils.decode(buffer).length != CHARS.length)
+				throw new RuntimeException(
+						"decode returned the wrong amount of data, it shouldn't ever do this in this benchmark.");
+		}
+		System.out.println("decode direct\t\telapsed time: "
+				+ (System.currentTimeMillis() - time) + "ms\t("
+				+ FORMAT.format((long) DATA.length * ITERS)
+				+ " bytes decoded)");
+	}
+
+	public static void encodeBenchmark() {
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < ITERS; i++) {
+			if (EncodingUtils.encode(CHARS).length != DATA.length)
+				throw new RuntimeException(
+						"encode returned the wrong amount of data, it shouldn't ever do this in this benchmark.");
+		}
+		System.out.println("encode char[]\t\telapsed time: "
+				+ (System.currentTimeMillis() - time) + "ms\t("
+				+ FORMAT.format((long) CHARS.length * ITERS)
+				+ " chars encoded)");
+	}
+
+	public static void encoderBenchmark() {
+		// Read-only buffers hide their array and go through the encoder.
+		CharBuffer buffer = CharBuffer.wrap(CHARS).asReadOnlyBuffer();
+
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < ITERS; i++) {
+			buffer.clear();
+
+			if (EncodingUtils.encode(buffer).length != DATA.length)
+				throw new RuntimeException(
+						"encode returned the wrong amount of data, it shouldn't ever do this in this benchmark.");
+		}
+		System.out.println("encode read-only\telapsed time: "
+				+ (System.currentTimeMillis() - time) + "ms\t("
+				+ FORMAT.format((long) CHARS.length * ITERS)
+				+ " chars encoded)");
+	}
+
+	public static void codingBenchmark(int threads) throws Exception {
+		ExecutorService service = Executors.newFixedThreadPool(threads);
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+		for (int i = 0; i < threads; i++) {
+			tasks.add(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					int total = 0;
+
+					for (int j = 0; j < ITERS; j++) {
+						total += DecodingUtils.decode(DATA).length;
+						total += EncodingUtils.encode(CHARS).length;
+					}
+
+					return Integer.valueOf(total);
+				}
+			});
+		}
+
+		long time = System.currentTimeMillis();
+		List<Future<Integer>> results = service.invokeAll(tasks);
+
+		for (Future<Integer> result : results) {
+			if (result.get().intValue() != (DATA.length + CHARS.length) * ITERS)
+				throw new RuntimeException(
+						"decode/encode returned the wrong amount of data, it shouldn't ever do this in this benchmark.");
+		}
+
+		long elapsed = Math.max(1, System.currentTimeMillis() - time);
+		service.shutdown();
+
+		long ops = (long) threads * ITERS * 2;
+		System.out.println("decode/encode x" + threads
+				+ " threads\telapsed time: " + elapsed + "ms\t("
+				+ FORMAT.format(ops * 1000 / elapsed) + " ops/sec)");
+	}
+
+	private static void load(String name, ByteArrayOutputStream out) {
+		InputStream is = CodingUtilsBenchmark.class.getResourceAsStream(name);
+
+		try {
+			int read;
+			byte[] buffer = new byte[8192];
+
+			while ((read = is.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
\ No newline at end of file
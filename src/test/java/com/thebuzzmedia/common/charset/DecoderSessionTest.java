@@ -0,0 +1,115 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecoderSessionTest {
+	public static final String TEXT = "caf\u00e9 \u4e2d\u6587 \uD83D\uDE00 plain \u00e9\u00e9 \uD83D\uDE00";
+
+	@Test
+	public void testUTF8Splits() throws Exception {
+		testSplits(DecodingUtils.UTF8_CHARSET);
+	}
+
+	@Test
+	public void testASCIISplits() throws Exception {
+		testSplits(DecodingUtils.ASCII_CHARSET);
+	}
+
+	@Test
+	public void testDecoderSplits() throws Exception {
+		testSplits(Charset.forName("UTF-16"));
+		testSplits(Charset.forName("Shift_JIS"));
+	}
+
+	@Test
+	public void testUTF8Truncated() throws Exception {
+		DecoderSession session = new DecoderSession();
+		byte[] data = "a\u20ac".getBytes("UTF-8");
+		char[] dest = new char[8];
+
+		// Only the lead byte and first continuation byte of the euro sign.
+		assertEquals(1, session.feed(data, 0, 3, dest, 0));
+		assertEquals(2, session.getPendingLength());
+		assertEquals(1, session.finish(dest, 1));
+		assertEquals("a\ufffd", new String(dest, 0, 2));
+
+		// The session is ready for a new stream.
+		assertEquals(0, session.getPendingLength());
+		assertEquals(2, session.feed(data, 0, 4, dest, 0));
+		assertEquals("a\u20ac", new String(dest, 0, 2));
+	}
+
+	@Test
+	public void testUTF8Malformed() throws Exception {
+		byte[] data = { 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xF0,
+				(byte) 0x9F, (byte) 0x80, (byte) 0xF0, (byte) 0x9F,
+				(byte) 0x98, (byte) 0x80, (byte) 0x80, (byte) 0xC3 };
+		String expected = new String(DecodingUtils.decode(data));
+
+		// Every way of splitting the data in two must decode the same.
+		for (int i = 0; i <= data.length; i++) {
+			DecoderSession session = new DecoderSession();
+			char[] dest = new char[data.length];
+			int length = session.feed(data, 0, i, dest, 0);
+			length += session.feed(data, i, data.length - i, dest, length);
+			length += session.finish(dest, length);
+
+			assertEquals(expected, new String(dest, 0, length));
+		}
+	}
+
+	@Test
+	public void testRoom() {
+		DecoderSession session = new DecoderSession();
+
+		try {
+			session.feed(new byte[8], 0, 8, new char[7], 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void testSplits(Charset charset) throws Exception {
+		String text = new String(TEXT.getBytes(charset), charset);
+		byte[] data = text.getBytes(charset);
+		Random random = new Random(2011);
+
+		for (int i = 0; i < 200; i++) {
+			DecoderSession session = new DecoderSession(charset);
+			char[] dest = new char[data.length + 8];
+			int length = 0;
+
+			for (int index = 0; index < data.length;) {
+				int chunk = Math.min(random.nextInt(4), data.length - index);
+
+				length += session.feed(data, index, chunk, dest, length);
+				index += chunk;
+			}
+
+			length += session.finish(dest, length);
+			assertEquals(text, new String(dest, 0, length));
+		}
+	}
+}
\ No newline at end of file
@@ -15,13 +15,17 @@
  */
 package com.thebuzzmedia.common.charset;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -180,4 +184,133 @@ public class DecodingUtilsTest {
 		for (int i = 0; i < utf8ChecksumLength; i++)
 			assertEquals(UTF8_CHECKSUM[i], utf8[i]);
 	}
+
+	@Test
+	public void testDecodeConcurrent() throws InterruptedException {
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 500; j++) {
+						char[] utf8 = DecodingUtils.decode(UTF8_DATA, 0,
+								utf8Length);
+
+						if (utf8.length != utf8ChecksumLength)
+							failures.incrementAndGet();
+						else
+							for (int k = 0; k < utf8ChecksumLength; k++)
+								if (UTF8_CHECKSUM[k] != utf8[k]) {
+									failures.incrementAndGet();
+									break;
+								}
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join();
+
+		assertEquals(0, failures.get());
+	}
+
+	@Test
+	public void testDecodeUTF8Random() throws Exception {
+		Random random = new Random(2011);
+
+		for (int i = 0; i < 500; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(64);
+
+			for (int j = 0; j < length; j++) {
+				int type = random.nextInt(10);
+
+				if (type < 6)
+					text.append((char) random.nextInt(0x80));
+				else if (type < 7)
+					text.append((char) (0x80 + random.nextInt(0x780)));
+				else if (type < 9)
+					text.append((char) (0x800 + random.nextInt(0xD000)));
+				else
+					text.appendCodePoint(0x10000 + random.nextInt(0x100000));
+			}
+
+			byte[] data = text.toString().getBytes("UTF-8");
+			assertArrayEquals(text.toString().toCharArray(),
+					DecodingUtils.decode(data));
+		}
+	}
+
+	@Test
+	public void testDecodeUTF8Malformed() {
+		// Stray continuation, overlong, surrogate and > U+10FFFF.
+		assertDecoded("a\uFFFDb", 'a', 0x80, 'b');
+		assertDecoded("\uFFFD\uFFFD", 0xC0, 0xAF);
+		assertDecoded("\uFFFD\uFFFD\uFFFD", 0xED, 0xA0, 0x80);
+		assertDecoded("\uFFFD\uFFFD\uFFFD\uFFFD", 0xF4, 0x90, 0x80, 0x80);
+
+		// Sequences cut short by another char or by the end of the data.
+		assertDecoded("\uFFFDa", 0xE2, 0x82, 'a');
+		assertDecoded("\uFFFDa", 0xF0, 0x9F, 0x98, 'a');
+		assertDecoded("a\uFFFD", 'a', 0xE2, 0x82);
+		assertDecoded("a\uFFFD", 'a', 0xC3);
+	}
+
+	@Test
+	public void testDecodeASCIIHighBytes() {
+		byte[] data = "0123456789abcdef".getBytes();
+		data[9] = (byte) 0xE9;
+
+		char[] ascii = DecodingUtils.decode(data, DecodingUtils.ASCII_CHARSET);
+		assertEquals("012345678\uFFFDabcdef", new String(ascii));
+	}
+
+	@Test
+	public void testDecodeBbOffset() throws Exception {
+		byte[] data = "xxhello \u00e9t\u00e9yy".getBytes("UTF-8");
+		ByteBuffer bb = ByteBuffer.wrap(data, 1, data.length - 2).slice();
+		bb.position(1);
+		bb.limit(bb.limit() - 1);
+
+		assertEquals("hello \u00e9t\u00e9", new String(DecodingUtils.decode(bb)));
+		assertEquals(bb.limit(), bb.position());
+	}
+
+	@Test
+	public void testDecodeIntoArray() {
+		char[] dest = new char[utf8Length + 2];
+		int length = DecodingUtils.decode(UTF8_DATA, 0, utf8Length,
+				DecodingUtils.UTF8_CHARSET, dest, 2);
+
+		assertEquals(utf8ChecksumLength, length);
+
+		for (int i = 0; i < length; i++)
+			assertEquals(UTF8_CHECKSUM[i], dest[i + 2]);
+
+		// Too small to be sure up front; decoded through the decoder instead.
+		dest = new char[utf8ChecksumLength];
+		assertEquals(utf8ChecksumLength, DecodingUtils.decode(UTF8_DATA, 0,
+				utf8Length, DecodingUtils.UTF8_CHARSET, dest, 0));
+
+		try {
+			DecodingUtils.decode(UTF8_DATA, 0, utf8Length,
+					DecodingUtils.UTF8_CHARSET, dest, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void assertDecoded(String expected, int... bytes) {
+		byte[] data = new byte[bytes.length];
+
+		for (int i = 0; i < bytes.length; i++)
+			data[i] = (byte) bytes[i];
+
+		assertEquals(expected, new String(DecodingUtils.decode(data)));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EncoderSessionTest {
+	public static final String TEXT = "caf\u00e9 \u4e2d\u6587 \uD83D\uDE00 plain \uD83D \uDE00\uD83D\uDE00";
+
+	@Test
+	public void testUTF8Splits() throws Exception {
+		testSplits(EncodingUtils.UTF8_CHARSET);
+	}
+
+	@Test
+	public void testASCIISplits() throws Exception {
+		testSplits(EncodingUtils.ASCII_CHARSET);
+	}
+
+	@Test
+	public void testEncoderSplits() throws Exception {
+		testSplits(Charset.forName("UTF-16BE"));
+		testSplits(Charset.forName("Shift_JIS"));
+	}
+
+	@Test
+	public void testUTF8Unpaired() throws Exception {
+		EncoderSession session = new EncoderSession();
+		char[] data = "a\uD83D".toCharArray();
+		byte[] dest = new byte[16];
+
+		assertEquals(1, session.feed(data, 0, 2, dest, 0));
+		assertEquals(1, session.getPendingLength());
+		assertEquals(1, session.finish(dest, 1));
+		assertArrayEquals(new byte[] { 'a', '?' }, Arrays.copyOf(dest, 2));
+		assertEquals(0, session.getPendingLength());
+	}
+
+	private static void testSplits(Charset charset) throws Exception {
+		char[] data = TEXT.toCharArray();
+		byte[] expected = TEXT.getBytes(charset);
+		Random random = new Random(2011);
+
+		for (int i = 0; i < 200; i++) {
+			EncoderSession session = new EncoderSession(charset);
+			byte[] dest = new byte[data.length * 4 + 8];
+			int length = 0;
+
+			for (int index = 0; index < data.length;) {
+				int chunk = Math.min(random.nextInt(4), data.length - index);
+
+				length += session.feed(data, index, chunk, dest, length);
+				index += chunk;
+			}
+
+			length += session.finish(dest, length);
+			assertArrayEquals(expected, Arrays.copyOf(dest, length));
+		}
+	}
+}
\ No newline at end of file
@@ -15,13 +15,16 @@
  */
 package com.thebuzzmedia.common.charset;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -222,4 +225,96 @@ public class EncodingUtilsTest {
 		for (int i = 0; i < utf8ChecksumLength; i++)
 			assertEquals(UTF8_CHECKSUM[i], utf8[i]);
 	}
+
+	@Test
+	public void testEncodeUTF8Random() throws Exception {
+		Random random = new Random(2011);
+
+		for (int i = 0; i < 500; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(64);
+
+			for (int j = 0; j < length; j++) {
+				int type = random.nextInt(10);
+
+				if (type < 6)
+					text.append((char) random.nextInt(0x80));
+				else if (type < 7)
+					text.append((char) (0x80 + random.nextInt(0x780)));
+				else if (type < 8)
+					text.append((char) (0x800 + random.nextInt(0xF800)));
+				else
+					text.appendCodePoint(0x10000 + random.nextInt(0x100000));
+			}
+
+			// Includes unpaired surrogates, which the JDK replaces with '?'.
+			byte[] expected = text.toString().getBytes("UTF-8");
+
+			assertArrayEquals(expected, EncodingUtils.encode(text));
+			assertArrayEquals(expected,
+					EncodingUtils.encode(text.toString().toCharArray()));
+		}
+	}
+
+	@Test
+	public void testEncodeSurrogates() throws Exception {
+		String text = "a\uD83D\uDE00b\uD83Dc\uDE00";
+
+		assertArrayEquals(new byte[] { 'a', (byte) 0xF0, (byte) 0x9F,
+				(byte) 0x98, (byte) 0x80, 'b', '?', 'c', '?' },
+				EncodingUtils.encode(text));
+
+		// A pair cut off by the end of the range is unpaired.
+		assertArrayEquals(new byte[] { 'a', '?' },
+				EncodingUtils.encode(text.toCharArray(), 0, 2));
+	}
+
+	@Test
+	public void testEncodeASCII() throws Exception {
+		String text = "caf\u00e9 \uD83D\uDE00!";
+		byte[] expected = text.getBytes("US-ASCII");
+
+		assertArrayEquals(expected,
+				EncodingUtils.encode(text, EncodingUtils.ASCII_CHARSET));
+		assertArrayEquals(expected, EncodingUtils.encode(text.toCharArray(),
+				EncodingUtils.ASCII_CHARSET));
+	}
+
+	@Test
+	public void testEncodeCbOffset() throws Exception {
+		char[] data = "xxhello \u00e9t\u00e9yy".toCharArray();
+		CharBuffer cb = CharBuffer.wrap(data, 1, data.length - 2).slice();
+		cb.position(1);
+		cb.limit(cb.limit() - 1);
+
+		assertArrayEquals("hello \u00e9t\u00e9".getBytes("UTF-8"),
+				EncodingUtils.encode(cb));
+		assertEquals(cb.limit(), cb.position());
+	}
+
+	@Test
+	public void testEncodeIntoArray() {
+		byte[] dest = new byte[utf8Length * 3 + 2];
+		int length = EncodingUtils.encode(UTF8_DATA, 0, utf8Length,
+				EncodingUtils.UTF8_CHARSET, dest, 2);
+
+		assertEquals(utf8ChecksumLength, length);
+
+		for (int i = 0; i < length; i++)
+			assertEquals(UTF8_CHECKSUM[i], dest[i + 2]);
+
+		// Smaller than the worst case; counted exactly first.
+		dest = new byte[utf8ChecksumLength];
+		assertEquals(utf8ChecksumLength, EncodingUtils.encode(
+				new String(UTF8_DATA, 0, utf8Length),
+				EncodingUtils.UTF8_CHARSET, dest, 0));
+
+		try {
+			EncodingUtils.encode(UTF8_DATA, 0, utf8Length,
+					EncodingUtils.UTF8_CHARSET, dest, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AsyncFileInputTest {
+	public static final byte[] DATA = new byte[256 * 1024];
+
+	private static File file;
+	private static AsynchronousFileChannel channel;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) (i * 31);
+
+		file = File.createTempFile("AsyncFileInputTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		channel = AsynchronousFileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		channel.close();
+	}
+
+	@Test
+	public void testReadsInFlight() throws Exception {
+		AsyncFileInput input = new AsyncFileInput(channel);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		List<byte[]> buffers = new ArrayList<byte[]>();
+
+		// Issue every read before waiting on any of them.
+		while (!input.isEmpty()) {
+			byte[] buffer = new byte[10000];
+			buffers.add(buffer);
+			futures.add(input.readAsync(buffer, 0, buffer.length));
+		}
+
+		assertEquals(DATA.length, input.getLongPosition());
+		assertEquals(0, input.getLongRemaining());
+
+		int offset = 0;
+
+		for (int i = 0; i < futures.size(); i++) {
+			int read = futures.get(i).get(10, TimeUnit.SECONDS).intValue();
+			byte[] buffer = buffers.get(i);
+
+			for (int j = 0; j < read; j++)
+				assertEquals(DATA[offset + j], buffer[j]);
+
+			offset += read;
+		}
+
+		assertEquals(DATA.length, offset);
+		assertEquals(Integer.valueOf(0), input.readAsync(new byte[10], 0, 10)
+				.get());
+	}
+
+	@Test
+	public void testHandler() throws Exception {
+		AsyncFileInput input = new AsyncFileInput(channel, 1000, 5000);
+		final byte[] buffer = new byte[6000];
+		final AtomicInteger total = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(3);
+
+		CompletionHandler<Integer, Integer> handler = new CompletionHandler<Integer, Integer>() {
+			public void completed(Integer result, Integer index) {
+				total.addAndGet(result.intValue());
+				latch.countDown();
+			}
+
+			public void failed(Throwable exc, Integer index) {
+				latch.countDown();
+			}
+		};
+
+		// Trimmed to the bounds; the third read gets nothing.
+		input.readAsync(buffer, 0, 3000, Integer.valueOf(0), handler);
+		input.readAsync(buffer, 3000, 3000, Integer.valueOf(3000), handler);
+		input.readAsync(buffer, 5000, 1000, Integer.valueOf(5000), handler);
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals(5000, total.get());
+		assertTrue(input.isEmpty());
+
+		for (int i = 0; i < 5000; i++)
+			assertEquals(DATA[1000 + i], buffer[i]);
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		AsynchronousFileChannel closed = AsynchronousFileChannel.open(
+				file.toPath(), StandardOpenOption.READ);
+		AsyncFileInput input = new AsyncFileInput(closed);
+		closed.close();
+
+		try {
+			input.readAsync(new byte[10], 0, 10).get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBounds() throws IOException {
+		new AsyncFileInput(channel).readAsync(new byte[10], 5, 6);
+	}
+}
\ No newline at end of file
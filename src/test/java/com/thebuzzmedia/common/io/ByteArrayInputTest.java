@@ -0,0 +1,148 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ByteArrayInputTest {
+	public static final byte[] DATA = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+	@Test
+	public void testRead() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA);
+		byte[] buffer = new byte[DATA.length];
+
+		assertEquals(DATA.length, input.read(buffer, 0, buffer.length));
+		assertArrayEquals(DATA, buffer);
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(buffer, 0, buffer.length));
+	}
+
+	@Test
+	public void testReadBounded() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA, 3, 4);
+		byte[] buffer = new byte[DATA.length];
+
+		assertEquals(3, input.getLongPosition());
+		assertEquals(4, input.getLongRemaining());
+		assertEquals(4, input.read(buffer, 0, buffer.length));
+
+		for (int i = 0; i < 4; i++)
+			assertEquals(DATA[3 + i], buffer[i]);
+
+		assertTrue(input.isEmpty());
+		assertEquals(7, input.getPosition());
+	}
+
+	@Test
+	public void testSkipAndSeek() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA, 2, 6);
+		byte[] buffer = new byte[1];
+
+		assertEquals(3, input.skip(3));
+		assertEquals(5, input.getPosition());
+		assertEquals(1, input.read(buffer));
+		assertEquals(5, buffer[0]);
+
+		// Skips are trimmed to the bounds.
+		assertEquals(2, input.skip(100));
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.skip(1));
+
+		// Seeking back makes the input readable again.
+		input.seek(2);
+		assertFalse(input.isEmpty());
+		assertEquals(1, input.read(buffer));
+		assertEquals(2, buffer[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSeekOutOfBounds() throws IOException {
+		new ByteArrayInput(DATA, 2, 6).seek(1);
+	}
+
+	@Test
+	public void testSkipByteBuffer() throws IOException {
+		ByteBufferInput input = new ByteBufferInput(ByteBuffer.wrap(DATA));
+		byte[] buffer = new byte[1];
+
+		assertEquals(4, input.skip(4));
+		assertEquals(1, input.read(buffer));
+		assertEquals(4, buffer[0]);
+
+		input.seek(1);
+		assertEquals(1, input.read(buffer));
+		assertEquals(1, buffer[0]);
+	}
+
+	@Test
+	public void testScatterRead() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA, 1, 8);
+		byte[] header = new byte[3];
+		byte[] body = new byte[10];
+
+		assertEquals(8, input.read(new byte[][] { header, body }));
+		assertEquals(1, header[0]);
+		assertEquals(3, header[2]);
+		assertEquals(4, body[0]);
+		assertEquals(8, body[4]);
+		assertEquals(0, body[5]);
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(new byte[][] { header }));
+
+		ByteBufferInput bufferInput = new ByteBufferInput(ByteBuffer.wrap(DATA));
+
+		assertEquals(3, bufferInput.read(new byte[][] { header }));
+		assertEquals(7, bufferInput.read(new byte[][] { new byte[2], body }));
+		assertEquals(5, body[0]);
+		assertTrue(bufferInput.isEmpty());
+	}
+
+	@Test
+	public void testReadIndex() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA);
+		byte[] buffer = new byte[4];
+
+		// Only fills the buffer from the index onward.
+		assertEquals(2, input.read(buffer, 2));
+		assertEquals(0, buffer[2]);
+		assertEquals(1, buffer[3]);
+	}
+
+	@Test
+	public void testReadFully() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA);
+		byte[] buffer = new byte[8];
+
+		input.readFully(buffer, 2, 6);
+		assertEquals(5, buffer[7]);
+		assertEquals(4, input.readAtLeast(buffer, 0, 8, 1));
+		assertEquals(9, buffer[3]);
+
+		try {
+			input.readFully(buffer, 0, 1);
+			fail();
+		} catch (EOFException e) {
+			// expected
+		}
+	}
+}
\ No newline at end of file
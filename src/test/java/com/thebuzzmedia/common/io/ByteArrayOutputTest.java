@@ -0,0 +1,57 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class ByteArrayOutputTest {
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeCapacity() {
+		new ByteArrayOutput(-1);
+	}
+
+	@Test
+	public void testGrowth() throws IOException {
+		ByteArrayOutput output = new ByteArrayOutput(2);
+		byte[] expected = new byte[1000];
+
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = (byte) i;
+			output.write(new byte[] { (byte) i });
+		}
+
+		assertEquals(expected.length, output.getPosition());
+		assertArrayEquals(expected, output.toByteArray());
+		assertTrue(output.getDestination().length >= expected.length);
+	}
+
+	@Test
+	public void testBounded() throws IOException {
+		byte[] destination = new byte[10];
+		ByteArrayOutput output = new ByteArrayOutput(destination, 2, 3);
+
+		assertEquals(3, output.write(new byte[] { 1, 2, 3, 4 }));
+		assertTrue(output.isFull());
+		assertSame(destination, output.getDestination());
+		assertArrayEquals(new byte[] { 0, 0, 1, 2, 3, 0, 0, 0, 0, 0 },
+				destination);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, output.toByteArray());
+	}
+}
\ No newline at end of file
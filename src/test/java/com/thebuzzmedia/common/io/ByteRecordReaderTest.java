@@ -0,0 +1,92 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.thebuzzmedia.common.io.DecodingInputTest.TrickleInputStream;
+
+public class ByteRecordReaderTest {
+	@Test
+	public void testLines() throws IOException {
+		ByteRecordReader reader = new ByteRecordReader(new ByteArrayInput(
+				"one\ntwo\n\nthree".getBytes("US-ASCII")));
+
+		assertEquals(asList("one", "two", "", "three"), readAll(reader));
+		assertTrue(reader.isEmpty());
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testTrailingDelimiter() throws IOException {
+		ByteRecordReader reader = new ByteRecordReader(new ByteArrayInput(
+				"one\ntwo\n".getBytes("US-ASCII")));
+
+		assertEquals(asList("one", "two"), readAll(reader));
+	}
+
+	@Test
+	public void testSplitAcrossReads() throws IOException {
+		// Every record and delimiter is split across reads of the input.
+		ByteRecordReader reader = new ByteRecordReader(new InputStreamInput(
+				new TrickleInputStream("alpha\r\nbeta\r\r\ngamma\r\n"
+						.getBytes("US-ASCII"))), new byte[] { '\r', '\n' }, 4);
+
+		assertEquals(asList("alpha", "beta\r", "gamma"), readAll(reader));
+	}
+
+	@Test
+	public void testGrowBuffer() throws IOException {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < 1000; i++)
+			builder.append(i);
+
+		String record = builder.toString();
+		ByteRecordReader reader = new ByteRecordReader(new ByteArrayInput(
+				(record + "||" + record).getBytes("US-ASCII")), new byte[] {
+				'|', '|' }, 8);
+
+		assertEquals(asList(record, record), readAll(reader));
+	}
+
+	private static List<String> asList(String... values) {
+		List<String> list = new ArrayList<String>();
+
+		for (String value : values)
+			list.add(value);
+
+		return list;
+	}
+
+	private static List<String> readAll(ByteRecordReader reader)
+			throws IOException {
+		List<String> records = new ArrayList<String>();
+
+		while (reader.next())
+			records.add(new String(reader.getBuffer(), reader.getOffset(),
+					reader.getLength(), "US-ASCII"));
+
+		return records;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.Test;
+
+public class ChannelBufferInputTest {
+	public static final byte[] DATA = new byte[1000];
+
+	static {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) i;
+	}
+
+	@Test
+	public void testChannelToChannel() throws IOException {
+		ChannelBufferInput input = new ChannelBufferInput(
+				Channels.newChannel(new ByteArrayInputStream(DATA)), 900);
+
+		assertArrayEquals(copyOf(DATA, 900), pump(input));
+		assertEquals(900, input.getLongPosition());
+	}
+
+	@Test
+	public void testStreamToChannel() throws IOException {
+		InputStreamBufferInput input = new InputStreamBufferInput(
+				new ByteArrayInputStream(DATA));
+
+		assertArrayEquals(DATA, pump(input));
+		assertTrue(input.isEmpty());
+	}
+
+	@Test
+	public void testByteBufferToChannel() throws IOException {
+		ByteBufferBufferInput input = new ByteBufferBufferInput(
+				ByteBuffer.wrap(DATA));
+
+		assertArrayEquals(DATA, pump(input));
+		assertEquals(0, input.getRemaining());
+	}
+
+	@Test
+	public void testReadIndexLength() throws IOException {
+		ChannelBufferInput input = new ChannelBufferInput(
+				Channels.newChannel(new ByteArrayInputStream(DATA)));
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+
+		assertEquals(4, input.read(buffer, 8, 4));
+		assertEquals(12, buffer.position());
+		assertEquals(16, buffer.limit());
+
+		for (int i = 0; i < 4; i++)
+			assertEquals(DATA[i], buffer.get(8 + i));
+	}
+
+	private static byte[] pump(IInput<?, ByteBuffer> input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WritableByteChannel channel = Channels.newChannel(out);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+
+		while (!input.isEmpty()) {
+			buffer.clear();
+			input.read(buffer);
+			buffer.flip();
+
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+
+		return out.toByteArray();
+	}
+
+	private static byte[] copyOf(byte[] array, int length) {
+		byte[] result = new byte[length];
+		System.arraycopy(array, 0, result, 0, length);
+		return result;
+	}
+
+	@Test
+	public void testScatterRead() throws IOException {
+		Pipe pipe = Pipe.open();
+		pipe.sink().write(ByteBuffer.wrap(DATA));
+		pipe.sink().close();
+
+		ChannelBufferInput input = new ChannelBufferInput(pipe.source(), 100);
+		ByteBuffer header = ByteBuffer.allocate(10);
+		ByteBuffer body = ByteBuffer.allocateDirect(200);
+
+		long read = 0;
+
+		while (!input.isEmpty())
+			read += input.read(new ByteBuffer[] { header, body });
+
+		assertEquals(100, read);
+		assertEquals(10, header.position());
+		assertEquals(90, body.position());
+
+		// Limits restored after being bounded
+		assertEquals(200, body.limit());
+		assertEquals(DATA[9], header.get(9));
+		assertEquals(DATA[99], body.get(89));
+		pipe.source().close();
+	}
+}
\ No newline at end of file
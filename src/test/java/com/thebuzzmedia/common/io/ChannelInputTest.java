@@ -0,0 +1,150 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+public class ChannelInputTest {
+	public static final byte[] DATA = "hello non-blocking world".getBytes();
+
+	@Test
+	public void testBlockingRead() throws IOException {
+		ChannelInput input = new ChannelInput(
+				Channels.newChannel(new ByteArrayInputStream(DATA)));
+		byte[] buffer = new byte[64];
+
+		assertEquals(DATA.length, input.read(buffer));
+		assertFalse(input.isEmpty());
+		assertEquals(0, input.read(buffer));
+		assertTrue(input.isEmpty());
+	}
+
+	@Test
+	public void testNonBlockingRead() throws IOException {
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+
+		ChannelInput input = new ChannelInput(pipe.source());
+		byte[] buffer = new byte[64];
+
+		// Nothing written yet; no data, but not empty either.
+		assertEquals(0, input.read(buffer));
+		assertFalse(input.isEmpty());
+
+		pipe.sink().write(ByteBuffer.wrap(DATA));
+
+		int total = 0;
+
+		while (total < DATA.length)
+			total += input.read(buffer, total);
+
+		assertEquals(DATA.length, total);
+		assertEquals(DATA.length, input.getLongPosition());
+		assertFalse(input.isEmpty());
+
+		for (int i = 0; i < DATA.length; i++)
+			assertEquals(DATA[i], buffer[i]);
+
+		// Closing the sink is the only thing that makes the input empty.
+		pipe.sink().close();
+
+		while (!input.isEmpty())
+			assertEquals(0, input.read(buffer));
+
+		pipe.source().close();
+	}
+
+	@Test
+	public void testSkipFile() throws IOException {
+		File file = File.createTempFile("ChannelInputTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			ChannelInput input = new ChannelInput(raf.getChannel());
+			byte[] buffer = new byte[64];
+
+			assertEquals(6, input.skip(6));
+			assertEquals(6, raf.getChannel().position());
+			assertEquals(DATA.length - 6, input.skip(100));
+			assertEquals(0, input.skip(1));
+			assertTrue(input.isEmpty());
+			assertEquals(0, input.read(buffer));
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testSkipNonBlocking() throws IOException {
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+
+		ChannelInput input = new ChannelInput(pipe.source());
+
+		assertEquals(0, input.skip(10));
+		assertFalse(input.isEmpty());
+
+		pipe.sink().write(ByteBuffer.wrap(DATA));
+
+		assertEquals(10, input.skip(10));
+		assertEquals(10, input.getLongPosition());
+	}
+
+	@Test
+	public void testScatterRead() throws IOException {
+		byte[] header = new byte[5];
+		byte[] body = new byte[64];
+
+		// Bounded, through a ScatteringByteChannel
+		Pipe pipe = Pipe.open();
+		pipe.sink().write(ByteBuffer.wrap(DATA));
+		pipe.sink().close();
+
+		ChannelInput input = new ChannelInput(pipe.source(), 8);
+
+		assertEquals(8, input.read(new byte[][] { header, body }));
+		assertEquals(DATA[4], header[4]);
+		assertEquals(DATA[7], body[2]);
+		assertTrue(input.isEmpty());
+		pipe.source().close();
+
+		// Not a ScatteringByteChannel
+		input = new ChannelInput(Channels.newChannel(new ByteArrayInputStream(
+				DATA)));
+
+		assertEquals(DATA.length, input.read(new byte[][] { header, body }));
+		assertEquals(DATA[5], body[0]);
+		assertEquals(0, input.read(new byte[][] { header, body }));
+		assertTrue(input.isEmpty());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+
+import org.junit.Test;
+
+public class ChannelOutputTest {
+	@Test
+	public void testGatheringWrite() throws IOException {
+		File file = File.createTempFile("ChannelOutputTest", ".bin");
+		file.deleteOnExit();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		ChannelOutput output = new ChannelOutput(raf.getChannel());
+
+		output.write(new byte[] { 1, 2 });
+		assertEquals(8, output.write(new byte[][] { { 3, 4, 5 }, { 6 },
+				{ 7, 8, 9, 10 } }));
+		output.flush();
+		raf.close();
+
+		assertEquals(10, output.getPosition());
+
+		byte[] result = new byte[16];
+		FileInputStream in = new FileInputStream(file);
+		assertEquals(10, in.read(result));
+		in.close();
+
+		for (int i = 0; i < 10; i++)
+			assertEquals(i + 1, result[i]);
+	}
+
+	@Test
+	public void testGatheringWrappersReused() throws IOException {
+		File file = File.createTempFile("ChannelOutputTest", ".bin");
+		file.deleteOnExit();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		ChannelOutput output = new ChannelOutput(raf.getChannel());
+		byte[][] buffers = new byte[][] { { 1, 2 }, { 3 } };
+
+		try {
+			output.write(buffers);
+			ByteBuffer[] wrappers = output.wrappers;
+			ByteBuffer first = wrappers[0];
+
+			assertEquals(3, output.write(buffers));
+			assertSame(wrappers, output.wrappers);
+			assertSame(first, output.wrappers[0]);
+			assertEquals(6, raf.length());
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testThrottledDestination() throws IOException {
+		TransferUtilsTest.ThrottledChannel channel = new TransferUtilsTest.ThrottledChannel();
+		channel.refill = 100;
+
+		ChannelOutput output = new ChannelOutput(channel, IOutput.UNSPECIFIED,
+				0);
+		byte[] data = new byte[5000];
+
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) i;
+
+		assertEquals(data.length, output.write(data));
+		assertArrayEquals(data, channel.baos.toByteArray());
+	}
+
+	@Test
+	public void testNonBlockingRejected() throws IOException {
+		Pipe pipe = Pipe.open();
+
+		try {
+			pipe.sink().configureBlocking(false);
+			new ChannelOutput(pipe.sink());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		} finally {
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+}
\ No newline at end of file
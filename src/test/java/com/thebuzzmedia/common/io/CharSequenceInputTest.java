@@ -0,0 +1,83 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.junit.Test;
+
+public class CharSequenceInputTest {
+	public static final String DATA = "The quick brown fox jumps over the lazy dog";
+
+	@Test
+	public void testString() throws IOException {
+		assertRead(DATA);
+	}
+
+	@Test
+	public void testStringBuilder() throws IOException {
+		assertRead(new StringBuilder(DATA));
+	}
+
+	@Test
+	public void testStringBuffer() throws IOException {
+		assertRead(new StringBuffer(DATA));
+	}
+
+	@Test
+	public void testCharBuffer() throws IOException {
+		assertRead(CharBuffer.wrap(DATA.toCharArray()));
+		assertRead(CharBuffer.wrap(DATA));
+
+		// Indices are relative to the buffer's position.
+		CharBuffer buffer = CharBuffer.allocate(DATA.length() + 3);
+		buffer.put("xxx").put(DATA).position(3);
+		assertRead(buffer);
+		assertEquals(3, buffer.position());
+	}
+
+	@Test
+	public void testOtherSequence() throws IOException {
+		// Not one of the bulk copy types
+		assertRead(new CharSequence() {
+			public int length() {
+				return DATA.length();
+			}
+
+			public char charAt(int index) {
+				return DATA.charAt(index);
+			}
+
+			public CharSequence subSequence(int start, int end) {
+				return DATA.subSequence(start, end);
+			}
+		});
+	}
+
+	private static void assertRead(CharSequence source) throws IOException {
+		CharSequenceInput input = new CharSequenceInput(source, 4, 15);
+		char[] buffer = new char[12];
+
+		assertEquals(10, input.read(buffer, 2));
+		assertEquals("quick brow", new String(buffer, 2, 10));
+		assertEquals(5, input.read(buffer));
+		assertEquals("n fox", new String(buffer, 0, 5));
+		assertTrue(input.isEmpty());
+	}
+}
\ No newline at end of file
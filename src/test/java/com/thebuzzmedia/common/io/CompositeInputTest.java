@@ -0,0 +1,155 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CompositeInputTest {
+	@Test
+	public void testReadAcrossInputs() throws IOException {
+		List<IInput<?, byte[]>> inputs = new ArrayList<IInput<?, byte[]>>();
+
+		inputs.add(new ByteArrayInput(new byte[] { 0, 1, 2 }));
+		inputs.add(new ByteArrayInput(new byte[0]));
+		inputs.add(new ByteArrayInput(new byte[] { 3, 4, 5, 6, 7 }));
+		inputs.add(new ByteArrayInput(new byte[] { 8, 9 }));
+
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>(inputs);
+
+		assertEquals(4, input.getInputCount());
+		assertEquals(10, input.getLength());
+		assertEquals(10, input.getRemaining());
+
+		byte[] buffer = new byte[10];
+
+		assertEquals(4, input.read(buffer, 0, 4));
+		assertEquals(6, input.getRemaining());
+		assertEquals(6, input.read(buffer, 4));
+		assertEquals(0, input.getRemaining());
+		assertEquals(10, input.getPosition());
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(buffer));
+
+		for (int i = 0; i < buffer.length; i++)
+			assertEquals(i, buffer[i]);
+	}
+
+	@Test
+	public void testAddAfterEmpty() throws IOException {
+		CompositeInput<char[]> input = new CompositeInput<char[]>();
+		char[] buffer = new char[8];
+
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(buffer));
+
+		input.add(new CharSequenceInput("abc"));
+		input.add(new CharArrayInput("def".toCharArray()));
+
+		assertFalse(input.isEmpty());
+		assertEquals(6, input.read(buffer));
+		assertTrue(input.isEmpty());
+
+		input.add(new CharSequenceInput("gh"));
+
+		assertEquals(2, input.read(buffer, 6));
+		assertEquals("abcdefgh", new String(buffer));
+	}
+
+	@Test
+	public void testUnknownRemaining() throws IOException {
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+
+		input.add(new ByteArrayInput(new byte[] { 1, 2 }));
+		input.add(new InputStreamInput(new java.io.ByteArrayInputStream(
+				new byte[] { 3 })));
+
+		assertEquals(IInput.UNSPECIFIED, input.getLongRemaining());
+
+		byte[] buffer = new byte[4];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(buffer, total, buffer.length - total);
+
+		assertEquals(3, total);
+		assertArrayEquals(new byte[] { 1, 2, 3, 0 }, buffer);
+	}
+
+	@Test(timeout = 10000)
+	public void testManyFragments() throws IOException {
+		// Quadratic bookkeeping would take minutes at this many fragments.
+		int count = 500000;
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+
+		for (int i = 0; i < count; i++)
+			input.add(new ByteArrayInput(new byte[] { (byte) i, (byte) (i + 1),
+					(byte) (i + 2), (byte) (i + 3) }));
+
+		assertEquals(count * 4, input.getLongRemaining());
+
+		byte[] buffer = new byte[4];
+
+		for (int i = 0; i < count; i++) {
+			assertEquals(4, input.read(buffer));
+			assertEquals((byte) i, buffer[0]);
+			assertEquals((byte) (i + 3), buffer[3]);
+		}
+
+		assertEquals(0, input.getLongRemaining());
+		assertTrue(input.isEmpty());
+	}
+
+	@Test
+	public void testByteBufferBuffer() throws IOException {
+		CompositeInput<ByteBuffer> input = new CompositeInput<ByteBuffer>();
+
+		input.add(new ByteBufferBufferInput(ByteBuffer.wrap(new byte[] { 1,
+				2 })));
+		input.add(new ByteBufferBufferInput(ByteBuffer.wrap(new byte[] { 3 })));
+
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.position(1);
+
+		assertEquals(3, input.read(buffer));
+		assertArrayEquals(new byte[] { 0, 1, 2, 3, 0, 0, 0, 0 },
+				buffer.array());
+	}
+
+	@Test
+	public void testSkipAcrossInputs() throws IOException {
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+
+		input.add(new ByteArrayInput(new byte[] { 0, 1, 2 }));
+		input.add(new InputStreamInput(new java.io.ByteArrayInputStream(
+				new byte[] { 3, 4, 5 })));
+
+		byte[] buffer = new byte[1];
+
+		assertEquals(4, input.skip(4));
+		assertEquals(1, input.read(buffer));
+		assertEquals(4, buffer[0]);
+		assertEquals(1, input.skip(2));
+		assertEquals(0, input.skip(1));
+		assertTrue(input.isEmpty());
+	}
+}
\ No newline at end of file
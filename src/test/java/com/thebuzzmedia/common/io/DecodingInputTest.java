@@ -0,0 +1,104 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class DecodingInputTest {
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public static final String TEXT = "ASCII, \u00E9t\u00E9, \u4E2D\u6587, \uD83D\uDE00 and more ASCII.";
+
+	/**
+	 * Stream handing out a single byte per read so every multi-byte sequence
+	 * is split across reads.
+	 */
+	static class TrickleInputStream extends InputStream {
+		private byte[] data;
+		private int index;
+
+		TrickleInputStream(byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return (index < data.length ? data[index++] & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (index >= data.length)
+				return -1;
+
+			b[off] = data[index++];
+			return 1;
+		}
+	}
+
+	@Test
+	public void testSplitSequences() throws IOException {
+		DecodingInput<InputStream> input = new DecodingInput<InputStream>(
+				new InputStreamInput(new TrickleInputStream(
+						TEXT.getBytes("UTF-8"))), UTF8);
+
+		assertEquals(TEXT, readAll(input, 7));
+	}
+
+	@Test
+	public void testSingleCharReads() throws IOException {
+		DecodingInput<byte[]> input = new DecodingInput<byte[]>(
+				new ByteArrayInput(TEXT.getBytes("UTF-8")), UTF8, 16);
+
+		// Forces the surrogate pair to be handed out one half at a time.
+		assertEquals(TEXT, readAll(input, 1));
+	}
+
+	@Test
+	public void testLarge() throws IOException {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < 2000; i++)
+			builder.append(TEXT);
+
+		String text = builder.toString();
+		DecodingInput<byte[]> input = new DecodingInput<byte[]>(
+				new ByteArrayInput(text.getBytes("UTF-8")), UTF8, 61);
+
+		assertEquals(text, readAll(input, 100));
+		assertEquals(text.length(), input.getLongPosition());
+	}
+
+	private static String readAll(IInput<?, char[]> input, int bufferSize)
+			throws IOException {
+		StringBuilder result = new StringBuilder();
+		char[] buffer = new char[bufferSize];
+		int read;
+
+		while (!input.isEmpty()) {
+			read = input.read(buffer, 0, buffer.length);
+			result.append(buffer, 0, read);
+		}
+
+		return result.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FileChannelInputTest {
+	public static final byte[] DATA = new byte[1000];
+
+	private static File file;
+	private static RandomAccessFile raf;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) (i * 31);
+
+		file = File.createTempFile("FileChannelInputTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		raf.close();
+	}
+
+	@Test
+	public void testSeek() throws IOException {
+		FileChannel channel = raf.getChannel();
+		channel.position(100);
+
+		FileChannelInput input = new FileChannelInput(channel, 500);
+		byte[] buffer = new byte[500];
+
+		input.readFully(buffer, 0, 500);
+		assertTrue(input.isEmpty());
+
+		// Positions are relative to where the channel was when wrapped.
+		input.seek(50);
+		assertFalse(input.isEmpty());
+		assertEquals(450, input.getLongRemaining());
+		assertEquals(150, channel.position());
+		assertEquals(1, input.read(buffer, 0, 1));
+		assertEquals(DATA[150], buffer[0]);
+
+		input.seek(0);
+		assertEquals(DATA[100], (byte) readByte(input));
+	}
+
+	@Test
+	public void testSeekBounds() throws IOException {
+		FileChannel channel = raf.getChannel();
+		channel.position(900);
+
+		FileChannelInput input = new FileChannelInput(channel);
+		input.seek(100);
+
+		try {
+			input.seek(101);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		try {
+			input.seek(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPeekableRewind() throws IOException {
+		FileChannel channel = raf.getChannel();
+		channel.position(0);
+
+		BytePeekableInput<ReadableByteChannel> input = new BytePeekableInput<ReadableByteChannel>(
+				new FileChannelInput(channel), 8);
+		byte[] buffer = new byte[100];
+
+		input.readFully(buffer, 0, 100);
+
+		// Further back than the ring holds; the file channel is re-read.
+		input.unread(90);
+		assertEquals(DATA[10], (byte) input.peek(0));
+	}
+
+	private static int readByte(IInput<?, byte[]> input) throws IOException {
+		byte[] b = new byte[1];
+		return (input.read(b) == 1 ? b[0] : -1);
+	}
+}
\ No newline at end of file
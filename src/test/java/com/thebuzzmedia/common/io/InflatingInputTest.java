@@ -0,0 +1,241 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+import com.thebuzzmedia.common.io.DecodingInputTest.TrickleInputStream;
+import com.thebuzzmedia.common.io.InflatingInput.Format;
+
+public class InflatingInputTest {
+	public static final byte[] DATA = new byte[100000];
+
+	static {
+		// Compressible, but not trivially so.
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) ((i % 251) ^ (i / 1000));
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		InflatingInput<byte[]> input = new InflatingInput<byte[]>(
+				new ByteArrayInput(gzip(DATA)));
+
+		assertArrayEquals(DATA, readAll(input));
+		assertTrue(input.isEmpty());
+
+		// The inflater was handed back to the pool.
+		assertNull(input.inflater);
+	}
+
+	@Test
+	public void testTrickle() throws IOException {
+		InflatingInput<InputStream> input = new InflatingInput<InputStream>(
+				new InputStreamInput(new TrickleInputStream(gzip(DATA))),
+				Format.GZIP, InflatingInput.MIN_BUFFER_SIZE);
+
+		assertArrayEquals(DATA, readAll(input));
+	}
+
+	@Test
+	public void testConcatenatedMembers() throws IOException {
+		byte[] first = gzip(new byte[] { 'a', 'b', 'c' });
+		byte[] second = gzip(DATA);
+		byte[] data = new byte[first.length + second.length + 4];
+
+		System.arraycopy(first, 0, data, 0, first.length);
+		System.arraycopy(second, 0, data, first.length, second.length);
+
+		byte[] read = readAll(new InflatingInput<byte[]>(new ByteArrayInput(
+				data)));
+
+		// Trailing padding after the last member is ignored.
+		assertEquals(3 + DATA.length, read.length);
+		assertEquals('c', read[2]);
+
+		for (int i = 0; i < DATA.length; i++)
+			assertEquals(DATA[i], read[3 + i]);
+	}
+
+	@Test
+	public void testHeaderFields() throws IOException {
+		byte[] compressed = deflate(DATA, true);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+		// FHCRC | FEXTRA | FNAME | FCOMMENT
+		baos.write(new byte[] { 0x1F, (byte) 0x8B, 8, 30, 0, 0, 0, 0, 0, 3 });
+		baos.write(new byte[] { 3, 0, 'x', 'y', 'z' });
+		baos.write("name.log\0".getBytes("US-ASCII"));
+		baos.write("comment\0".getBytes("US-ASCII"));
+		baos.write(new byte[] { 0, 0 });
+		baos.write(compressed);
+
+		CRC32 crc = new CRC32();
+		crc.update(DATA);
+		writeInt(baos, (int) crc.getValue());
+		writeInt(baos, DATA.length);
+
+		InflatingInput<InputStream> input = new InflatingInput<InputStream>(
+				new InputStreamInput(new TrickleInputStream(baos.toByteArray())),
+				Format.GZIP, InflatingInput.MIN_BUFFER_SIZE);
+
+		assertArrayEquals(DATA, readAll(input));
+	}
+
+	@Test
+	public void testZlibAndDeflate() throws IOException {
+		assertArrayEquals(DATA, readAll(new InflatingInput<byte[]>(
+				new ByteArrayInput(deflate(DATA, false)), Format.ZLIB)));
+		assertArrayEquals(DATA, readAll(new InflatingInput<byte[]>(
+				new ByteArrayInput(deflate(DATA, true)), Format.DEFLATE)));
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		InflatingInput<byte[]> input = new InflatingInput<byte[]>(
+				new ByteArrayInput(gzip(DATA)));
+
+		assertEquals(1000, skipFully(input, 1000));
+
+		byte[] buffer = new byte[1];
+		assertEquals(1, input.read(buffer));
+		assertEquals(DATA[1000], buffer[0]);
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		InflatingInput<byte[]> input = new InflatingInput<byte[]>(
+				new ByteArrayInput(gzip(DATA)));
+
+		assertEquals(10, input.read(new byte[10]));
+		input.close();
+
+		assertNull(input.inflater);
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(new byte[10]));
+	}
+
+	@Test(expected = ZipException.class)
+	public void testNotGzip() throws IOException {
+		readAll(new InflatingInput<byte[]>(new ByteArrayInput(DATA)));
+	}
+
+	@Test(expected = ZipException.class)
+	public void testCorruptTrailer() throws IOException {
+		byte[] data = gzip(DATA);
+		data[data.length - 5]++;
+
+		readAll(new InflatingInput<byte[]>(new ByteArrayInput(data)));
+	}
+
+	@Test
+	public void testInflaterReleasedOnError() throws IOException {
+		byte[] data = gzip(DATA);
+
+		// Corrupt the compressed data itself.
+		for (int i = 20; i < 60; i++)
+			data[i] = (byte) 0xFF;
+
+		InflatingInput<byte[]> input = new InflatingInput<byte[]>(
+				new ByteArrayInput(data));
+
+		try {
+			readAll(input);
+			fail();
+		} catch (ZipException e) {
+			// expected
+		}
+
+		assertNull(input.inflater);
+
+		try {
+			input.read(new byte[10]);
+			fail();
+		} catch (ZipException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncated() throws IOException {
+		byte[] data = gzip(DATA);
+
+		readAll(new InflatingInput<byte[]>(new ByteArrayInput(data, 0,
+				data.length / 2)));
+	}
+
+	private static byte[] readAll(IInput<?, byte[]> input) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[777];
+		int read;
+
+		while ((read = input.read(buffer)) > 0)
+			baos.write(buffer, 0, read);
+
+		return baos.toByteArray();
+	}
+
+	private static long skipFully(IInput<?, byte[]> input, long amount)
+			throws IOException {
+		long total = 0;
+		long skipped;
+
+		while (total < amount && (skipped = input.skip(amount - total)) > 0)
+			total += skipped;
+
+		return total;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		GZIPOutputStream gzos = new GZIPOutputStream(baos);
+		gzos.write(data);
+		gzos.close();
+
+		return baos.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] data, boolean nowrap)
+			throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+		DeflaterOutputStream dos = new DeflaterOutputStream(baos, deflater);
+		dos.write(data);
+		dos.close();
+		deflater.end();
+
+		return baos.toByteArray();
+	}
+
+	private static void writeInt(ByteArrayOutputStream baos, int value) {
+		baos.write(value);
+		baos.write(value >>> 8);
+		baos.write(value >>> 16);
+		baos.write(value >>> 24);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class InputStreamInputTest {
+	public static final long THREE_GB = 3L * 1024L * 1024L * 1024L;
+
+	/**
+	 * Endless stream that never touches the buffer, making multi-GB reads
+	 * cheap enough to run as a test.
+	 */
+	static class EndlessInputStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			return 0;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return len;
+		}
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		byte[] data = "hello world".getBytes();
+		InputStreamInput input = new InputStreamInput(new ByteArrayInputStream(
+				data));
+		byte[] buffer = new byte[64];
+
+		assertEquals(IInput.UNSPECIFIED, input.getRemaining());
+		assertEquals(data.length, input.read(buffer));
+		assertEquals(0, input.read(buffer));
+		assertTrue(input.isEmpty());
+		assertEquals(data.length, input.getLongPosition());
+	}
+
+	@Test
+	public void testLongLength() throws IOException {
+		InputStreamInput input = new InputStreamInput(new EndlessInputStream(),
+				THREE_GB);
+		byte[] buffer = new byte[1024 * 1024];
+
+		assertEquals(THREE_GB, input.getLongLength());
+		assertEquals(Integer.MAX_VALUE, input.getLength());
+
+		while (!input.isEmpty())
+			input.read(buffer);
+
+		assertEquals(THREE_GB, input.getLongPosition());
+		assertEquals(Integer.MAX_VALUE, input.getPosition());
+		assertEquals(0, input.getLongRemaining());
+		assertEquals(0, input.getRemaining());
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		InputStreamInput input = new InputStreamInput(new ByteArrayInputStream(
+				"hello world".getBytes()));
+		byte[] buffer = new byte[64];
+
+		assertEquals(6, input.skip(6));
+		assertEquals(6, input.getLongPosition());
+		assertEquals(5, input.read(buffer));
+		assertEquals("world", new String(buffer, 0, 5));
+		assertEquals(0, input.skip(10));
+		assertTrue(input.isEmpty());
+	}
+
+	@Test
+	public void testReadFully() throws IOException {
+		byte[] data = new byte[100];
+
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) i;
+
+		// The stream only hands out 1 byte per read.
+		InputStreamInput input = new InputStreamInput(
+				new DecodingInputTest.TrickleInputStream(data), 90);
+		byte[] buffer = new byte[100];
+
+		input.readFully(buffer, 10, 50);
+		assertEquals(49, buffer[59]);
+		assertEquals(50, input.getLongPosition());
+
+		assertEquals(20, input.readAtLeast(buffer, 0, 100, 20));
+		assertEquals(69, buffer[19]);
+
+		try {
+			// Bounded to 90; only 20 left.
+			input.readFully(buffer, 0, 30);
+			fail();
+		} catch (EOFException e) {
+			assertTrue(input.isEmpty());
+			assertEquals(89, buffer[19]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadAtLeastInvalidMin() throws IOException {
+		new InputStreamInput(new ByteArrayInputStream(new byte[10]))
+				.readAtLeast(new byte[10], 0, 5, 6);
+	}
+}
\ No newline at end of file
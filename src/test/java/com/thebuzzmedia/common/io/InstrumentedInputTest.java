@@ -0,0 +1,148 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.Test;
+
+public class InstrumentedInputTest {
+	public static final byte[] DATA = new byte[1000];
+
+	@Test
+	public void testRecord() throws IOException {
+		InstrumentedInput<byte[], byte[]> input = new InstrumentedInput<byte[], byte[]>(
+				new ByteArrayInput(DATA));
+		byte[] buffer = new byte[100];
+
+		assertEquals(1000, input.getLongRemaining());
+
+		// 9 full reads, then 2 short ones
+		for (int i = 0; i < 9; i++)
+			assertEquals(100, input.read(buffer));
+
+		assertEquals(60, input.read(buffer, 0, 60));
+		assertEquals(40, input.read(buffer, 60));
+		assertEquals(0, input.read(buffer));
+		assertTrue(input.isEmpty());
+		assertEquals(1000, input.getLongPosition());
+
+		InputStats stats = input.getStats();
+		assertEquals(1000, stats.getUnits());
+		assertEquals(12, stats.getCalls());
+		assertEquals(1000.0 / 12, stats.getAverageReadSize(), 0.0001);
+		assertTrue(stats.getNanos() >= 0);
+
+		// 100 is in the [64, 127] bucket, 60 and 40 in [32, 63] and 0 in its own.
+		assertEquals(9, stats.getBucketCount(7));
+		assertEquals(2, stats.getBucketCount(6));
+		assertEquals(1, stats.getBucketCount(0));
+		assertEquals(127, stats.getReadSizePercentile(50));
+		assertEquals(63, stats.getReadSizePercentile(10));
+		assertEquals(0, stats.getReadSizePercentile(5));
+
+		stats.reset();
+		assertEquals(0, stats.getCalls());
+		assertEquals(0, stats.getReadSizePercentile(99));
+	}
+
+	@Test
+	public void testTrickle() throws IOException {
+		InstrumentedInput<InputStream, byte[]> input = new InstrumentedInput<InputStream, byte[]>(
+				new InputStreamInput(new DecodingInputTest.TrickleInputStream(
+						DATA)));
+
+		input.readFully(new byte[500], 0, 500);
+
+		// Exposes the source only handing out 1 byte per read.
+		assertEquals(500, input.getStats().getCalls());
+		assertEquals(1, input.getStats().getReadSizePercentile(100));
+	}
+
+	@Test
+	public void testNonBlocking() throws IOException {
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+
+		InstrumentedInput<ReadableByteChannel, byte[]> input = new InstrumentedInput<ReadableByteChannel, byte[]>(
+				new ChannelInput(pipe.source()));
+
+		assertEquals(0, input.read(new byte[10], 0, 10));
+		assertFalse(input.isEmpty());
+		assertEquals(1, input.getStats().getCalls());
+
+		pipe.sink().close();
+		pipe.source().close();
+	}
+
+	@Test
+	public void testConcurrentRecord() throws Exception {
+		final InputStats stats = new InputStats();
+		Thread[] threads = new Thread[8];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++)
+						stats.record(8, 2);
+				}
+			};
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; i++)
+			threads[i].join();
+
+		// Every stripe adds up to the totals.
+		assertEquals(80000, stats.getCalls());
+		assertEquals(640000, stats.getUnits());
+		assertEquals(160000, stats.getNanos());
+		assertEquals(80000, stats.getBucketCount(4));
+		assertEquals(15, stats.getReadSizePercentile(50));
+
+		stats.reset();
+		assertEquals(0, stats.getCalls());
+		assertEquals(0, stats.getBucketCount(4));
+	}
+
+	@Test
+	public void testRegistry() throws IOException {
+		InstrumentedInput<byte[], byte[]> first = new InstrumentedInput<byte[], byte[]>(
+				new ByteArrayInput(DATA), "InstrumentedInputTest");
+		InstrumentedInput<byte[], byte[]> second = new InstrumentedInput<byte[], byte[]>(
+				new ByteArrayInput(DATA), "InstrumentedInputTest");
+
+		assertSame(first.getStats(), second.getStats());
+
+		first.read(new byte[10]);
+		second.read(new byte[20]);
+
+		InputStats stats = InputStatsRegistry.getAll().get(
+				"InstrumentedInputTest");
+		assertEquals(30, stats.getUnits());
+		assertEquals(2, stats.getCalls());
+
+		assertSame(stats, InputStatsRegistry.remove("InstrumentedInputTest"));
+		assertNotSame(stats, InputStatsRegistry.get("InstrumentedInputTest"));
+		InputStatsRegistry.remove("InstrumentedInputTest");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MappedFileInputTest {
+	public static final byte[] DATA = new byte[1000];
+
+	private static File file;
+	private static RandomAccessFile raf;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) i;
+
+		file = File.createTempFile("MappedFileInputTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		raf.close();
+	}
+
+	@Test
+	public void testReadAcrossWindows() throws IOException {
+		FileChannel channel = raf.getChannel();
+		MappedFileInput input = new MappedFileInput(channel, 0,
+				IInput.UNSPECIFIED, 64);
+
+		assertEquals(DATA.length, input.getLongLength());
+		assertEquals(DATA.length, input.getRemaining());
+
+		byte[] result = new byte[DATA.length];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(result, total, 100);
+
+		assertEquals(DATA.length, total);
+		assertEquals(DATA.length, input.getLongPosition());
+		assertEquals(0, input.getLongRemaining());
+		assertArrayEquals(DATA, result);
+
+		// Mapping must not move the channel
+		assertEquals(0, channel.position());
+	}
+
+	@Test
+	public void testReadBounded() throws IOException {
+		MappedFileInput input = new MappedFileInput(raf.getChannel(), 100,
+				250, 64);
+
+		assertEquals(100, input.getLongPosition());
+
+		byte[] result = new byte[512];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(result, total);
+
+		assertEquals(250, total);
+		assertEquals(350, input.getLongPosition());
+
+		for (int i = 0; i < total; i++)
+			assertEquals(DATA[100 + i], result[i]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfBounds() throws IOException {
+		new MappedFileInput(raf.getChannel(), 900, 200);
+	}
+
+	@Test
+	public void testReadByteBuffer() throws IOException {
+		MappedFileBufferInput input = new MappedFileBufferInput(
+				raf.getChannel(), 10, 500, 128);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(96);
+		int total = 0;
+
+		while (!input.isEmpty()) {
+			buffer.clear();
+			input.read(buffer);
+			buffer.flip();
+
+			while (buffer.hasRemaining())
+				assertEquals(DATA[10 + total++], buffer.get());
+		}
+
+		assertEquals(500, total);
+	}
+
+	@Test
+	public void testSkipAndSeek() throws IOException {
+		MappedFileInput input = new MappedFileInput(raf.getChannel(), 100,
+				800, 64);
+		byte[] buffer = new byte[1];
+
+		// Skip across several windows without mapping them.
+		assertEquals(500, input.skip(500));
+		assertEquals(600, input.getLongPosition());
+		assertEquals(1, input.read(buffer));
+		assertEquals(DATA[600], buffer[0]);
+
+		assertEquals(299, input.skip(1000));
+		assertTrue(input.isEmpty());
+
+		input.seek(150);
+		assertEquals(1, input.read(buffer));
+		assertEquals(DATA[150], buffer[0]);
+	}
+}
\ No newline at end of file
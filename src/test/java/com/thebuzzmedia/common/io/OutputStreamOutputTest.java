@@ -0,0 +1,100 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class OutputStreamOutputTest {
+	/**
+	 * Stream counting how many write calls reach it.
+	 */
+	static class CountingOutputStream extends ByteArrayOutputStream {
+		int writes;
+		int flushes;
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			writes++;
+			super.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			flushes++;
+		}
+	}
+
+	@Test
+	public void testBatching() throws IOException {
+		CountingOutputStream stream = new CountingOutputStream();
+		OutputStreamOutput output = new OutputStreamOutput(stream,
+				IOutput.UNSPECIFIED, 16);
+		byte[] small = { 1, 2, 3, 4, 5 };
+
+		// 3 small writes fit in the batch; nothing reaches the stream yet.
+		for (int i = 0; i < 3; i++)
+			assertEquals(5, output.write(small));
+
+		assertEquals(0, stream.writes);
+		assertEquals(15, output.getPosition());
+
+		// Doesn't fit, batch is written out first.
+		output.write(small);
+		assertEquals(1, stream.writes);
+
+		// Large writes bypass the batch after flushing it.
+		output.write(new byte[32]);
+		assertEquals(3, stream.writes);
+
+		output.flush();
+		assertEquals(1, stream.flushes);
+		assertEquals(52, stream.size());
+		assertEquals(52, output.getPosition());
+	}
+
+	@Test
+	public void testGatheringWrite() throws IOException {
+		CountingOutputStream stream = new CountingOutputStream();
+		OutputStreamOutput output = new OutputStreamOutput(stream,
+				IOutput.UNSPECIFIED, 64);
+		byte[][] buffers = { { 1, 2 }, { 3 }, { 4, 5, 6 } };
+
+		assertEquals(6, output.write(buffers));
+		output.flush();
+
+		assertEquals(1, stream.writes);
+		assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 },
+				stream.toByteArray());
+	}
+
+	@Test
+	public void testBounded() throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		OutputStreamOutput output = new OutputStreamOutput(stream, 4);
+
+		assertEquals(4, output.write(new byte[] { 1, 2, 3, 4, 5, 6 }));
+		assertTrue(output.isFull());
+		assertEquals(0, output.write(new byte[] { 7 }));
+
+		output.flush();
+		assertEquals(4, stream.size());
+	}
+}
\ No newline at end of file
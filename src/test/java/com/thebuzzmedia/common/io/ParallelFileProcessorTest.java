@@ -0,0 +1,163 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelFileProcessorTest {
+	public static final int LINES = 10000;
+
+	private static File file;
+	private static RandomAccessFile raf;
+	private static long expectedSum;
+
+	/**
+	 * Counts the lines in a chunk and sums the numbers written on them.
+	 */
+	static class SumProcessor implements IChunkProcessor<long[]> {
+		public long[] process(ILongInput<FileChannel, byte[]> chunk)
+				throws IOException {
+			ByteRecordReader reader = new ByteRecordReader(chunk);
+			long[] result = new long[2];
+
+			while (reader.next()) {
+				result[0]++;
+				result[1] += Long.parseLong(new String(reader.getBuffer(),
+						reader.getOffset(), reader.getLength(), "US-ASCII"));
+			}
+
+			return result;
+		}
+
+		public long[] reduce(long[] first, long[] second) {
+			return new long[] { first[0] + second[0], first[1] + second[1] };
+		}
+	}
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < LINES; i++) {
+			builder.append(i * 7).append('\n');
+			expectedSum += i * 7;
+		}
+
+		file = File.createTempFile("ParallelFileProcessorTest", ".txt");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(builder.toString().getBytes("US-ASCII"));
+		fos.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		raf.close();
+	}
+
+	@Test
+	public void testSplitsOnDelimiters() throws IOException {
+		FileChannel channel = raf.getChannel();
+		ParallelFileProcessor<long[]> processor = new ParallelFileProcessor<long[]>(
+				new SumProcessor(), ParallelFileProcessor.DEFAULT_DELIMITER, 7,
+				null);
+
+		long[] splits = processor.split(channel);
+		byte[] b = new byte[1];
+
+		assertEquals(8, splits.length);
+		assertEquals(0, splits[0]);
+		assertEquals(channel.size(), splits[splits.length - 1]);
+
+		for (int i = 1; i < splits.length - 1; i++) {
+			assertTrue(splits[i] > splits[i - 1]);
+
+			// Every chunk must begin right after a delimiter.
+			raf.seek(splits[i] - 1);
+			raf.readFully(b);
+			assertEquals('\n', b[0]);
+		}
+	}
+
+	@Test
+	public void testProcess() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			ParallelFileProcessor<long[]> processor = new ParallelFileProcessor<long[]>(
+					new SumProcessor(), ParallelFileProcessor.DEFAULT_DELIMITER,
+					16, executor);
+			long[] result = processor.process(raf.getChannel());
+
+			assertEquals(LINES, result[0]);
+			assertEquals(expectedSum, result[1]);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDefaultExecutor() throws IOException {
+		ParallelFileProcessor<long[]> processor = new ParallelFileProcessor<long[]>(
+				new SumProcessor(), ParallelFileProcessor.DEFAULT_DELIMITER, 3,
+				null);
+
+		assertSame(ParallelFileProcessor.DEFAULT_EXECUTOR,
+				processor.getExecutor());
+		assertEquals(LINES, processor.process(raf.getChannel())[0]);
+
+		// The shared executor is never shut down by a processor.
+		assertFalse(ParallelFileProcessor.DEFAULT_EXECUTOR.isShutdown());
+		assertEquals(LINES, processor.process(raf.getChannel())[0]);
+	}
+
+	@Test
+	public void testMoreChunksThanRecords() throws IOException {
+		File small = File.createTempFile("ParallelFileProcessorTest", ".txt");
+		small.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(small);
+		fos.write("1\r\n22\r\n333".getBytes("US-ASCII"));
+		fos.close();
+
+		RandomAccessFile smallRaf = new RandomAccessFile(small, "r");
+
+		try {
+			ParallelFileProcessor<long[]> processor = new ParallelFileProcessor<long[]>(
+					new SumProcessor(), new byte[] { '\r', '\n' }, 8, null);
+
+			assertArrayEquals(new long[] { 0, 3, 7, 10 },
+					processor.split(smallRaf.getChannel()));
+		} finally {
+			smallRaf.close();
+		}
+	}
+}
\ No newline at end of file
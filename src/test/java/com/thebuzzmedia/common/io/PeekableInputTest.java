@@ -0,0 +1,226 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.thebuzzmedia.common.io.DecodingInputTest.TrickleInputStream;
+
+public class PeekableInputTest {
+	public static final byte[] DATA = new byte[100];
+
+	static {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) i;
+	}
+
+	@Test
+	public void testPeekStream() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new TrickleInputStream(DATA)), 4);
+
+		assertEquals(0, input.peek(0));
+		assertEquals(9, input.peek(9));
+
+		// Peeking further than the ring holds grows it.
+		byte[] peeked = new byte[20];
+		assertEquals(20, input.peek(peeked, 0, peeked.length));
+		assertEquals(19, peeked[19]);
+		assertEquals(0, input.getLongPosition());
+
+		byte[] buffer = new byte[DATA.length];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(buffer, total, buffer.length - total);
+
+		assertEquals(DATA.length, total);
+		assertArrayEquals(DATA, buffer);
+		assertEquals(-1, input.peek(0));
+	}
+
+	@Test
+	public void testMarkResetStream() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new ByteArrayInputStream(DATA)), 8);
+		byte[] buffer = new byte[30];
+
+		assertEquals(5, input.read(buffer, 0, 5));
+		input.mark(50);
+
+		// Read in small pieces so everything goes through the ring.
+		for (int i = 0; i < 30;)
+			i += input.read(buffer, i, Math.min(3, 30 - i));
+
+		assertEquals(34, buffer[29]);
+
+		input.reset();
+		assertEquals(5, input.getLongPosition());
+		assertEquals(5, input.peek(0));
+
+		assertEquals(4, readFully(input, buffer, 4));
+		input.unread(2);
+		assertEquals(7, input.peek(0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMarkExpires() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new ByteArrayInputStream(DATA)), 8);
+		byte[] buffer = new byte[4];
+
+		input.mark(10);
+
+		for (int i = 0; i < 10; i++)
+			input.read(buffer);
+
+		input.reset();
+	}
+
+	@Test
+	public void testUnreadPastMark() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new ByteArrayInputStream(DATA)), 16);
+
+		assertEquals(8, readFully(input, new byte[8], 8));
+		input.mark(1000);
+		assertEquals(4, readFully(input, new byte[4], 4));
+		input.unread(12);
+
+		// Filling the ring must not overwrite the data before the mark.
+		byte[] peeked = new byte[20];
+		assertEquals(20, input.peek(peeked, 0, peeked.length));
+
+		for (int i = 0; i < peeked.length; i++)
+			assertEquals(i, peeked[i]);
+
+		input.reset();
+		assertEquals(8, input.peek(0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnreadPastRing() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new ByteArrayInputStream(DATA)), 8);
+
+		// A read larger than the ring bypasses it.
+		input.read(new byte[50]);
+		input.unread(1);
+	}
+
+	@Test
+	public void testRepositionableSource() throws IOException {
+		ByteArrayInput source = new ByteArrayInput(DATA, 10, 80);
+		BytePeekableInput<byte[]> input = new BytePeekableInput<byte[]>(
+				source, 8);
+		byte[] buffer = new byte[80];
+
+		input.mark(0);
+		assertEquals(80, input.read(buffer));
+		assertTrue(input.isEmpty());
+
+		// The mark never expires and the ring isn't involved.
+		input.reset();
+		assertFalse(input.isEmpty());
+		assertEquals(10, source.getPosition());
+		assertEquals(10, input.peek(0));
+
+		assertEquals(40, readFully(input, buffer, 40));
+		input.unread(30);
+		assertEquals(20, input.peek(0));
+		assertEquals(70, readFully(input, buffer, 80));
+		assertEquals(89, buffer[69]);
+	}
+
+	@Test
+	public void testChars() throws IOException {
+		CharPeekableInput<Reader> input = new CharPeekableInput<Reader>(
+				new ReaderInput(new StringReader("hello world")), 4);
+		char[] buffer = new char[5];
+
+		assertEquals('w', input.peek(6));
+		assertEquals(5, input.read(buffer));
+		assertEquals("hello", new String(buffer));
+
+		input.unread(5);
+		assertEquals('h', input.peek(0));
+
+		CharPeekableInput<CharSequence> sequence = new CharPeekableInput<CharSequence>(
+				new CharSequenceInput("abc"));
+
+		assertEquals(3, sequence.read(buffer, 0, 5));
+		sequence.unread(3);
+		assertEquals('a', sequence.peek(0));
+		assertEquals(-1, sequence.peek(3));
+	}
+
+	@Test
+	public void testByteBufferSource() throws IOException {
+		BytePeekableInput<java.nio.ByteBuffer> input = new BytePeekableInput<java.nio.ByteBuffer>(
+				new ByteBufferInput(java.nio.ByteBuffer.wrap(DATA)), 8);
+
+		input.read(new byte[60]);
+		input.unread(60);
+
+		assertEquals(0, input.peek(0));
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		BytePeekableInput<InputStream> input = new BytePeekableInput<InputStream>(
+				new InputStreamInput(new ByteArrayInputStream(DATA)), 8);
+
+		assertEquals(3, input.peek(3));
+
+		// Peeked data is skipped first, then the stream itself.
+		assertEquals(8, input.skip(50));
+		assertEquals(50, readSkip(input, 42) + 8);
+		assertEquals(50, input.peek(0));
+
+		input.mark(20);
+		assertEquals(10, readSkip(input, 10));
+		input.reset();
+		assertEquals(50, input.peek(0));
+	}
+
+	private static long readSkip(IInput<?, byte[]> input, long amount)
+			throws IOException {
+		long total = 0;
+
+		while (total < amount && !input.isEmpty())
+			total += input.skip(amount - total);
+
+		return total;
+	}
+
+	private static int readFully(IInput<?, byte[]> input, byte[] buffer,
+			int length) throws IOException {
+		int total = 0;
+
+		while (total < length && !input.isEmpty())
+			total += input.read(buffer, total, length - total);
+
+		return total;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RandomAccessInputTest {
+	public static final byte[] DATA = new byte[64 * 1024];
+
+	private static File file;
+	private static RandomAccessFile raf;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) (i * 31);
+
+		file = File.createTempFile("RandomAccessInputTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		raf.close();
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		RandomAccessInput input = new RandomAccessInput(raf.getChannel(), 100,
+				1000);
+		byte[] buffer = new byte[10];
+
+		assertEquals(10, input.read(500, buffer));
+
+		for (int i = 0; i < 10; i++)
+			assertEquals(DATA[500 + i], buffer[i]);
+
+		// Trimmed to the bounds
+		assertEquals(5, input.read(1095, buffer));
+		assertEquals(0, input.read(1100, buffer));
+		assertEquals(1000, input.getRemaining(100));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(4);
+		assertEquals(4, input.read(200, direct));
+		assertEquals(DATA[203], direct.get(3));
+
+		// Positions never move
+		assertEquals(0, raf.getChannel().position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadOutOfBounds() throws IOException {
+		new RandomAccessInput(raf.getChannel(), 100, 1000).read(99,
+				new byte[1]);
+	}
+
+	@Test
+	public void testLimitRestoredOnError() throws IOException {
+		RandomAccessFile closed = new RandomAccessFile(file, "r");
+		RandomAccessInput input = new RandomAccessInput(closed.getChannel(),
+				0, 100);
+		closed.close();
+
+		ByteBuffer buffer = ByteBuffer.allocate(1000);
+
+		try {
+			input.read(0, buffer);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+
+		assertEquals(0, buffer.position());
+		assertEquals(1000, buffer.limit());
+	}
+
+	@Test(expected = EOFException.class)
+	public void testReadFullyPastEnd() throws IOException {
+		new RandomAccessInput(raf.getChannel()).readFully(DATA.length - 2,
+				new byte[4], 0, 4);
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final RandomAccessInput input = new RandomAccessInput(raf.getChannel());
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t * 1024;
+
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					byte[] buffer = new byte[1024];
+
+					try {
+						for (int p = offset; p + buffer.length <= DATA.length; p += 8192) {
+							input.readFully(p, buffer, 0, buffer.length);
+
+							for (int i = 0; i < buffer.length; i++)
+								if (buffer[i] != DATA[p + i])
+									failures.incrementAndGet();
+						}
+					} catch (IOException e) {
+						failures.incrementAndGet();
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+
+		assertEquals(0, failures.get());
+	}
+}
\ No newline at end of file
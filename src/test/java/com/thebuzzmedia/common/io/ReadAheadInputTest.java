@@ -0,0 +1,176 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.Test;
+
+public class ReadAheadInputTest {
+	public static final byte[] DATA = new byte[10000];
+
+	static {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) i;
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		ReadAheadInput<byte[]> input = new ReadAheadInput<byte[]>(
+				new ByteArrayInput(DATA), 128, 3);
+		byte[] result = new byte[DATA.length];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(result, total,
+					Math.min(100, result.length - total));
+
+		assertEquals(DATA.length, total);
+		assertEquals(DATA.length, input.getLongPosition());
+		assertArrayEquals(DATA, result);
+	}
+
+	@Test
+	public void testErrorPropagation() throws IOException {
+		InputStream failing = new InputStream() {
+			private int count = 0;
+
+			@Override
+			public int read() throws IOException {
+				throw new IOException("not used");
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (count++ == 2)
+					throw new IOException("disk on fire");
+
+				return len;
+			}
+		};
+
+		ReadAheadInput<InputStream> input = new ReadAheadInput<InputStream>(
+				new InputStreamInput(failing), 16, 1);
+		byte[] buffer = new byte[16];
+
+		assertEquals(16, input.read(buffer));
+		assertEquals(16, input.read(buffer));
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				input.read(buffer);
+				fail("expected the read-ahead IOException");
+			} catch (IOException e) {
+				assertEquals("disk on fire", e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		ReadAheadInput<byte[]> input = new ReadAheadInput<byte[]>(
+				new ByteArrayInput(DATA), 16, 1);
+		byte[] buffer = new byte[16];
+
+		assertEquals(16, input.read(buffer));
+
+		input.close();
+
+		assertTrue(input.isEmpty());
+		assertEquals(0, input.read(buffer));
+	}
+
+	@Test(timeout = 10000)
+	public void testErrorDoesNotHang() throws IOException {
+		InputStream failing = new InputStream() {
+			private int count = 0;
+
+			@Override
+			public int read() throws IOException {
+				throw new IOException("not used");
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (count++ == 1)
+					throw new AssertionError("decoder blew up");
+
+				return len;
+			}
+		};
+
+		ReadAheadInput<InputStream> input = new ReadAheadInput<InputStream>(
+				new InputStreamInput(failing), 16, 1);
+		byte[] buffer = new byte[16];
+
+		assertEquals(16, input.read(buffer));
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				input.read(buffer);
+				fail("expected the wrapped read-ahead Error");
+			} catch (IOException e) {
+				assertTrue(e.getCause() instanceof AssertionError);
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testNonBlockingSource() throws IOException {
+		ReadableByteChannel trickle = new ReadableByteChannel() {
+			private int index = 0;
+			private int polls = 0;
+
+			public int read(ByteBuffer dst) {
+				if (index == DATA.length)
+					return -1;
+
+				// Only hand out data every 40th poll; nothing available otherwise.
+				if (++polls % 40 != 0)
+					return 0;
+
+				int amount = Math.min(dst.remaining(), DATA.length - index);
+				dst.put(DATA, index, amount);
+				index += amount;
+				return amount;
+			}
+
+			public boolean isOpen() {
+				return true;
+			}
+
+			public void close() {
+				// no-op
+			}
+		};
+
+		ReadAheadInput<ReadableByteChannel> input = new ReadAheadInput<ReadableByteChannel>(
+				new ChannelInput(trickle), 1000, 2);
+		byte[] result = new byte[DATA.length];
+		int total = 0;
+
+		while (!input.isEmpty())
+			total += input.read(result, total, result.length - total);
+
+		assertEquals(DATA.length, total);
+		assertArrayEquals(DATA, result);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,327 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TransferUtilsTest {
+	public static final byte[] DATA = new byte[200 * 1024];
+
+	private static File file;
+	private static RandomAccessFile raf;
+
+	@BeforeClass
+	public static void setup() throws IOException {
+		for (int i = 0; i < DATA.length; i++)
+			DATA[i] = (byte) (i * 31);
+
+		file = File.createTempFile("TransferUtilsTest", ".bin");
+		file.deleteOnExit();
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(DATA);
+		fos.close();
+
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@AfterClass
+	public static void teardown() throws IOException {
+		raf.close();
+	}
+
+	@Test
+	public void testByteArrayInput() throws IOException {
+		ByteArrayInput input = new ByteArrayInput(DATA, 10, 1000);
+		byte[] skipped = new byte[90];
+
+		assertEquals(90, input.read(skipped));
+		assertTransfer(input, 100, 910);
+		assertTrue(input.isEmpty());
+		assertEquals(0, TransferUtils.transferTo(input, sink()));
+	}
+
+	@Test
+	public void testByteBufferInput() throws IOException {
+		ByteBuffer source = ByteBuffer.wrap(DATA);
+		source.position(100);
+
+		assertTransfer(new ByteBufferInput(source, 5000), 100, 5000);
+		assertEquals(5100, source.position());
+		assertEquals(DATA.length, source.limit());
+	}
+
+	@Test
+	public void testByteBufferBufferInput() throws IOException {
+		ByteBuffer source = ByteBuffer.allocateDirect(DATA.length);
+		source.put(DATA).flip();
+
+		ByteBufferBufferInput input = new ByteBufferBufferInput(source, 5000);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+		assertEquals(5000, input.transferTo(Channels.newChannel(baos)));
+		assertTrue(input.isEmpty());
+		assertData(baos.toByteArray(), 0, 5000);
+	}
+
+	@Test
+	public void testMappedFileInput() throws IOException {
+		assertTransfer(new MappedFileInput(raf.getChannel(), 1000, 150000,
+				4096), 1000, 150000);
+
+		// The channel's own position is never touched.
+		assertEquals(0, raf.getChannel().position());
+	}
+
+	@Test
+	public void testChannelInput() throws IOException {
+		RandomAccessFile channelRaf = new RandomAccessFile(file, "r");
+
+		try {
+			channelRaf.getChannel().position(500);
+			ChannelInput input = new ChannelInput(channelRaf.getChannel(),
+					100000);
+
+			assertTransfer(input, 500, 100000);
+			assertEquals(100500, channelRaf.getChannel().position());
+
+			// Unbounded to the end of the file
+			input = new ChannelInput(channelRaf.getChannel());
+			assertTransfer(input, 100500, DATA.length - 100500);
+			assertTrue(input.isEmpty());
+		} finally {
+			channelRaf.close();
+		}
+	}
+
+	@Test
+	public void testChannelInputCopy() throws IOException {
+		ChannelInput input = new ChannelInput(
+				Channels.newChannel(new ByteArrayInputStream(DATA)));
+
+		assertTransfer(input, 0, DATA.length);
+		assertTrue(input.isEmpty());
+	}
+
+	@Test
+	public void testInputStreamInput() throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+
+		try {
+			byte[] skipped = new byte[10];
+			assertEquals(10, fis.read(skipped));
+
+			InputStreamInput input = new InputStreamInput(fis, 20000);
+			assertTransfer(input, 10, 20000);
+
+			// The stream picks up where the transfer left off.
+			assertEquals(DATA[20010], (byte) fis.read());
+		} finally {
+			fis.close();
+		}
+	}
+
+	@Test
+	public void testCopy() throws IOException {
+		// Not an ITransferableInput; copied through a pooled buffer.
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+		input.add(new ByteArrayInput(DATA, 0, 100000));
+		input.add(new InputStreamInput(new ByteArrayInputStream(DATA, 100000,
+				DATA.length - 100000)));
+
+		assertTransfer(input, 0, DATA.length);
+		assertTrue(input.isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void testCopyNonBlocking() throws IOException {
+		ThrottledChannel target = new ThrottledChannel();
+		InputStreamInput input = new InputStreamInput(new ByteArrayInputStream(
+				DATA));
+		long total = 0;
+
+		// Each call writes what the channel accepts and returns.
+		for (int i = 0; total < DATA.length; i++) {
+			target.accept(3000);
+			long transferred = TransferUtils.transferTo(input, target);
+
+			assertEquals(Math.min(3000, DATA.length - total), transferred);
+			total += transferred;
+			assertTrue(i < DATA.length);
+		}
+
+		assertTrue(input.isEmpty());
+		assertEquals(0, TransferUtils.transferTo(input, target));
+		assertData(target.baos.toByteArray(), 0, DATA.length);
+	}
+
+	@Test(timeout = 10000)
+	public void testCopyBoundedNonBlocking() throws IOException {
+		InputStreamInput input = new InputStreamInput(new ByteArrayInputStream(
+				DATA), 100);
+		ThrottledChannel target = new ThrottledChannel();
+		target.refill = 10;
+
+		// The carried data still counts as remaining until it is written.
+		for (int i = 0; !input.isEmpty(); i++) {
+			assertEquals(100 - target.baos.size(), input.getLongRemaining());
+			assertEquals(target.baos.size(), input.getLongPosition());
+
+			input.transferTo(target);
+			assertTrue(i < 100);
+		}
+
+		assertEquals(100, input.getLongPosition());
+		assertEquals(0, input.getLongRemaining());
+		assertData(target.baos.toByteArray(), 0, 100);
+	}
+
+	@Test
+	public void testCarryReadAfterTransfer() throws IOException {
+		ChannelInput input = new ChannelInput(
+				Channels.newChannel(new ByteArrayInputStream(DATA)), 1000);
+		ThrottledChannel target = new ThrottledChannel();
+
+		target.accept(300);
+		assertEquals(300, input.transferTo(target));
+		assertEquals(300, input.getLongPosition());
+
+		// Reads hand out the data the channel didn't accept first.
+		byte[] rest = new byte[700];
+		input.readFully(rest, 0, 100);
+		assertEquals(50, input.skip(50));
+		input.readFully(rest, 100, 550);
+
+		assertTrue(input.isEmpty());
+		assertEquals(DATA[300], rest[0]);
+
+		for (int i = 100; i < 650; i++)
+			assertEquals(DATA[350 + i], rest[i]);
+	}
+
+	@Test(timeout = 10000)
+	public void testCopyWaitsWithoutCarry() throws IOException {
+		// Not an ITransferableInput; the copy waits for the channel instead.
+		CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+		input.add(new ByteArrayInput(DATA));
+
+		ThrottledChannel target = new ThrottledChannel();
+		target.refill = 5000;
+
+		assertEquals(DATA.length, TransferUtils.transferTo(input, target));
+		assertData(target.baos.toByteArray(), 0, DATA.length);
+	}
+
+	@Test
+	public void testCopyNonBlockingRejected() throws IOException {
+		Pipe pipe = Pipe.open();
+
+		try {
+			pipe.sink().configureBlocking(false);
+
+			CompositeInput<byte[]> input = new CompositeInput<byte[]>();
+			input.add(new ByteArrayInput(DATA));
+
+			TransferUtils.transferTo(input, pipe.sink());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		} finally {
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullTarget() throws IOException {
+		TransferUtils.transferTo(new ByteArrayInput(DATA), null);
+	}
+
+	private static void assertTransfer(IInput<?, byte[]> input, int index,
+			int length) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+		assertEquals(length,
+				TransferUtils.transferTo(input, Channels.newChannel(baos)));
+		assertData(baos.toByteArray(), index, length);
+	}
+
+	private static void assertData(byte[] data, int index, int length) {
+		assertEquals(length, data.length);
+
+		for (int i = 0; i < length; i++)
+			assertEquals(DATA[index + i], data[i]);
+	}
+
+	private static WritableByteChannel sink() {
+		return Channels.newChannel(new ByteArrayOutputStream());
+	}
+
+	/**
+	 * Channel that accepts a set amount of data and then returns
+	 * <code>0</code> like a full non-blocking channel; optionally accepting
+	 * <code>refill</code> more every time it returns <code>0</code>.
+	 */
+	static class ThrottledChannel implements WritableByteChannel {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		int accepting;
+		int refill;
+
+		void accept(int length) {
+			accepting = length;
+		}
+
+		public int write(ByteBuffer src) throws IOException {
+			int length = Math.min(accepting, src.remaining());
+
+			if (length == 0) {
+				accepting = refill;
+				return 0;
+			}
+
+			byte[] data = new byte[length];
+			src.get(data);
+			baos.write(data);
+			accepting -= length;
+
+			return length;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() throws IOException {
+			// no-op
+		}
+	}
+}
\ No newline at end of file
@@ -290,6 +290,9 @@ public class ArrayUtilsTest {
 		assertEquals(0, ArrayUtils.indexOf(BVALUES_NEG, BARRAY));
 		assertEquals(5, ArrayUtils.indexOf(BVALUES_ZERO, BARRAY));
 		assertEquals(6, ArrayUtils.indexOf(BVALUES_POS, BARRAY));
+
+		// Partial matches overlapping the real match
+		assertEquals(1, ArrayUtils.indexOf(new byte[] { -3, -3, 0 }, BREPEAT));
 	}
 
 	@Test
@@ -595,6 +598,9 @@ public class ArrayUtilsTest {
 		assertEquals(0, ArrayUtils.lastIndexOf(BVALUES_NEG, BARRAY));
 		assertEquals(5, ArrayUtils.lastIndexOf(BVALUES_ZERO, BARRAY));
 		assertEquals(6, ArrayUtils.lastIndexOf(BVALUES_POS, BARRAY));
+
+		// Partial matches overlapping the real match
+		assertEquals(4, ArrayUtils.lastIndexOf(new byte[] { 0, 5, 5 }, BREPEAT));
 	}
 
 	@Test
@@ -1196,6 +1202,9 @@ public class ArrayUtilsTest {
 		assertEquals(0, ArrayUtils.indexOf(CVALUES_NEG, CARRAY));
 		assertEquals(5, ArrayUtils.indexOf(CVALUES_ZERO, CARRAY));
 		assertEquals(6, ArrayUtils.indexOf(CVALUES_POS, CARRAY));
+
+		// Partial matches overlapping the real match
+		assertEquals(1, ArrayUtils.indexOf(new char[] { 'a', 'a', 'h' }, CREPEAT));
 	}
 
 	@Test
@@ -1483,6 +1492,10 @@ public class ArrayUtilsTest {
 		assertEquals(0, ArrayUtils.lastIndexOf(CVALUES_NEG, CARRAY));
 		assertEquals(5, ArrayUtils.lastIndexOf(CVALUES_ZERO, CARRAY));
 		assertEquals(6, ArrayUtils.lastIndexOf(CVALUES_POS, CARRAY));
+
+		// Partial matches overlapping the real match
+		assertEquals(4,
+				ArrayUtils.lastIndexOf(new char[] { 'h', 'z', 'z' }, CREPEAT));
 	}
 
 	@Test
@@ -0,0 +1,70 @@
+/**   
+ * Copyright 2011 The Buzz Media, LLC
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thebuzzmedia.common.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class StreamUtilsTest {
+	@Test
+	public void testToCharsSplitSequence() throws Exception {
+		StringBuilder text = new StringBuilder("a");
+
+		// Every buffer boundary falls in the middle of a 2-byte char.
+		while (text.length() < StreamUtils.MAX_BUFFER_SIZE * 2)
+			text.append('\u00e9');
+
+		byte[] data = text.toString().getBytes("UTF-8");
+		char[] chars = StreamUtils.toChars(new ByteArrayInputStream(data));
+
+		assertEquals(text.toString(), new String(chars));
+	}
+
+	@Test
+	public void testToCharsNothingAvailable() throws Exception {
+		final byte[] data = "h\u00e9llo".getBytes("UTF-8");
+
+		// Reports nothing available and hands out 1 byte per read.
+		InputStream stream = new InputStream() {
+			int index = 0;
+
+			@Override
+			public int read() {
+				return (index < data.length ? data[index++] & 0xFF : -1);
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0)
+					return 0;
+
+				int value = read();
+
+				if (value == -1)
+					return -1;
+
+				b[off] = (byte) value;
+				return 1;
+			}
+		};
+
+		assertEquals("h\u00e9llo", new String(StreamUtils.toChars(stream)));
+	}
+}
\ No newline at end of file